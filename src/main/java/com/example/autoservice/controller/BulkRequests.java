@@ -0,0 +1,30 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.service.BulkCreateService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+
+// POST /bulk of the entity controllers: the body is a JSON array of entities, read as it arrives.
+// Rows that were not created come back as errors with their index; a body that is not an array
+// is a 400.
+final class BulkRequests {
+
+    private BulkRequests() {
+    }
+
+    static <T> ResponseEntity<BulkCreateService.BulkResult> create(BulkCreateService bulkService,
+                                                                   HttpServletRequest request,
+                                                                   BulkCreateService.BulkTarget<T> target) throws IOException {
+        try {
+            return ResponseEntity.ok(bulkService.create(request.getInputStream(), target));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    static boolean blank(String value) {
+        return value == null || value.isBlank();
+    }
+}
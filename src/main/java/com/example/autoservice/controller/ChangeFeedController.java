@@ -0,0 +1,52 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.model.OutboxEvent;
+import com.example.autoservice.service.ChangeFeed;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Server-sent events for order and stock changes, replacing polling of /api/orders/active and
+// /api/parts/low-stock. Events are named "orders" or "stock"; their id is the position to
+// resume from. EventSource sends it back as Last-Event-ID when it reconnects. A "reset" event
+// means the missed changes are no longer available and the client should reload its lists.
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeFeedController {
+
+    private final ChangeFeed feed;
+
+    public ChangeFeedController(ChangeFeed feed) {
+        this.feed = feed;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(
+            @RequestParam(required = false) List<String> topics,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @RequestParam(value = "lastEventId", required = false) Long lastEventIdParam) {
+        Set<OutboxEvent.Topic> subscribed = EnumSet.noneOf(OutboxEvent.Topic.class);
+        if (topics == null || topics.isEmpty()) {
+            subscribed = EnumSet.allOf(OutboxEvent.Topic.class);
+        } else {
+            // Same names as the events, in any case
+            for (String topic : topics) {
+                try {
+                    subscribed.add(OutboxEvent.Topic.valueOf(topic.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.badRequest().build();
+                }
+            }
+        }
+        return feed.subscribe(subscribed, lastEventId != null ? lastEventId : lastEventIdParam)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+}
@@ -1,20 +1,40 @@
 package com.example.autoservice.controller;
 
+import com.example.autoservice.dto.VehicleSummary;
 import com.example.autoservice.model.Customer;
 import com.example.autoservice.repository.CustomerRepository;
+import com.example.autoservice.repository.VehicleRepository;
+import com.example.autoservice.service.BulkCreateService;
+import com.example.autoservice.service.OrderHistory;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/customers")
 public class CustomerController {
 
+    private static final int MAX_RECENT_ORDERS = 100;
+
     private final CustomerRepository repo;
+    private final VehicleRepository vehicleRepository;
+    private final OrderHistory orderHistory;
+    private final BulkCreateService bulkService;
 
-    public CustomerController(CustomerRepository repo) {
+    public CustomerController(CustomerRepository repo, VehicleRepository vehicleRepository,
+                              OrderHistory orderHistory, BulkCreateService bulkService) {
         this.repo = repo;
+        this.vehicleRepository = vehicleRepository;
+        this.orderHistory = orderHistory;
+        this.bulkService = bulkService;
     }
 
     @GetMapping
@@ -27,12 +47,40 @@ public class CustomerController {
         return repo.findById(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // Customer, vehicles, order totals and the newest orders in one response. Every part is one
+    // indexed query on the customer id (plus the batch loads of the orders' lines and tasks),
+    // however many orders the customer has. nextCursor continues at /api/orders/customer/{id}.
+    @GetMapping("/{id}/overview")
+    public ResponseEntity<CustomerOverview> getOverview(@PathVariable Long id,
+                                                        @RequestParam(defaultValue = "10") int orders) {
+        if (orders < 1 || orders > MAX_RECENT_ORDERS) {
+            return ResponseEntity.badRequest().build();
+        }
+        Optional<Customer> customer = repo.findById(id);
+        if (customer.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        List<VehicleSummary> vehicles = vehicleRepository.findByOwner_IdOrderById(id).stream()
+                .map(VehicleSummary::of)
+                .toList();
+        OrderHistory.OrderPage recent = orderHistory.customerOrders(id, ScrollPosition.keyset(),
+                OrderCursors.sort("createdAt", "desc"), Limit.of(orders));
+        return ResponseEntity.ok(new CustomerOverview(customer.get(), vehicles, orderHistory.customerTotals(id),
+                ServiceOrderController.OrderWindow.of("createdAt", recent)));
+    }
+
     @PostMapping
     public ResponseEntity<Customer> create(@RequestBody Customer customer) {
         Customer saved = repo.save(customer);
         return ResponseEntity.ok(saved);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkCreateService.BulkResult> bulkCreate(HttpServletRequest request) throws IOException {
+        return BulkRequests.create(bulkService, request,
+                BulkCreateService.BulkTarget.of(Customer.class, CustomerController::invalid));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Customer> update(@PathVariable Long id, @RequestBody Customer updated) {
         return repo.findById(id).map(existing -> {
@@ -50,4 +98,17 @@ public class CustomerController {
         repo.deleteById(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static String invalid(Customer customer) {
+        if (BulkRequests.blank(customer.getName()) || BulkRequests.blank(customer.getEmail())) {
+            return "name and email are required";
+        }
+        return null;
+    }
+
+    public record CustomerOverview(Customer customer,
+                                   List<VehicleSummary> vehicles,
+                                   OrderHistory.Totals totals,
+                                   ServiceOrderController.OrderWindow recentOrders) {
+    }
 }
@@ -0,0 +1,39 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.service.OperationsDashboard;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Served from aggregates kept up to date by order mutations; no request scans orders or parts
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private static final int MAX_DAYS = 366;
+
+    private final OperationsDashboard dashboard;
+
+    public DashboardController(OperationsDashboard dashboard) {
+        this.dashboard = dashboard;
+    }
+
+    @GetMapping
+    public ResponseEntity<OperationsDashboard.Dashboard> get(@RequestParam(defaultValue = "30") int days) {
+        if (days < 1 || days > MAX_DAYS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(dashboard.read(days));
+    }
+
+    // Replaces the aggregates with freshly computed ones and reports where they differed
+    @PostMapping("/reconcile")
+    public OperationsDashboard.ReconciliationReport reconcile() {
+        return dashboard.reconcile();
+    }
+
+    @PostMapping("/rebuild")
+    public OperationsDashboard.Dashboard rebuild(@RequestParam(defaultValue = "30") int days) {
+        dashboard.rebuild();
+        return dashboard.read(Math.min(Math.max(days, 1), MAX_DAYS));
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.autoservice.controller;
+
+// Strong ETags carry the entity @Version; If-Match accepts "*", weak and strong tags
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Expected version of an If-Match header: null when there is none (or "*"), -1 when it
+    // cannot match any version
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.valueOf(tag);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    static boolean matches(String ifMatch, Long version) {
+        Long expected = expectedVersion(ifMatch);
+        return expected == null || expected.equals(version);
+    }
+}
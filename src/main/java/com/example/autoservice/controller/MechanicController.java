@@ -2,9 +2,14 @@ package com.example.autoservice.controller;
 
 import com.example.autoservice.model.Mechanic;
 import com.example.autoservice.repository.MechanicRepository;
+import com.example.autoservice.service.BulkCreateService;
+import com.example.autoservice.service.MechanicAssignments;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -12,8 +17,15 @@ import java.util.List;
 public class MechanicController {
 
     private final MechanicRepository repo;
+    private final MechanicAssignments assignments;
+    private final BulkCreateService bulkService;
 
-    public MechanicController(MechanicRepository repo) { this.repo = repo; }
+    public MechanicController(MechanicRepository repo, MechanicAssignments assignments,
+                              BulkCreateService bulkService) {
+        this.repo = repo;
+        this.assignments = assignments;
+        this.bulkService = bulkService;
+    }
 
     @GetMapping
     public List<Mechanic> getAll() { return repo.findAll(); }
@@ -23,18 +35,38 @@ public class MechanicController {
         return repo.findById(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // Open orders per mechanic, as used for automatic assignment
+    @GetMapping("/workload")
+    public List<Workload> getWorkload(@RequestParam(required = false) String branch) {
+        List<Mechanic> mechanics = branch != null ? repo.findByBranchIgnoreCase(branch.trim()) : repo.findAll();
+        return mechanics.stream()
+                .map(m -> new Workload(m.getId(), m.getName(), m.getBranch(), m.getSpecialization(),
+                        assignments.openOrders(m.getId())))
+                .toList();
+    }
+
     @PostMapping
     public ResponseEntity<Mechanic> create(@RequestBody Mechanic m) {
         Mechanic saved = repo.save(m);
+        assignments.mechanicSaved(saved);
         return ResponseEntity.ok(saved);
     }
 
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkCreateService.BulkResult> bulkCreate(HttpServletRequest request) throws IOException {
+        return BulkRequests.create(bulkService, request,
+                BulkCreateService.BulkTarget.of(Mechanic.class, MechanicController::invalid)
+                        .onCommitted(assignments::mechanicSaved));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Mechanic> update(@PathVariable Long id, @RequestBody Mechanic updated) {
         return repo.findById(id).map(existing -> {
             existing.setName(updated.getName());
             existing.setSpecialization(updated.getSpecialization());
+            existing.setBranch(updated.getBranch());
             repo.save(existing);
+            assignments.mechanicSaved(existing);
             return ResponseEntity.ok(existing);
         }).orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -43,6 +75,14 @@ public class MechanicController {
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         if (!repo.existsById(id)) return ResponseEntity.notFound().build();
         repo.deleteById(id);
+        assignments.mechanicRemoved(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static String invalid(Mechanic mechanic) {
+        return BulkRequests.blank(mechanic.getName()) ? "name is required" : null;
+    }
+
+    public record Workload(Long mechanicId, String name, String branch, String specialization, int openOrders) {
+    }
 }
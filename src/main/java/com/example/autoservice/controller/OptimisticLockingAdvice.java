@@ -0,0 +1,18 @@
+package com.example.autoservice.controller;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// A write that lost a version race (and was not retried, or ran out of retries) is reported
+// as 409, so the client reloads and decides again instead of silently overwriting
+@RestControllerAdvice
+public class OptimisticLockingAdvice {
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> conflict() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.dto.OrderSummary;
+import com.example.autoservice.service.OrderHistory;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// Keyset windows of order listings. A cursor is "<sort>|<sort value>|<id>" of the last order of
+// a window, base64url-encoded, so any listing sorted the same way can continue from it.
+final class OrderCursors {
+
+    private static final Set<String> SORT_PROPERTIES = Set.of("id", "createdAt");
+    private static final int MAX_WINDOW_SIZE = 500;
+
+    private OrderCursors() {
+    }
+
+    // Validates the listing parameters (400 when they are not supported) and runs the query
+    static ResponseEntity<ServiceOrderController.OrderWindow> window(String sort, String direction, int size,
+                                                                     String cursor, WindowQuery query) {
+        Sort order = sort(sort, direction);
+        if (order == null || size < 1 || size > MAX_WINDOW_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ScrollPosition position;
+        try {
+            position = cursor == null ? ScrollPosition.keyset() : decode(sort, cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        OrderHistory.OrderPage page = query.find(position, order, Limit.of(size));
+        return ResponseEntity.ok(ServiceOrderController.OrderWindow.of(sort, page));
+    }
+
+    // The window sort, or null when the property or direction is not supported. id breaks ties
+    // between orders created at the same instant.
+    static Sort sort(String property, String direction) {
+        if (!SORT_PROPERTIES.contains(property)) {
+            return null;
+        }
+        Sort.Direction sortDirection = Sort.Direction.fromOptionalString(direction).orElse(null);
+        if (sortDirection == null) {
+            return null;
+        }
+        return property.equals("id") ? Sort.by(sortDirection, "id") : Sort.by(sortDirection, property, "id");
+    }
+
+    static String encode(String sort, OrderSummary last) {
+        return encode(sort, sort.equals("id") ? "" : last.createdAt().toString(), last.id());
+    }
+
+    // Cursor of a listing that is always in ascending id order
+    static String encode(Long lastId) {
+        return encode("id", "", lastId);
+    }
+
+    private static String encode(String sort, String value, Long id) {
+        String raw = sort + "|" + value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The id a cursor of encode(Long) continues after
+    static long decodeId(String cursor) {
+        KeysetScrollPosition position = (KeysetScrollPosition) decode("id", cursor);
+        return (Long) position.getKeys().get("id");
+    }
+
+    static ScrollPosition decode(String sort, String cursor) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] fields = raw.split("\\|", -1);
+        if (fields.length != 3 || !fields[0].equals(sort)) {
+            throw new IllegalArgumentException("Cursor does not belong to sort " + sort);
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            if (!sort.equals("id")) {
+                keys.put(sort, Instant.parse(fields[1]));
+            }
+            keys.put("id", Long.valueOf(fields[2]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor", e);
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    @FunctionalInterface
+    interface WindowQuery {
+        OrderHistory.OrderPage find(ScrollPosition position, Sort sort, Limit limit);
+    }
+}
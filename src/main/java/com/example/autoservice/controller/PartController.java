@@ -2,21 +2,78 @@ package com.example.autoservice.controller;
 
 import com.example.autoservice.model.Part;
 import com.example.autoservice.repository.PartRepository;
+import com.example.autoservice.service.BulkCreateService;
+import com.example.autoservice.service.ChangeOutbox;
+import com.example.autoservice.service.DataExport;
+import com.example.autoservice.service.InventoryValuation;
+import com.example.autoservice.service.PartCache;
+import com.example.autoservice.service.PartImportService;
+import com.example.autoservice.service.PartRepricingService;
+import com.example.autoservice.service.PartRestockService;
+import com.example.autoservice.service.PartSearchService;
+import com.example.autoservice.service.StockReservations;
+import com.example.autoservice.service.StockService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/parts")
 public class PartController {
 
-    private final PartRepository repository;
+    private static final String NDJSON_VALUE = "application/x-ndjson";
 
-    public PartController(PartRepository repository) {
+    private final PartRepository repository;
+    private final PartSearchService searchService;
+    private final PartCache cache;
+    private final InventoryValuation valuation;
+    private final PartRepricingService repricingService;
+    private final PartRestockService restockService;
+    private final StockService stockService;
+    private final StockReservations reservations;
+    private final ChangeOutbox outbox;
+    private final ObjectMapper objectMapper;
+    private final BulkCreateService bulkService;
+    private final PartImportService importService;
+    private final DataExport dataExport;
+
+    public PartController(PartRepository repository, PartSearchService searchService, PartCache cache,
+                          InventoryValuation valuation, PartRepricingService repricingService,
+                          PartRestockService restockService, StockService stockService,
+                          StockReservations reservations, ChangeOutbox outbox, ObjectMapper objectMapper,
+                          BulkCreateService bulkService, PartImportService importService, DataExport dataExport) {
         this.repository = repository;
+        this.searchService = searchService;
+        this.cache = cache;
+        this.valuation = valuation;
+        this.repricingService = repricingService;
+        this.restockService = restockService;
+        this.stockService = stockService;
+        this.reservations = reservations;
+        this.outbox = outbox;
+        this.objectMapper = objectMapper;
+        this.bulkService = bulkService;
+        this.importService = importService;
+        this.dataExport = dataExport;
     }
 
     @GetMapping
@@ -26,22 +83,43 @@ public class PartController {
 
     @GetMapping("/{id}")
     public ResponseEntity<Part> getById(@PathVariable Long id) {
-        return repository.findById(id)
-                .map(ResponseEntity::ok)
+        return cache.find(id)
+                .map(PartController::withTag)
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @PostMapping
+    @Transactional
     public ResponseEntity<Part> create(@RequestBody Part part) {
         // Set availability based on stock
         part.setIsAvailable(part.getStock() > 0);
-        Part saved = repository.save(part);
+        // Pooled ids defer the INSERT to commit; flush so a duplicate name or part number fails
+        // here, before the part reaches the search index
+        Part saved = repository.saveAndFlush(part);
+        outbox.stockChanged(saved);
+        searchService.index(saved);
         return ResponseEntity.ok(saved);
     }
 
+    // Same side effects as create: availability from stock, a stock change in the outbox and the
+    // search index, updated once the chunk of the part has committed
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkCreateService.BulkResult> bulkCreate(HttpServletRequest request) throws IOException {
+        return BulkRequests.create(bulkService, request,
+                BulkCreateService.BulkTarget.of(Part.class, PartController::invalid)
+                        .onSaved(outbox::stockChanged)
+                        .onCommitted(searchService::index));
+    }
+
+    // A concurrent change since the read is a 409; with If-Match an outdated client copy is a 412
     @PutMapping("/{id}")
-    public ResponseEntity<Part> update(@PathVariable Long id, @RequestBody Part updated) {
+    @Transactional
+    public ResponseEntity<Part> update(@PathVariable Long id, @RequestBody Part updated,
+                                       @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         return repository.findById(id).map(existing -> {
+            if (!EntityTags.matches(ifMatch, existing.getVersion())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<Part>build();
+            }
             existing.setName(updated.getName());
             existing.setPrice(updated.getPrice());
             existing.setStock(updated.getStock());
@@ -51,29 +129,39 @@ public class PartController {
             existing.setPartNumber(updated.getPartNumber());
             // Update availability based on stock
             existing.setIsAvailable(updated.getStock() > 0);
-            repository.save(existing);
-            return ResponseEntity.ok(existing);
+            Part saved = repository.saveAndFlush(existing);
+            outbox.stockChanged(saved);
+            searchService.index(saved);
+            return withTag(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         if (!repository.existsById(id)) {
             return ResponseEntity.notFound().build();
         }
         repository.deleteById(id);
+        outbox.partRemoved(id);
+        searchService.remove(id);
         return ResponseEntity.noContent().build();
     }
 
     // Business Operation 1: Update part stock quantity
     @PatchMapping("/{id}/stock")
-    public ResponseEntity<Part> updateStock(@PathVariable Long id, @RequestParam Integer quantity) {
+    @Transactional
+    public ResponseEntity<Part> updateStock(@PathVariable Long id, @RequestParam Integer quantity,
+                                            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         Optional<Part> partOpt = repository.findById(id);
         if (partOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
         Part part = partOpt.get();
+        if (!EntityTags.matches(ifMatch, part.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
 
         if (quantity < 0) {
             return ResponseEntity.badRequest().build();
@@ -82,96 +170,68 @@ public class PartController {
         part.setStock(quantity);
         part.setIsAvailable(quantity > 0);
 
-        Part saved = repository.save(part);
-        return ResponseEntity.ok(saved);
+        Part saved = repository.saveAndFlush(part);
+        outbox.stockChanged(saved);
+        return withTag(saved);
     }
 
     // Business Operation 2: Increase part stock
     @PostMapping("/{id}/stock/increase")
     public ResponseEntity<Part> increaseStock(@PathVariable Long id, @RequestParam Integer quantity) {
-        Optional<Part> partOpt = repository.findById(id);
-        if (partOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        if (quantity <= 0) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        Part part = partOpt.get();
-        part.increaseStock(quantity);
-
-        Part saved = repository.save(part);
-        return ResponseEntity.ok(saved);
+        return toResponse(stockService.increase(id, quantity));
     }
 
     // Business Operation 3: Decrease part stock
     @PostMapping("/{id}/stock/decrease")
     public ResponseEntity<Part> decreaseStock(@PathVariable Long id, @RequestParam Integer quantity) {
-        Optional<Part> partOpt = repository.findById(id);
-        if (partOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        Part part = partOpt.get();
-
-        try {
-            part.decreaseStock(quantity);
-        } catch (IllegalArgumentException | IllegalStateException e) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        Part saved = repository.save(part);
-        return ResponseEntity.ok(saved);
+        return toResponse(stockService.decrease(id, quantity));
     }
 
     // Business Operation 4: Get parts by category
     @GetMapping("/category/{category}")
-    public List<Part> getPartsByCategory(@PathVariable String category) {
-        return repository.findAll().stream()
-                .filter(part -> part.getCategory() != null && part.getCategory().equalsIgnoreCase(category))
-                .toList();
+    public Page<Part> getPartsByCategory(@PathVariable String category,
+                                         @PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        return repository.findByCategoryIgnoreCase(category, pageable);
     }
 
     // Business Operation 5: Get available parts (in stock)
     @GetMapping("/available")
-    public List<Part> getAvailableParts() {
-        return repository.findAll().stream()
-                .filter(Part::isInStock)
-                .toList();
+    public Page<Part> getAvailableParts(@PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        return repository.findByStockGreaterThan(0, pageable);
     }
 
     // Business Operation 6: Get low stock parts (stock less than threshold)
     @GetMapping("/low-stock")
-    public List<Part> getLowStockParts(@RequestParam(defaultValue = "5") Integer threshold) {
-        return repository.findAll().stream()
-                .filter(part -> part.getStock() <= threshold)
-                .toList();
+    public Page<Part> getLowStockParts(@RequestParam(defaultValue = "5") Integer threshold,
+                                       @PageableDefault(size = 50, sort = "stock") Pageable pageable) {
+        return repository.findByStockLessThanEqual(threshold, pageable);
     }
 
-    // Business Operation 7: Search parts by name
+    // Business Operation 7: Search parts by name, part number, manufacturer or description
     @GetMapping("/search")
-    public List<Part> searchPartsByName(@RequestParam String name) {
-        return repository.findAll().stream()
-                .filter(part -> part.getName().toLowerCase().contains(name.toLowerCase()))
-                .toList();
+    public Page<Part> searchPartsByName(@RequestParam String name,
+                                        @PageableDefault(size = 20) Pageable pageable) {
+        return searchService.search(name, pageable);
     }
 
     // Business Operation 8: Get parts by manufacturer
     @GetMapping("/manufacturer/{manufacturer}")
-    public List<Part> getPartsByManufacturer(@PathVariable String manufacturer) {
-        return repository.findAll().stream()
-                .filter(part -> part.getManufacturer() != null && part.getManufacturer().equalsIgnoreCase(manufacturer))
-                .toList();
+    public Page<Part> getPartsByManufacturer(@PathVariable String manufacturer,
+                                             @PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        return repository.findByManufacturerIgnoreCase(manufacturer, pageable);
     }
 
     // Business Operation 9: Update part price
     @PatchMapping("/{id}/price")
-    public ResponseEntity<Part> updatePrice(@PathVariable Long id, @RequestParam Double price) {
+    public ResponseEntity<Part> updatePrice(@PathVariable Long id, @RequestParam Double price,
+                                            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         Optional<Part> partOpt = repository.findById(id);
         if (partOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
+        if (!EntityTags.matches(ifMatch, partOpt.get().getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
 
         if (price <= 0) {
             return ResponseEntity.badRequest().build();
@@ -181,93 +241,171 @@ public class PartController {
         part.setPrice(price);
 
         Part saved = repository.save(part);
-        return ResponseEntity.ok(saved);
+        return withTag(saved);
     }
 
     // Business Operation 10: Get total inventory value
     @GetMapping("/inventory/value")
     public ResponseEntity<Double> getTotalInventoryValue() {
-        double totalValue = repository.findAll().stream()
-                .mapToDouble(Part::getTotalValue)
-                .sum();
-        return ResponseEntity.ok(totalValue);
+        return ResponseEntity.ok(valuation.getTotalValue());
+    }
+
+    @GetMapping("/inventory/value/categories")
+    public Map<String, Double> getInventoryValueByCategory() {
+        return valuation.getValueByCategory();
+    }
+
+    @GetMapping("/inventory/value/manufacturers")
+    public Map<String, Double> getInventoryValueByManufacturer() {
+        return valuation.getValueByManufacturer();
+    }
+
+    @PostMapping("/inventory/value/reconcile")
+    public InventoryValuation.ReconciliationReport reconcileInventoryValue() {
+        return valuation.reconcile();
     }
 
     // Business Operation 11: Bulk update part prices by category
     @PutMapping("/category/{category}/price")
-    @Transactional
-    public ResponseEntity<List<Part>> updatePricesByCategory(
+    public ResponseEntity<PartRepricingService.RepricingResult> updatePricesByCategory(
             @PathVariable String category,
-            @RequestParam Double percentageChange) {
+            @RequestParam Double percentageChange,
+            @RequestParam(defaultValue = "CENTS") PartRepricingService.PriceRounding rounding,
+            @RequestParam(defaultValue = "false") boolean dryRun) {
 
-        List<Part> parts = repository.findAll().stream()
-                .filter(part -> part.getCategory() != null && part.getCategory().equalsIgnoreCase(category))
-                .toList();
-
-        if (parts.isEmpty()) {
-            return ResponseEntity.notFound().build();
+        if (percentageChange <= -100) {
+            return ResponseEntity.badRequest().build();
         }
 
-        for (Part part : parts) {
-            double newPrice = part.getPrice() * (1 + percentageChange / 100);
-            part.setPrice(newPrice);
-            repository.save(part);
+        PartRepricingService.RepricingResult result =
+                repricingService.reprice(category, percentageChange, rounding, dryRun);
+        if (result.matched() == 0) {
+            return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok(parts);
+        return ResponseEntity.ok(result);
     }
 
     // Business Operation 12: Get part categories
     @GetMapping("/categories")
     public List<String> getPartCategories() {
-        return repository.findAll().stream()
-                .map(Part::getCategory)
-                .distinct()
-                .toList();
+        return cache.categories();
     }
 
-    // Business Operation 13: Check part availability
+    @GetMapping("/cache/stats")
+    public Map<String, PartCache.Statistics> getCacheStatistics() {
+        return cache.statistics();
+    }
+
+    // Business Operation 13: Check part availability (units held by open orders are not free)
     @GetMapping("/{id}/availability")
-    public ResponseEntity<String> checkAvailability(@PathVariable Long id) {
-        Optional<Part> partOpt = repository.findById(id);
+    public ResponseEntity<PartAvailability> checkAvailability(@PathVariable Long id) {
+        Optional<Part> partOpt = cache.find(id);
         if (partOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
         Part part = partOpt.get();
-        String status = part.isInStock() ?
-                "IN_STOCK - " + part.getStock() + " units available" :
-                "OUT_OF_STOCK";
+        int onHand = part.getStock();
+        int reserved = reservations.reserved(id);
+        int free = Math.max(onHand - reserved, 0);
+        String status = free > 0 ? "IN_STOCK" : "OUT_OF_STOCK";
 
-        return ResponseEntity.ok(status);
+        return ResponseEntity.ok(new PartAvailability(id, onHand, reserved, free, status));
     }
 
     // Business Operation 14: Restock multiple parts
-    @PostMapping("/bulk/restock")
-    @Transactional
-    public ResponseEntity<List<Part>> bulkRestock(@RequestBody List<PartRestockRequest> restockRequests) {
-        List<Part> updatedParts = restockRequests.stream()
-                .map(request -> {
-                    Optional<Part> partOpt = repository.findById(request.getPartId());
-                    if (partOpt.isPresent()) {
-                        Part part = partOpt.get();
-                        part.increaseStock(request.getQuantity());
-                        return repository.save(part);
-                    }
-                    return null;
-                })
-                .filter(part -> part != null)
-                .toList();
-
-        return ResponseEntity.ok(updatedParts);
+    @PostMapping(value = "/bulk/restock", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<PartRestockService.RestockResult>> bulkRestock(
+            @RequestBody List<PartRestockRequest> restockRequests) {
+        List<PartRestockService.RestockLine> lines = new ArrayList<>(restockRequests.size());
+        for (int i = 0; i < restockRequests.size(); i++) {
+            PartRestockRequest request = restockRequests.get(i);
+            lines.add(new PartRestockService.RestockLine(i + 1, request.getPartId(), request.getQuantity()));
+        }
+        return ResponseEntity.ok(restockService.restock(lines));
+    }
+
+    // Streamed delivery (NDJSON or CSV "partId,quantity"), answered with one NDJSON result per line
+    @PostMapping(value = "/bulk/restock", consumes = {NDJSON_VALUE, "text/csv"}, produces = NDJSON_VALUE)
+    public void bulkRestockStream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean csv = request.getContentType().startsWith("text/csv");
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        PrintWriter writer = response.getWriter();
+        restockService.restock(request.getReader(), csv, result -> {
+            try {
+                writer.write(objectMapper.writeValueAsString(result));
+                writer.write('\n');
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    // Whole catalog as CSV or NDJSON, written while it is read
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response) throws IOException {
+        DataExport.Format exportFormat = DataExport.Format.parse(format);
+        if (exportFormat == null) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"parts." + exportFormat.extension() + "\"");
+        dataExport.exportParts(exportFormat, response.getWriter());
+    }
+
+    // Upsert by partNumber from a price list (NDJSON, or CSV with a header such as the export's),
+    // answered with one NDJSON result per line
+    @PostMapping(value = "/import", consumes = {NDJSON_VALUE, "text/csv"}, produces = NDJSON_VALUE)
+    public void importParts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean csv = request.getContentType().startsWith("text/csv");
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        PrintWriter writer = response.getWriter();
+        AtomicBoolean written = new AtomicBoolean();
+        try {
+            importService.importParts(request.getReader(), csv, result -> {
+                written.set(true);
+                try {
+                    writer.write(objectMapper.writeValueAsString(result));
+                    writer.write('\n');
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            // A CSV header without partNumber, found before any line is applied
+            if (written.get()) {
+                throw e;
+            }
+            response.reset();
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        writer.flush();
     }
 
     // Business Operation 15: Get parts with price range
     @GetMapping("/price-range")
-    public List<Part> getPartsByPriceRange(@RequestParam Double minPrice, @RequestParam Double maxPrice) {
-        return repository.findAll().stream()
-                .filter(part -> part.getPrice() >= minPrice && part.getPrice() <= maxPrice)
-                .toList();
+    public Page<Part> getPartsByPriceRange(@RequestParam Double minPrice, @RequestParam Double maxPrice,
+                                           @PageableDefault(size = 50, sort = "price") Pageable pageable) {
+        return repository.findByPriceBetween(minPrice, maxPrice, pageable);
+    }
+
+    private static ResponseEntity<Part> toResponse(StockService.StockUpdate update) {
+        return switch (update.status()) {
+            case UPDATED -> withTag(update.part());
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case INSUFFICIENT_STOCK, INVALID_QUANTITY -> ResponseEntity.badRequest().build();
+        };
+    }
+
+    private static ResponseEntity<Part> withTag(Part part) {
+        return ResponseEntity.ok().eTag(EntityTags.of(part.getVersion())).body(part);
     }
 
     // Request DTO for bulk restock operation
@@ -291,4 +429,20 @@ public class PartController {
             this.quantity = quantity;
         }
     }
-}
\ No newline at end of file
+
+    private static String invalid(Part part) {
+        if (BulkRequests.blank(part.getName()) || BulkRequests.blank(part.getCategory())
+                || part.getPrice() == null || part.getStock() == null) {
+            return "name, category, price and stock are required";
+        }
+        if (part.getPrice() < 0 || part.getStock() < 0) {
+            return "price and stock cannot be negative";
+        }
+        // Availability follows stock, as in create; it has to be set before the part is persisted
+        part.setIsAvailable(part.getStock() > 0);
+        return null;
+    }
+
+    public record PartAvailability(Long partId, int onHand, int reserved, int free, String status) {
+    }
+}
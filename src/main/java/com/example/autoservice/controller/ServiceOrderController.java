@@ -1,262 +1,386 @@
 package com.example.autoservice.controller;
 
+import com.example.autoservice.dto.OrderSummary;
+import com.example.autoservice.model.OrderLine;
 import com.example.autoservice.model.ServiceOrder;
 import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.ArchivedOrderRepository;
 import com.example.autoservice.repository.ServiceOrderRepository;
-import com.example.autoservice.repository.PartRepository;
+import com.example.autoservice.service.DataExport;
+import com.example.autoservice.service.OrderHistory;
+import com.example.autoservice.service.MechanicAssignments;
+import com.example.autoservice.service.OperationsDashboard;
+import com.example.autoservice.service.OrderArchiver;
+import com.example.autoservice.service.OrderEventLog;
+import com.example.autoservice.service.PartCache;
+import com.example.autoservice.service.ServiceOrderService;
+import com.example.autoservice.service.StockReservations;
+import com.example.autoservice.service.StockService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/orders")
 public class ServiceOrderController {
 
-    private final ServiceOrderRepository repository;
-    private final PartRepository partRepository;
+    private static final int MAX_STATUS_BATCH = 1000;
+    private static final int MAX_TIMELINE_PAGE = 1000;
 
-    public ServiceOrderController(ServiceOrderRepository repository, PartRepository partRepository) {
+    private final ServiceOrderRepository repository;
+    private final ServiceOrderService orderService;
+    private final OrderEventLog eventLog;
+    private final PartCache partCache;
+    private final StockService stockService;
+    private final StockReservations reservations;
+    private final MechanicAssignments assignments;
+    private final OperationsDashboard dashboard;
+    private final ArchivedOrderRepository archiveRepository;
+    private final OrderHistory history;
+    private final OrderArchiver archiver;
+    private final DataExport dataExport;
+
+    public ServiceOrderController(ServiceOrderRepository repository, ServiceOrderService orderService,
+                                  OrderEventLog eventLog, PartCache partCache,
+                                  StockService stockService, StockReservations reservations,
+                                  MechanicAssignments assignments, OperationsDashboard dashboard,
+                                  ArchivedOrderRepository archiveRepository, OrderHistory history,
+                                  OrderArchiver archiver, DataExport dataExport) {
         this.repository = repository;
-        this.partRepository = partRepository;
+        this.orderService = orderService;
+        this.eventLog = eventLog;
+        this.partCache = partCache;
+        this.stockService = stockService;
+        this.reservations = reservations;
+        this.assignments = assignments;
+        this.dashboard = dashboard;
+        this.archiveRepository = archiveRepository;
+        this.history = history;
+        this.archiver = archiver;
+        this.dataExport = dataExport;
     }
 
     @GetMapping
-    public List<ServiceOrder> getAll() {
-        return repository.findAll();
+    public Page<OrderSummary> getAll(@PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        return repository.findAllBy(pageable).map(OrderSummary::of);
     }
 
+    // Archived orders are served as the summary they were archived with
     @GetMapping("/{id}")
-    public ResponseEntity<ServiceOrder> getById(@PathVariable Long id) {
-        return repository.findById(id)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<?> getById(@PathVariable Long id) {
+        Optional<ServiceOrder> order = repository.findById(id);
+        if (order.isPresent()) {
+            return withTag(order.get());
+        }
+        return archiveRepository.findById(id)
+                .<ResponseEntity<?>>map(archived -> ResponseEntity.ok()
+                        .eTag(EntityTags.of(archived.getVersion()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(archived.getDocument()))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // An order without a mechanic goes to the least loaded one of the branch when a branch or
+    // specialization is given; it stays unassigned if the branch has nobody
     @PostMapping
-    public ServiceOrder create(@RequestBody ServiceOrder order) {
-        return repository.save(order);
+    @Transactional
+    public ResponseEntity<ServiceOrder> create(@RequestBody ServiceOrder order,
+                                               @RequestParam(required = false) String branch,
+                                               @RequestParam(required = false) String specialization) {
+        // Lines given on creation only name part and quantity; snapshots come from the catalog
+        List<OrderLine> requested = new ArrayList<>(order.getLines());
+        order.clearLines();
+        Map<Long, Part> parts = new HashMap<>();
+        for (OrderLine line : requested) {
+            Optional<Part> part = line.getPartId() != null ? partCache.find(line.getPartId()) : Optional.empty();
+            if (part.isEmpty() || line.getQuantity() <= 0) {
+                return ResponseEntity.badRequest().build();
+            }
+            parts.put(part.get().getId(), part.get());
+            order.addPart(part.get(), line.getQuantity());
+        }
+        if (order.getMechanic() == null && (branch != null || specialization != null) && !order.isCompleted()) {
+            assignments.assign(order, branch, specialization);
+        } else {
+            assignments.orderChanged(null, false, order);
+        }
+        ServiceOrder saved = repository.save(order);
+        eventLog.created(saved);
+        dashboard.changed(null, saved);
+
+        // Parts of an open order are held like parts added later
+        if (!saved.isCompleted()) {
+            for (Map.Entry<Long, Integer> entry : saved.quantitiesByPart().entrySet()) {
+                Part part = parts.get(entry.getKey());
+                if (!reservations.reserve(saved.getId(), part.getId(), entry.getValue(), part.getStock())) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return ResponseEntity.badRequest().build();
+                }
+            }
+        }
+        return ResponseEntity.ok(saved);
     }
 
+    // Replaces every field, so it is never retried: a concurrent change since the read is a 409,
+    // and If-Match makes the client's own read the baseline (412 when it is outdated)
     @PutMapping("/{id}")
-    public ResponseEntity<ServiceOrder> update(@PathVariable Long id, @RequestBody ServiceOrder updated) {
+    @Transactional
+    public ResponseEntity<ServiceOrder> update(@PathVariable Long id, @RequestBody ServiceOrder updated,
+                                               @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         Optional<ServiceOrder> optional = repository.findById(id);
         if (optional.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
         ServiceOrder existing = optional.get();
+        if (!EntityTags.matches(ifMatch, existing.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        Long previousMechanic = MechanicAssignments.mechanicId(existing);
+        boolean wasOpen = !existing.isCompleted();
+        OperationsDashboard.OrderFigures before = dashboard.figures(existing);
         existing.setCustomer(updated.getCustomer());
         existing.setVehicle(updated.getVehicle());
         existing.setMechanic(updated.getMechanic());
-        existing.setParts(updated.getParts());
         existing.setRequiredTasks(updated.getRequiredTasks());
         existing.setCompletedTasks(updated.getCompletedTasks());
         existing.setLaborCost(updated.getLaborCost());
         existing.setDescription(updated.getDescription());
         existing.setCompleted(updated.isCompleted());
+        assignments.orderChanged(previousMechanic, wasOpen, existing);
+        dashboard.changed(before, existing);
+        eventLog.updated(existing);
 
-        return ResponseEntity.ok(repository.save(existing));
+        return withTag(repository.saveAndFlush(existing));
     }
 
+    // The order row goes away, its event stream stays
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<Void> delete(@PathVariable Long id) {
-        if (!repository.existsById(id)) {
+        Optional<ServiceOrder> order = repository.findById(id);
+        if (order.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
-        repository.deleteById(id);
+        eventLog.deleted(order.get());
+        dashboard.changed(dashboard.figures(order.get()), null);
+        repository.delete(order.get());
+        reservations.releaseAll(id);
+        assignments.orderRemoved(order.get());
         return ResponseEntity.noContent().build();
     }
 
     @PutMapping("/{id}/close")
-    public ResponseEntity<ServiceOrder> closeOrder(@PathVariable Long id) {
+    @Transactional
+    public ResponseEntity<ServiceOrder> closeOrder(@PathVariable Long id,
+                                                   @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         Optional<ServiceOrder> optionalOrder = repository.findById(id);
         if (optionalOrder.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
         ServiceOrder order = optionalOrder.get();
+        if (!EntityTags.matches(ifMatch, order.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
 
         if (!order.canBeClosed()) {
             return ResponseEntity.badRequest().build();
         }
 
+        // Commit the held parts to stock; units whose hold already expired are held again first
+        for (Map.Entry<Long, Integer> entry : order.quantitiesByPart().entrySet()) {
+            Long partId = entry.getKey();
+            int quantity = entry.getValue();
+            int missing = quantity - reservations.held(id, partId);
+            if (missing > 0) {
+                Optional<Part> part = partCache.find(partId);
+                if (part.isEmpty() || !reservations.reserve(id, partId, missing, part.get().getStock())) {
+                    TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                    return ResponseEntity.badRequest().build();
+                }
+            }
+            if (!stockService.consumeHeld(partId, quantity).isUpdated()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        reservations.releaseAll(id);
+
+        OperationsDashboard.OrderFigures before = dashboard.figures(order);
         order.setCompleted(true);
-        repository.save(order);
-        return ResponseEntity.ok(order);
+        assignments.orderChanged(MechanicAssignments.mechanicId(order), true, order);
+        dashboard.changed(before, order);
+        eventLog.closed(order);
+        repository.saveAndFlush(order);
+        return withTag(order);
     }
 
     // Business Operation 1: Add part to service order
     @PostMapping("/{orderId}/parts/{partId}")
-    @Transactional
-    public ResponseEntity<ServiceOrder> addPartToOrder(@PathVariable Long orderId, @PathVariable Long partId) {
-        Optional<ServiceOrder> orderOpt = repository.findById(orderId);
-        Optional<Part> partOpt = partRepository.findById(partId);
-
-        if (orderOpt.isEmpty() || partOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        ServiceOrder order = orderOpt.get();
-        Part part = partOpt.get();
-
-        if (order.isCompleted()) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        if (part.getStock() <= 0) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        // Decrease part stock
-        part.setStock(part.getStock() - 1);
-        partRepository.save(part);
-
-        // Add part to order
-        if (!order.getParts().contains(part)) {
-            order.getParts().add(part);
-        }
-
-        ServiceOrder savedOrder = repository.save(order);
-        return ResponseEntity.ok(savedOrder);
+    public ResponseEntity<ServiceOrder> addPartToOrder(@PathVariable Long orderId, @PathVariable Long partId,
+                                                       @RequestParam(defaultValue = "1") int quantity,
+                                                       @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return toResponse(orderService.apply(orderId, ServiceOrderService.Operation.addPart(partId, quantity),
+                EntityTags.expectedVersion(ifMatch)));
     }
 
     // Business Operation 2: Complete a task in service order
     @PostMapping("/{orderId}/complete-task")
-    public ResponseEntity<ServiceOrder> completeTask(@PathVariable Long orderId, @RequestBody String task) {
-        Optional<ServiceOrder> orderOpt = repository.findById(orderId);
-        if (orderOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        ServiceOrder order = orderOpt.get();
-
-        if (order.isCompleted()) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        // Check if task exists in required tasks
-        if (!order.getRequiredTasks().contains(task)) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        // Check if task is already completed
-        if (order.getCompletedTasks().contains(task)) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        // Add task to completed tasks
-        order.getCompletedTasks().add(task);
-
-        ServiceOrder savedOrder = repository.save(order);
-        return ResponseEntity.ok(savedOrder);
+    public ResponseEntity<ServiceOrder> completeTask(@PathVariable Long orderId, @RequestBody String task,
+                                                     @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return toResponse(orderService.apply(orderId, ServiceOrderService.Operation.completeTask(task),
+                EntityTags.expectedVersion(ifMatch)));
     }
 
     // Business Operation 3: Get total cost of service order
     @GetMapping("/{orderId}/total-cost")
     public ResponseEntity<Double> getTotalCost(@PathVariable Long orderId) {
-        Optional<ServiceOrder> orderOpt = repository.findById(orderId);
-        if (orderOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        ServiceOrder order = orderOpt.get();
-        double totalCost = order.getTotalCost();
-
-        return ResponseEntity.ok(totalCost);
+        return repository.findTotalCost(orderId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
-    // Business Operation 4: Add required task to service order
+    // Business Operation 4: Add required task to service order (no change if already present)
     @PostMapping("/{orderId}/required-tasks")
-    public ResponseEntity<ServiceOrder> addRequiredTask(@PathVariable Long orderId, @RequestBody String task) {
-        Optional<ServiceOrder> orderOpt = repository.findById(orderId);
-        if (orderOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        ServiceOrder order = orderOpt.get();
-
-        if (order.isCompleted()) {
-            return ResponseEntity.badRequest().build();
-        }
-
-        // Add task to required tasks if not already present
-        if (!order.getRequiredTasks().contains(task)) {
-            order.getRequiredTasks().add(task);
-        }
-
-        ServiceOrder savedOrder = repository.save(order);
-        return ResponseEntity.ok(savedOrder);
+    public ResponseEntity<ServiceOrder> addRequiredTask(@PathVariable Long orderId, @RequestBody String task,
+                                                        @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return toResponse(orderService.apply(orderId, ServiceOrderService.Operation.addRequiredTask(task),
+                EntityTags.expectedVersion(ifMatch)));
     }
 
-    // Business Operation 5: Get all active (incomplete) service orders
+    // Business Operation 5: Get all active (incomplete) service orders, oldest first by default.
+    // Pages are keyset windows: pass the returned nextCursor to get the following page.
     @GetMapping("/active")
-    public List<ServiceOrder> getActiveOrders() {
-        return repository.findAll().stream()
-                .filter(order -> !order.isCompleted())
-                .toList();
+    public ResponseEntity<OrderWindow> getActiveOrders(@RequestParam(defaultValue = "createdAt") String sort,
+                                                       @RequestParam(defaultValue = "asc") String direction,
+                                                       @RequestParam(defaultValue = "50") int size,
+                                                       @RequestParam(required = false) String cursor) {
+        return OrderCursors.window(sort, direction, size, cursor,
+                (position, order, limit) -> page(repository.findByCompletedFalse(position, order, limit)));
     }
 
-    // Business Operation 6: Get service orders by customer
+    // Business Operation 6: Get service orders by customer, newest first by default, archived
+    // orders included
     @GetMapping("/customer/{customerId}")
-    public List<ServiceOrder> getOrdersByCustomer(@PathVariable Long customerId) {
-        return repository.findAll().stream()
-                .filter(order -> order.getCustomer() != null && order.getCustomer().getId().equals(customerId))
-                .toList();
+    public ResponseEntity<OrderWindow> getOrdersByCustomer(@PathVariable Long customerId,
+                                                           @RequestParam(defaultValue = "createdAt") String sort,
+                                                           @RequestParam(defaultValue = "desc") String direction,
+                                                           @RequestParam(defaultValue = "50") int size,
+                                                           @RequestParam(required = false) String cursor) {
+        return OrderCursors.window(sort, direction, size, cursor,
+                (position, order, limit) -> history.customerOrders(customerId, position, order, limit));
     }
 
-    // Business Operation 7: Update labor cost
-    @PatchMapping("/{orderId}/labor-cost")
-    public ResponseEntity<ServiceOrder> updateLaborCost(@PathVariable Long orderId, @RequestParam Double laborCost) {
-        Optional<ServiceOrder> orderOpt = repository.findById(orderId);
-        if (orderOpt.isEmpty()) {
-            return ResponseEntity.notFound().build();
-        }
-
-        ServiceOrder order = orderOpt.get();
-
-        if (order.isCompleted()) {
+    // Archives completed orders now instead of waiting for the scheduled run; closedBefore
+    // (ISO-8601, e.g. P30D) overrides autoservice.archive.closed-before
+    @PostMapping("/archive")
+    public ResponseEntity<OrderArchiver.ArchiveRun> archive(@RequestParam(required = false) Duration closedBefore) {
+        if (closedBefore != null && closedBefore.isNegative()) {
             return ResponseEntity.badRequest().build();
         }
+        return ResponseEntity.ok(closedBefore != null ? archiver.run(closedBefore) : archiver.run());
+    }
 
-        if (laborCost < 0) {
-            return ResponseEntity.badRequest().build();
+    // Current and archived orders created in [from, to) as CSV or NDJSON, written while they are
+    // read; from and to default to everything created so far
+    @GetMapping("/export")
+    public void export(@RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to,
+                       @RequestParam(defaultValue = "ndjson") String format,
+                       HttpServletResponse response) throws IOException {
+        DataExport.Format exportFormat = DataExport.Format.parse(format);
+        if (exportFormat == null || (from != null && to != null && !from.isBefore(to))) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
         }
+        response.setContentType(exportFormat.contentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + exportFormat.extension() + "\"");
+        dataExport.exportOrders(from != null ? from : Instant.EPOCH, to != null ? to : Instant.now(),
+                exportFormat, response.getWriter());
+    }
 
-        order.setLaborCost(laborCost);
-        ServiceOrder savedOrder = repository.save(order);
-        return ResponseEntity.ok(savedOrder);
+    // Business Operation 7: Update labor cost
+    @PatchMapping("/{orderId}/labor-cost")
+    public ResponseEntity<ServiceOrder> updateLaborCost(@PathVariable Long orderId, @RequestParam Double laborCost,
+                                                        @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return toResponse(orderService.apply(orderId, ServiceOrderService.Operation.updateLaborCost(laborCost),
+                EntityTags.expectedVersion(ifMatch)));
     }
 
-    // Business Operation 8: Remove part from service order
+    // Business Operation 8: Remove part from service order (all of its units unless a quantity is given)
     @DeleteMapping("/{orderId}/parts/{partId}")
-    @Transactional
-    public ResponseEntity<ServiceOrder> removePartFromOrder(@PathVariable Long orderId, @PathVariable Long partId) {
-        Optional<ServiceOrder> orderOpt = repository.findById(orderId);
-        Optional<Part> partOpt = partRepository.findById(partId);
+    public ResponseEntity<ServiceOrder> removePartFromOrder(@PathVariable Long orderId, @PathVariable Long partId,
+                                                            @RequestParam(required = false) Integer quantity,
+                                                            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return toResponse(orderService.apply(orderId, ServiceOrderService.Operation.removePart(partId, quantity),
+                EntityTags.expectedVersion(ifMatch)));
+    }
 
-        if (orderOpt.isEmpty() || partOpt.isEmpty()) {
+    // Business Operation 8b: Several operations on one order, validated like the single endpoints
+    // above and applied with one load and one flush. With atomic=true a rejected operation
+    // discards the whole batch.
+    @PostMapping("/{orderId}/batch")
+    public ResponseEntity<ServiceOrderService.BatchResult> applyBatch(
+            @PathVariable Long orderId,
+            @RequestParam(defaultValue = "false") boolean atomic,
+            @RequestBody List<ServiceOrderService.Operation> operations,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        if (operations.isEmpty() || operations.size() > ServiceOrderService.MAX_OPERATIONS) {
+            return ResponseEntity.badRequest().build();
+        }
+        ServiceOrderService.BatchResult result =
+                orderService.applyBatch(orderId, operations, atomic, EntityTags.expectedVersion(ifMatch));
+        if (!result.found()) {
             return ResponseEntity.notFound().build();
         }
+        if (result.isStale()) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(result);
+        }
+        return ResponseEntity.ok(result);
+    }
 
-        ServiceOrder order = orderOpt.get();
-        Part part = partOpt.get();
-
-        if (order.isCompleted()) {
+    // Business Operation 8c: Operations on several orders in one transaction
+    @PostMapping("/batch")
+    public ResponseEntity<List<ServiceOrderService.BatchResult>> applyBatches(
+            @RequestParam(defaultValue = "false") boolean atomic,
+            @RequestBody List<ServiceOrderService.OrderOperations> batches) {
+        int operations = 0;
+        for (ServiceOrderService.OrderOperations batch : batches) {
+            if (batch.orderId() == null || batch.operations() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+            operations += batch.operations().size();
+        }
+        if (batches.isEmpty() || operations > ServiceOrderService.MAX_OPERATIONS) {
             return ResponseEntity.badRequest().build();
         }
-
-        // Remove part from order
-        order.getParts().remove(part);
-
-        // Increase part stock
-        part.setStock(part.getStock() + 1);
-        partRepository.save(part);
-
-        ServiceOrder savedOrder = repository.save(order);
-        return ResponseEntity.ok(savedOrder);
+        return ResponseEntity.ok(orderService.applyBatches(batches, atomic));
     }
 
     // Business Operation 9: Get service order completion status
@@ -273,8 +397,8 @@ public class ServiceOrderController {
             return ResponseEntity.ok("COMPLETED");
         }
 
-        int totalTasks = order.getRequiredTasks().size();
-        int completedTasks = order.getCompletedTasks().size();
+        int totalTasks = order.getRequiredTaskCount();
+        int completedTasks = order.getCompletedTaskCount();
         double completionPercentage = totalTasks > 0 ? (completedTasks * 100.0) / totalTasks : 0;
 
         String status = String.format("IN_PROGRESS - %.1f%% complete (%d/%d tasks)",
@@ -283,32 +407,175 @@ public class ServiceOrderController {
         return ResponseEntity.ok(status);
     }
 
+    // Business Operation 9b: Cost and completion status of many orders at once, either the given
+    // ids or (active=true) the open orders, computed by a single aggregate query. Open orders come
+    // in id order, MAX_STATUS_BATCH at a time; pass the returned nextCursor to get the next batch.
+    @GetMapping("/status")
+    public ResponseEntity<OrderStatusBatch> getStatuses(@RequestParam(required = false) List<Long> ids,
+                                                        @RequestParam(defaultValue = "false") boolean active,
+                                                        @RequestParam(required = false) String cursor) {
+        List<ServiceOrderRepository.StatusView> views;
+        String nextCursor = null;
+        if (ids != null && !ids.isEmpty()) {
+            if (active || cursor != null || ids.size() > MAX_STATUS_BATCH) {
+                return ResponseEntity.badRequest().build();
+            }
+            views = repository.findStatusByIdIn(new LinkedHashSet<>(ids));
+        } else if (active) {
+            long after;
+            try {
+                after = cursor == null ? 0 : OrderCursors.decodeId(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+            // One more than a batch tells whether there is another one
+            views = repository.findStatusOfOpenOrdersAfter(after, Limit.of(MAX_STATUS_BATCH + 1));
+            if (views.size() > MAX_STATUS_BATCH) {
+                views = views.subList(0, MAX_STATUS_BATCH);
+                nextCursor = OrderCursors.encode(views.get(MAX_STATUS_BATCH - 1).getId());
+            }
+        } else {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<OrderStatus> statuses = views.stream().map(OrderStatus::of).toList();
+        List<Long> missing = List.of();
+        if (ids != null && statuses.size() < new LinkedHashSet<>(ids).size()) {
+            Set<Long> found = new HashSet<>();
+            statuses.forEach(status -> found.add(status.orderId()));
+            missing = ids.stream().distinct().filter(id -> !found.contains(id)).toList();
+        }
+        return ResponseEntity.ok(new OrderStatusBatch(statuses, missing, nextCursor));
+    }
+
+    // Business Operation 9c: Event history of an order, oldest first, in pages of up to
+    // MAX_TIMELINE_PAGE events after the given sequence. Also available after the order was deleted.
+    @GetMapping("/{orderId}/timeline")
+    public ResponseEntity<List<OrderEventLog.TimelineEntry>> getTimeline(@PathVariable Long orderId,
+                                                                         @RequestParam(defaultValue = "0") long after,
+                                                                         @RequestParam(defaultValue = "200") int limit) {
+        if (after < 0 || limit < 1 || limit > MAX_TIMELINE_PAGE) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<OrderEventLog.TimelineEntry> timeline = eventLog.timeline(orderId, after, limit);
+        if (timeline.isEmpty() && after == 0) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(timeline);
+    }
+
+    // Business Operation 9d: Order state rebuilt from its events, as of the given event or the latest one
+    @GetMapping("/{orderId}/timeline/state")
+    public ResponseEntity<OrderEventLog.ReplayedState> getReplayedState(@PathVariable Long orderId,
+                                                                        @RequestParam(required = false) Long at) {
+        if (at != null && at < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        return eventLog.stateAt(orderId, at)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Gives an open order to the least loaded mechanic of the branch, preferring the specialization;
+    // 400 when the branch has no mechanics
+    @PutMapping("/{orderId}/assign")
+    @Transactional
+    public ResponseEntity<ServiceOrder> assignMechanic(@PathVariable Long orderId,
+                                                       @RequestParam(required = false) String branch,
+                                                       @RequestParam(required = false) String specialization,
+                                                       @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        Optional<ServiceOrder> optional = repository.findById(orderId);
+        if (optional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        ServiceOrder order = optional.get();
+        if (!EntityTags.matches(ifMatch, order.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        OperationsDashboard.OrderFigures before = dashboard.figures(order);
+        if (order.isCompleted() || assignments.assign(order, branch, specialization).isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        dashboard.changed(before, order);
+        eventLog.mechanicAssigned(order);
+        return withTag(repository.saveAndFlush(order));
+    }
+
     // Business Operation 10: Cancel service order
     @PutMapping("/{orderId}/cancel")
     @Transactional
-    public ResponseEntity<ServiceOrder> cancelOrder(@PathVariable Long orderId) {
+    public ResponseEntity<ServiceOrder> cancelOrder(@PathVariable Long orderId,
+                                                    @RequestHeader(value = "If-Match", required = false) String ifMatch) {
         Optional<ServiceOrder> orderOpt = repository.findById(orderId);
         if (orderOpt.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
         ServiceOrder order = orderOpt.get();
+        if (!EntityTags.matches(ifMatch, order.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
 
         if (order.isCompleted()) {
             return ResponseEntity.badRequest().build();
         }
 
-        // Return parts to stock
-        for (Part part : order.getParts()) {
-            part.setStock(part.getStock() + 1);
-            partRepository.save(part);
+        // Release the held parts and the mechanic, and clear the parts from the order
+        reservations.releaseAll(orderId);
+        order.clearLines();
+        order.setCompleted(false);
+        OperationsDashboard.OrderFigures before = dashboard.figures(order);
+        Long mechanicId = MechanicAssignments.mechanicId(order);
+        order.setMechanic(null);
+        assignments.orderChanged(mechanicId, true, order);
+        dashboard.changed(before, order);
+        eventLog.cancelled(order);
+
+        ServiceOrder savedOrder = repository.saveAndFlush(order);
+        return withTag(savedOrder);
+    }
+
+    private static ResponseEntity<ServiceOrder> toResponse(ServiceOrderService.OperationOutcome outcome) {
+        return switch (outcome.result().status()) {
+            case APPLIED, UNCHANGED -> withTag(outcome.order());
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case STALE -> ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            case REJECTED, ROLLED_BACK -> ResponseEntity.badRequest().build();
+        };
+    }
+
+    private static ResponseEntity<ServiceOrder> withTag(ServiceOrder order) {
+        return ResponseEntity.ok().eTag(EntityTags.of(order.getVersion())).body(order);
+    }
+
+    private static OrderHistory.OrderPage page(Window<ServiceOrder> window) {
+        return new OrderHistory.OrderPage(window.getContent().stream().map(OrderSummary::of).toList(),
+                window.hasNext());
+    }
+
+    public record OrderWindow(List<OrderSummary> orders, String nextCursor) {
+        static OrderWindow of(String sort, OrderHistory.OrderPage page) {
+            List<OrderSummary> orders = page.orders();
+            String nextCursor = page.hasNext() && !orders.isEmpty()
+                    ? OrderCursors.encode(sort, orders.get(orders.size() - 1))
+                    : null;
+            return new OrderWindow(orders, nextCursor);
         }
+    }
 
-        // Clear parts from order
-        order.getParts().clear();
-        order.setCompleted(false);
+    public record OrderStatus(Long orderId, double totalCost, boolean completed, int requiredTasks,
+                              int completedTasks, double completionPercentage, String status) {
+        static OrderStatus of(ServiceOrderRepository.StatusView view) {
+            // Same rules as /{orderId}/completion-status
+            double percentage = view.getRequiredTasks() > 0
+                    ? (view.getCompletedTasks() * 100.0) / view.getRequiredTasks()
+                    : 0;
+            return new OrderStatus(view.getId(), view.getTotalCost(), view.isCompleted(), view.getRequiredTasks(),
+                    view.getCompletedTasks(), percentage, view.isCompleted() ? "COMPLETED" : "IN_PROGRESS");
+        }
+    }
 
-        ServiceOrder savedOrder = repository.save(order);
-        return ResponseEntity.ok(savedOrder);
+    public record OrderStatusBatch(List<OrderStatus> orders, List<Long> missing, String nextCursor) {
     }
-}
\ No newline at end of file
+}
@@ -1,19 +1,43 @@
 package com.example.autoservice.controller;
 
+import com.example.autoservice.dto.OrderSummary;
+import com.example.autoservice.dto.VehicleSummary;
 import com.example.autoservice.model.Vehicle;
+import com.example.autoservice.model.VehicleKeys;
 import com.example.autoservice.repository.VehicleRepository;
+import com.example.autoservice.service.BulkCreateService;
+import com.example.autoservice.service.OrderHistory;
+import com.example.autoservice.service.VehicleHistorySummaries;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/vehicles")
 public class VehicleController {
 
+    private static final int MIN_PARTIAL_LENGTH = 3;
+    private static final int MAX_LOOKUP_RESULTS = 100;
+
     private final VehicleRepository repo;
+    private final OrderHistory orderHistory;
+    private final VehicleHistorySummaries historySummaries;
+    private final BulkCreateService bulkService;
 
-    public VehicleController(VehicleRepository repo) { this.repo = repo; }
+    public VehicleController(VehicleRepository repo, OrderHistory orderHistory,
+                             VehicleHistorySummaries historySummaries, BulkCreateService bulkService) {
+        this.repo = repo;
+        this.orderHistory = orderHistory;
+        this.historySummaries = historySummaries;
+        this.bulkService = bulkService;
+    }
 
     @GetMapping
     public List<Vehicle> getAll() { return repo.findAll(); }
@@ -23,12 +47,73 @@ public class VehicleController {
         return repo.findById(id).map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // Service history of a vehicle, newest first by default, archived orders included. Pages are
+    // keyset windows like /api/orders/customer/{id}; summary=true adds visits, lifetime spend
+    // and parts replaced per category.
+    @GetMapping("/{id}/history")
+    public ResponseEntity<VehicleHistory> getHistory(@PathVariable Long id,
+                                                     @RequestParam(defaultValue = "createdAt") String sort,
+                                                     @RequestParam(defaultValue = "desc") String direction,
+                                                     @RequestParam(defaultValue = "20") int size,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "false") boolean summary) {
+        if (!repo.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity<ServiceOrderController.OrderWindow> window = OrderCursors.window(sort, direction, size, cursor,
+                (position, order, limit) -> orderHistory.vehicleOrders(id, position, order, limit));
+        if (window.getBody() == null) {
+            return ResponseEntity.status(window.getStatusCode()).build();
+        }
+        return ResponseEntity.ok(new VehicleHistory(window.getBody().orders(), window.getBody().nextCursor(),
+                summary ? historySummaries.summary(id) : null));
+    }
+
+    // Vehicles by VIN or plate (exactly one of them), compared after normalization: case,
+    // spaces, separators and Cyrillic lookalike letters are ignored. match=prefix or suffix
+    // takes at least MIN_PARTIAL_LENGTH characters, e.g. the last 6 of a VIN.
+    @GetMapping("/lookup")
+    public ResponseEntity<List<VehicleSummary>> lookup(@RequestParam(required = false) String vin,
+                                                       @RequestParam(required = false) String plate,
+                                                       @RequestParam(defaultValue = "exact") String match,
+                                                       @RequestParam(defaultValue = "20") int limit) {
+        if ((vin == null) == (plate == null) || limit < 1 || limit > MAX_LOOKUP_RESULTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        String key = VehicleKeys.normalize(vin != null ? vin : plate);
+        if (key == null || (!match.equalsIgnoreCase("exact") && key.length() < MIN_PARTIAL_LENGTH)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Limit max = Limit.of(limit);
+        List<Vehicle> found;
+        switch (match.toLowerCase(Locale.ROOT)) {
+            case "exact" -> found = vin != null ? repo.findByVinKeyOrderById(key, max) : repo.findByPlateKeyOrderById(key, max);
+            case "prefix" -> found = vin != null
+                    ? repo.findByVinKeyStartingWithOrderByVinKey(key, max)
+                    : repo.findByPlateKeyStartingWithOrderByPlateKey(key, max);
+            case "suffix" -> found = vin != null
+                    ? repo.findByVinKeyReversedStartingWithOrderByVinKeyReversed(VehicleKeys.reverse(key), max)
+                    : repo.findByPlateKeyReversedStartingWithOrderByPlateKeyReversed(VehicleKeys.reverse(key), max);
+            default -> {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+        return ResponseEntity.ok(found.stream().map(VehicleSummary::of).toList());
+    }
+
     @PostMapping
     public ResponseEntity<Vehicle> create(@RequestBody Vehicle v) {
         Vehicle saved = repo.save(v);
         return ResponseEntity.ok(saved);
     }
 
+    // Owners are referenced as {"owner":{"id":...}}; an unknown owner is reported for the row
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkCreateService.BulkResult> bulkCreate(HttpServletRequest request) throws IOException {
+        return BulkRequests.create(bulkService, request,
+                BulkCreateService.BulkTarget.of(Vehicle.class, VehicleController::invalid));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Vehicle> update(@PathVariable Long id, @RequestBody Vehicle updated) {
         return repo.findById(id).map(existing -> {
@@ -48,4 +133,19 @@ public class VehicleController {
         repo.deleteById(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static String invalid(Vehicle vehicle) {
+        if (BulkRequests.blank(vehicle.getBrand()) || BulkRequests.blank(vehicle.getModel())
+                || vehicle.getManufactureYear() == null || BulkRequests.blank(vehicle.getVin())) {
+            return "brand, model, year and vin are required";
+        }
+        if (vehicle.getOwner() == null || vehicle.getOwner().getId() == null) {
+            return "owner id is required";
+        }
+        return null;
+    }
+
+    public record VehicleHistory(List<OrderSummary> orders, String nextCursor,
+                                 @JsonInclude(JsonInclude.Include.NON_NULL) VehicleHistorySummaries.Summary summary) {
+    }
 }
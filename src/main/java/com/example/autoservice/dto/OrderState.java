@@ -0,0 +1,57 @@
+package com.example.autoservice.dto;
+
+import com.example.autoservice.model.Customer;
+import com.example.autoservice.model.Mechanic;
+import com.example.autoservice.model.OrderLine;
+import com.example.autoservice.model.OrderTask;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.model.Vehicle;
+
+import java.util.List;
+
+// State of an order as recorded in its event stream: the payload of CREATED and UPDATED
+// events, the content of snapshots and the result of a replay
+public record OrderState(Long orderId,
+                         Long customerId,
+                         Long vehicleId,
+                         Long mechanicId,
+                         String description,
+                         List<Line> lines,
+                         List<Task> tasks,
+                         double laborCost,
+                         double partsTotal,
+                         double totalCost,
+                         boolean completed,
+                         boolean deleted) {
+
+    public static OrderState of(ServiceOrder order) {
+        Customer customer = order.getCustomer();
+        Vehicle vehicle = order.getVehicle();
+        Mechanic mechanic = order.getMechanic();
+        return new OrderState(
+                order.getId(),
+                customer != null ? customer.getId() : null,
+                vehicle != null ? vehicle.getId() : null,
+                mechanic != null ? mechanic.getId() : null,
+                order.getDescription(),
+                order.getLines().stream().map(Line::of).toList(),
+                order.getTasks().stream().map(Task::of).toList(),
+                order.getLaborCost(),
+                order.getPartsTotal(),
+                order.getTotalCost(),
+                order.isCompleted(),
+                false);
+    }
+
+    public record Line(Long partId, String partName, int quantity, double unitPrice) {
+        static Line of(OrderLine line) {
+            return new Line(line.getPartId(), line.getPartName(), line.getQuantity(), line.getUnitPrice());
+        }
+    }
+
+    public record Task(String name, boolean completed) {
+        static Task of(OrderTask task) {
+            return new Task(task.getName(), task.isCompleted());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.autoservice.dto;
+
+import com.example.autoservice.model.Customer;
+import com.example.autoservice.model.Mechanic;
+import com.example.autoservice.model.OrderLine;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.model.Vehicle;
+
+import java.time.Instant;
+import java.util.List;
+
+// Read model for order listings. Only touches the associations that the listing queries
+// fetch up front (customer, vehicle, mechanic) or load in batches (lines, tasks), so
+// serializing a page never falls back to per-order selects.
+public record OrderSummary(Long id,
+                           CustomerRef customer,
+                           VehicleRef vehicle,
+                           MechanicRef mechanic,
+                           List<LineRef> lines,
+                           List<String> requiredTasks,
+                           List<String> completedTasks,
+                           double laborCost,
+                           double partsTotal,
+                           double totalCost,
+                           boolean completed,
+                           String description,
+                           Instant createdAt) {
+
+    public static OrderSummary of(ServiceOrder order) {
+        return new OrderSummary(
+                order.getId(),
+                CustomerRef.of(order.getCustomer()),
+                VehicleRef.of(order.getVehicle()),
+                MechanicRef.of(order.getMechanic()),
+                order.getLines().stream().map(LineRef::of).toList(),
+                List.copyOf(order.getRequiredTasks()),
+                List.copyOf(order.getCompletedTasks()),
+                order.getLaborCost(),
+                order.getPartsTotal(),
+                order.getTotalCost(),
+                order.isCompleted(),
+                order.getDescription(),
+                order.getCreatedAt());
+    }
+
+    public record CustomerRef(Long id, String name, String phone) {
+        static CustomerRef of(Customer customer) {
+            return customer != null ? new CustomerRef(customer.getId(), customer.getName(), customer.getPhone()) : null;
+        }
+    }
+
+    public record VehicleRef(Long id, String brand, String model, String vin, String licensePlate) {
+        static VehicleRef of(Vehicle vehicle) {
+            return vehicle != null
+                    ? new VehicleRef(vehicle.getId(), vehicle.getBrand(), vehicle.getModel(), vehicle.getVin(), vehicle.getLicensePlate())
+                    : null;
+        }
+    }
+
+    public record MechanicRef(Long id, String name, String specialization) {
+        static MechanicRef of(Mechanic mechanic) {
+            return mechanic != null ? new MechanicRef(mechanic.getId(), mechanic.getName(), mechanic.getSpecialization()) : null;
+        }
+    }
+
+    public record LineRef(Long partId, String partName, String partNumber, int quantity, double unitPrice,
+                          double lineTotal) {
+        static LineRef of(OrderLine line) {
+            return new LineRef(line.getPartId(), line.getPartName(), line.getPartNumber(), line.getQuantity(),
+                    line.getUnitPrice(), line.getLineTotal());
+        }
+    }
+}
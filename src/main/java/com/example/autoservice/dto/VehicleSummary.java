@@ -0,0 +1,21 @@
+package com.example.autoservice.dto;
+
+import com.example.autoservice.model.Vehicle;
+
+// Read model for vehicle listings. The owner is referenced by id only, which a lazy proxy
+// answers without being loaded.
+public record VehicleSummary(Long id,
+                             String brand,
+                             String model,
+                             Integer year,
+                             String vin,
+                             String licensePlate,
+                             String description,
+                             Long ownerId) {
+
+    public static VehicleSummary of(Vehicle vehicle) {
+        return new VehicleSummary(vehicle.getId(), vehicle.getBrand(), vehicle.getModel(),
+                vehicle.getManufactureYear(), vehicle.getVin(), vehicle.getLicensePlate(), vehicle.getDescription(),
+                vehicle.getOwner() != null ? vehicle.getOwner().getId() : null);
+    }
+}
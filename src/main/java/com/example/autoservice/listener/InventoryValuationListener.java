@@ -0,0 +1,48 @@
+package com.example.autoservice.listener;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.service.InventoryValuation;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+// Turns every Part insert, update and delete into a valuation delta. Hibernate creates the
+// listener through Spring while the EntityManagerFactory is still being built, hence @Lazy.
+@Component
+public class InventoryValuationListener {
+
+    private final InventoryValuation valuation;
+
+    public InventoryValuationListener(@Lazy InventoryValuation valuation) {
+        this.valuation = valuation;
+    }
+
+    @PostLoad
+    public void onLoad(Part part) {
+        part.setPersistedValuation(Part.Valuation.of(part));
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onWrite(Part part) {
+        Part.Valuation before = part.getPersistedValuation();
+        Part.Valuation after = Part.Valuation.of(part);
+        if (before != null) {
+            valuation.adjust(before.category(), before.manufacturer(), -before.value());
+        }
+        valuation.adjust(after.category(), after.manufacturer(), after.value());
+        part.setPersistedValuation(after);
+    }
+
+    @PostRemove
+    public void onRemove(Part part) {
+        Part.Valuation before = part.getPersistedValuation();
+        if (before != null) {
+            valuation.adjust(before.category(), before.manufacturer(), -before.value());
+        }
+        part.setPersistedValuation(null);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.autoservice.listener;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.service.PartCache;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+// Evicts a part from PartCache whenever it is written through the persistence context.
+// Bulk JPQL updates bypass entity listeners and evict explicitly.
+@Component
+public class PartCacheListener {
+
+    private final PartCache cache;
+
+    public PartCacheListener(@Lazy PartCache cache) {
+        this.cache = cache;
+    }
+
+    @PostPersist
+    @PostRemove
+    public void onInsertOrDelete(Part part) {
+        cache.evict(part.getId());
+        cache.evictCategories();
+    }
+
+    @PostUpdate
+    public void onUpdate(Part part) {
+        cache.evict(part.getId());
+        Part.Valuation before = part.getPersistedValuation();
+        if (before == null || !Objects.equals(before.category(), part.getCategory())) {
+            cache.evictCategories();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.autoservice.listener;
+
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.service.VehicleHistorySummaries;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+// Evicts the cached closed-order summary of a vehicle when one of its completed orders is
+// written or removed, or an order of it is closed or reopened. Changes to open orders leave the
+// summaries alone.
+@Component
+public class VehicleHistoryListener {
+
+    private final VehicleHistorySummaries summaries;
+
+    public VehicleHistoryListener(@Lazy VehicleHistorySummaries summaries) {
+        this.summaries = summaries;
+    }
+
+    @PostLoad
+    public void onLoad(ServiceOrder order) {
+        order.setPersistedHistoryState(ServiceOrder.HistoryState.of(order));
+    }
+
+    // A completed order on either side of the write may have changed its vehicle's closed orders
+    @PostPersist
+    @PostUpdate
+    public void onWrite(ServiceOrder order) {
+        ServiceOrder.HistoryState before = order.getPersistedHistoryState();
+        ServiceOrder.HistoryState after = ServiceOrder.HistoryState.of(order);
+        if (before != null) {
+            evictClosed(before);
+        }
+        evictClosed(after);
+        order.setPersistedHistoryState(after);
+    }
+
+    @PostRemove
+    public void onRemove(ServiceOrder order) {
+        ServiceOrder.HistoryState before = order.getPersistedHistoryState();
+        if (before != null) {
+            evictClosed(before);
+        }
+        order.setPersistedHistoryState(null);
+    }
+
+    private void evictClosed(ServiceOrder.HistoryState state) {
+        if (state.completed() && state.vehicleId() != null) {
+            summaries.evict(state.vehicleId());
+        }
+    }
+}
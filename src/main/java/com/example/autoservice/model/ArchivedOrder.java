@@ -0,0 +1,140 @@
+package com.example.autoservice.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// A completed order moved out of service_orders by OrderArchiver. The order itself is kept as
+// the OrderSummary document it had when it was archived; the columns and the part lines are
+// what lookups, the customer history and the dashboard query.
+@Entity
+@Immutable
+@Table(name = "archived_orders", indexes = {
+        @Index(name = "idx_archived_orders_customer_id", columnList = "customer_id, id"),
+        @Index(name = "idx_archived_orders_customer_created", columnList = "customer_id, created_at, id"),
+        @Index(name = "idx_archived_orders_vehicle_id", columnList = "vehicle_id, id"),
+        @Index(name = "idx_archived_orders_vehicle_created", columnList = "vehicle_id, created_at, id"),
+        @Index(name = "idx_archived_orders_closed_on", columnList = "closed_on")
+})
+public class ArchivedOrder {
+    // Same id as the order had in service_orders
+    @Id
+    private Long id;
+
+    @Column(name = "customer_id")
+    private Long customerId;
+
+    @Column(name = "vehicle_id")
+    private Long vehicleId;
+
+    @Column(name = "mechanic_id")
+    private Long mechanicId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "closed_at")
+    private Instant closedAt;
+
+    @Column(name = "closed_on")
+    private LocalDate closedOn;
+
+    @Column(name = "total_cost", nullable = false)
+    private double totalCost;
+
+    // Version of the order when it was archived, served as its ETag
+    @Column(name = "version")
+    private Long version;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column(name = "document", nullable = false)
+    private String document;
+
+    @ElementCollection
+    @CollectionTable(name = "archived_order_lines", joinColumns = @JoinColumn(name = "order_id"),
+            indexes = @Index(name = "idx_archived_order_lines_order", columnList = "order_id"))
+    private List<Line> lines = new ArrayList<>();
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+
+    protected ArchivedOrder() {}
+
+    public ArchivedOrder(ServiceOrder order, String document, Instant archivedAt) {
+        this.id = order.getId();
+        this.customerId = order.getCustomer() != null ? order.getCustomer().getId() : null;
+        this.vehicleId = order.getVehicle() != null ? order.getVehicle().getId() : null;
+        this.mechanicId = order.getMechanic() != null ? order.getMechanic().getId() : null;
+        this.createdAt = order.getCreatedAt();
+        this.closedAt = order.getClosedAt();
+        this.closedOn = order.getClosedOn();
+        this.totalCost = order.getTotalCost();
+        this.version = order.getVersion();
+        this.document = document;
+        for (OrderLine line : order.getLines()) {
+            lines.add(new Line(line.getPartId(), line.getCategory(), line.getQuantity(), line.getUnitPrice()));
+        }
+        this.archivedAt = archivedAt;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getCustomerId() { return customerId; }
+
+    public Long getVehicleId() { return vehicleId; }
+
+    public Long getMechanicId() { return mechanicId; }
+
+    public Instant getCreatedAt() { return createdAt; }
+
+    public Instant getClosedAt() { return closedAt; }
+
+    public LocalDate getClosedOn() { return closedOn; }
+
+    public double getTotalCost() { return totalCost; }
+
+    public Long getVersion() { return version; }
+
+    public String getDocument() { return document; }
+
+    public Instant getArchivedAt() { return archivedAt; }
+
+    // Parts consumed by the order, for aggregates over the archive
+    @Embeddable
+    public static class Line {
+        @Column(name = "part_id", nullable = false)
+        private Long partId;
+
+        @Column(name = "category", length = 50)
+        private String category;
+
+        @Column(name = "quantity", nullable = false)
+        private int quantity;
+
+        @Column(name = "unit_price", nullable = false)
+        private double unitPrice;
+
+        protected Line() {}
+
+        Line(Long partId, String category, int quantity, double unitPrice) {
+            this.partId = partId;
+            this.category = category;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+        }
+
+        public Long getPartId() { return partId; }
+
+        public String getCategory() { return category; }
+
+        public int getQuantity() { return quantity; }
+
+        public double getUnitPrice() { return unitPrice; }
+    }
+}
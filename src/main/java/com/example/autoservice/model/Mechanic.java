@@ -1,16 +1,23 @@
 package com.example.autoservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 
+// An assigned mechanic is a reference (see MechanicAssignments); a not yet loaded one is a proxy,
+// whose handler is not serialized
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
 @Table(name = "mechanics")
 public class Mechanic {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mechanics_seq")
+    @SequenceGenerator(name = "mechanics_seq", sequenceName = "mechanics_seq", allocationSize = 50)
     private Long id;
 
     private String name;
     private String specialization;
+    // Workshop the mechanic works at; orders are only assigned within a branch
+    private String branch;
 
     public Mechanic() {}
 
@@ -22,4 +29,7 @@ public class Mechanic {
 
     public String getSpecialization() { return specialization; }
     public void setSpecialization(String specialization) { this.specialization = specialization; }
+
+    public String getBranch() { return branch; }
+    public void setBranch(String branch) { this.branch = branch; }
 }
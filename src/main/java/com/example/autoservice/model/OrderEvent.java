@@ -0,0 +1,67 @@
+package com.example.autoservice.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+// One business operation on a service order, appended to the order's event stream and never
+// changed afterwards. The order id is kept without a foreign key so the history outlives the order.
+@Entity
+@Immutable
+@Table(name = "order_events", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_order_events_order_sequence", columnNames = {"order_id", "sequence"})
+})
+public class OrderEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    // Position in the order's stream, starting at 1
+    @Column(name = "sequence", nullable = false)
+    private long sequence;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 30)
+    private Type type;
+
+    // Event details as JSON
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column(name = "data", nullable = false)
+    private String data;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    public OrderEvent() {}
+
+    public OrderEvent(Long orderId, long sequence, Type type, String data, Instant occurredAt) {
+        this.orderId = orderId;
+        this.sequence = sequence;
+        this.type = type;
+        this.data = data;
+        this.occurredAt = occurredAt;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getOrderId() { return orderId; }
+
+    public long getSequence() { return sequence; }
+
+    public Type getType() { return type; }
+
+    public String getData() { return data; }
+
+    public Instant getOccurredAt() { return occurredAt; }
+
+    public enum Type {
+        CREATED, UPDATED, PART_ADDED, PART_REMOVED, TASK_ADDED, TASK_COMPLETED, LABOR_COST_CHANGED,
+        CLOSED, CANCELLED, DELETED, MECHANIC_ASSIGNED
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.autoservice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+
+// A part on a service order. Name, number and unit price are copied from the catalog when
+// the line is added, so later catalog changes do not alter the order.
+@Entity
+@Table(name = "order_lines", indexes = {
+        @Index(name = "idx_order_lines_order", columnList = "order_id"),
+        @Index(name = "idx_order_lines_part", columnList = "part_id")
+})
+public class OrderLine {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_lines_seq")
+    @SequenceGenerator(name = "order_lines_seq", sequenceName = "order_lines_seq", allocationSize = 50)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    private ServiceOrder order;
+
+    @Column(name = "part_id", nullable = false)
+    private Long partId;
+
+    @Column(name = "part_name", nullable = false, length = 100)
+    private String partName;
+
+    @Column(name = "part_number", length = 50)
+    private String partNumber;
+
+    @Column(name = "category", length = 50)
+    private String category;
+
+    @Column(name = "quantity", nullable = false)
+    private int quantity;
+
+    @Column(name = "unit_price", nullable = false)
+    private double unitPrice;
+
+    public OrderLine() {}
+
+    OrderLine(ServiceOrder order, Part part, int quantity) {
+        this.order = order;
+        this.partId = part.getId();
+        this.partName = part.getName();
+        this.partNumber = part.getPartNumber();
+        this.category = part.getCategory();
+        this.quantity = quantity;
+        this.unitPrice = part.getPrice();
+    }
+
+    public Long getId() { return id; }
+
+    public ServiceOrder getOrder() { return order; }
+
+    public Long getPartId() { return partId; }
+    public void setPartId(Long partId) { this.partId = partId; }
+
+    public String getPartName() { return partName; }
+
+    public String getPartNumber() { return partNumber; }
+
+    public String getCategory() { return category; }
+
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    public double getUnitPrice() { return unitPrice; }
+
+    public double getLineTotal() {
+        return unitPrice * quantity;
+    }
+}
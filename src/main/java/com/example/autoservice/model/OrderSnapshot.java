@@ -0,0 +1,54 @@
+package com.example.autoservice.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+// Order state after the event with the given sequence, so a replay starts from here
+// instead of from the first event
+@Entity
+@Immutable
+@Table(name = "order_snapshots", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_order_snapshots_order_sequence", columnNames = {"order_id", "sequence"})
+})
+public class OrderSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "sequence", nullable = false)
+    private long sequence;
+
+    // OrderState as JSON
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column(name = "state", nullable = false)
+    private String state;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public OrderSnapshot() {}
+
+    public OrderSnapshot(Long orderId, long sequence, String state, Instant createdAt) {
+        this.orderId = orderId;
+        this.sequence = sequence;
+        this.state = state;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getOrderId() { return orderId; }
+
+    public long getSequence() { return sequence; }
+
+    public String getState() { return state; }
+
+    public Instant getCreatedAt() { return createdAt; }
+}
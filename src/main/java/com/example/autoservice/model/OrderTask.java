@@ -0,0 +1,43 @@
+package com.example.autoservice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+
+// A required task of a service order; completing it flips the flag on this row only
+@Entity
+@Table(name = "order_tasks", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_order_tasks_order_name", columnNames = {"order_id", "name"})
+})
+public class OrderTask {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_tasks_seq")
+    @SequenceGenerator(name = "order_tasks_seq", sequenceName = "order_tasks_seq", allocationSize = 50)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false)
+    private ServiceOrder order;
+
+    @Column(name = "name", nullable = false, length = 200)
+    private String name;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    public OrderTask() {}
+
+    OrderTask(ServiceOrder order, String name) {
+        this.order = order;
+        this.name = name;
+    }
+
+    public Long getId() { return id; }
+
+    public ServiceOrder getOrder() { return order; }
+
+    public String getName() { return name; }
+
+    public boolean isCompleted() { return completed; }
+    void setCompleted(boolean completed) { this.completed = completed; }
+}
@@ -0,0 +1,67 @@
+package com.example.autoservice.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+// A change written in the same transaction as the change itself and published to the change
+// feed once committed. The id doubles as the SSE event id clients resume from.
+@Entity
+@Immutable
+@Table(name = "change_outbox", indexes = {
+        @Index(name = "idx_change_outbox_created", columnList = "created_at")
+})
+public class OutboxEvent {
+    @Id
+    // IDENTITY rather than a pooled sequence like the other entities: ChangeFeed reads a gap in
+    // the ids as a transaction still in flight, and pooled ids would leave gaps between nodes
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "topic", nullable = false, length = 20)
+    private Topic topic;
+
+    @Column(name = "type", nullable = false, length = 30)
+    private String type;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    // Event body as JSON
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    @Column(name = "payload", nullable = false)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public OutboxEvent() {}
+
+    public OutboxEvent(Topic topic, String type, Long entityId, String payload, Instant createdAt) {
+        this.topic = topic;
+        this.type = type;
+        this.entityId = entityId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+
+    public Topic getTopic() { return topic; }
+
+    public String getType() { return type; }
+
+    public Long getEntityId() { return entityId; }
+
+    public String getPayload() { return payload; }
+
+    public Instant getCreatedAt() { return createdAt; }
+
+    public enum Topic {
+        ORDERS, STOCK
+    }
+}
@@ -1,12 +1,24 @@
 package com.example.autoservice.model;
 
+import com.example.autoservice.listener.InventoryValuationListener;
+import com.example.autoservice.listener.PartCacheListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "parts")
+@Table(name = "parts", indexes = {
+        @Index(name = "idx_parts_category", columnList = "category"),
+        @Index(name = "idx_parts_manufacturer", columnList = "manufacturer"),
+        @Index(name = "idx_parts_stock", columnList = "stock"),
+        @Index(name = "idx_parts_price", columnList = "price")
+})
+// PartCacheListener must run first: it compares against the valuation snapshot that
+// InventoryValuationListener replaces
+@EntityListeners({PartCacheListener.class, InventoryValuationListener.class})
 public class Part {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "parts_seq")
+    @SequenceGenerator(name = "parts_seq", sequenceName = "parts_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", nullable = false, length = 100, unique = true)
@@ -33,9 +45,31 @@ public class Part {
     @Column(name = "is_available", nullable = false)
     private Boolean isAvailable = true;
 
+    // Optimistic lock; the bulk stock and price UPDATEs increment it as well ("update versioned")
+    @Version
+    private Long version;
+
+    // Value-relevant state as last read from or written to the database
+    @Transient
+    private Valuation persistedValuation;
+
     public Part() {
     }
 
+    // Detached copy that is never attached to a persistence context
+    public Part(Part other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.price = other.price;
+        this.stock = other.stock;
+        this.description = other.description;
+        this.category = other.category;
+        this.manufacturer = other.manufacturer;
+        this.partNumber = other.partNumber;
+        this.isAvailable = other.isAvailable;
+        this.version = other.version;
+    }
+
     public Part(String name, Double price, Integer stock, String category) {
         this.name = name;
         this.price = price;
@@ -129,6 +163,19 @@ public class Part {
         this.isAvailable = isAvailable;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public Valuation getPersistedValuation() {
+        return persistedValuation;
+    }
+
+    public void setPersistedValuation(Valuation persistedValuation) {
+        this.persistedValuation = persistedValuation;
+    }
+
     // Business logic methods
     public void decreaseStock(Integer quantity) {
         if (quantity <= 0) {
@@ -157,6 +204,13 @@ public class Part {
         return price * stock;
     }
 
+    public record Valuation(String category, String manufacturer, double value) {
+        public static Valuation of(Part part) {
+            double value = part.price != null && part.stock != null ? part.price * part.stock : 0.0;
+            return new Valuation(part.category, part.manufacturer, value);
+        }
+    }
+
     @Override
     public String toString() {
         return "Part{" +
@@ -1,14 +1,42 @@
 package com.example.autoservice.model;
 
+import com.example.autoservice.listener.VehicleHistoryListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+// Most operations change one or two columns (a counter, the parts total, the event sequence),
+// so updates only write the changed columns
 @Entity
-@Table(name = "service_orders")
+@DynamicUpdate
+@EntityListeners(VehicleHistoryListener.class)
+@Table(name = "service_orders", indexes = {
+        // Keyset windows of /active and /customer/{id}, ordered by id or creation time
+        @Index(name = "idx_orders_completed_id", columnList = "completed, id"),
+        @Index(name = "idx_orders_completed_created", columnList = "completed, created_at, id"),
+        @Index(name = "idx_orders_customer_id", columnList = "customer_id, id"),
+        @Index(name = "idx_orders_customer_created", columnList = "customer_id, created_at, id"),
+        // Vehicle history windows and summaries
+        @Index(name = "idx_orders_vehicle_id", columnList = "vehicle_id, id"),
+        @Index(name = "idx_orders_vehicle_created", columnList = "vehicle_id, created_at, id"),
+        // Archive candidates
+        @Index(name = "idx_orders_completed_closed", columnList = "completed, closed_at")
+})
 public class ServiceOrder {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "service_orders_seq")
+    @SequenceGenerator(name = "service_orders_seq", sequenceName = "service_orders_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -23,30 +51,61 @@ public class ServiceOrder {
     @JoinColumn(name = "mechanic_id")
     private Mechanic mechanic;
 
-    @ManyToMany
-    @JoinTable(
-            name = "order_parts",
-            joinColumns = @JoinColumn(name = "order_id"),
-            inverseJoinColumns = @JoinColumn(name = "part_id")
-    )
-    private List<Part> parts = new ArrayList<>();
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    private List<OrderLine> lines = new ArrayList<>();
 
-    @ElementCollection
-    @CollectionTable(name = "order_required_tasks", joinColumns = @JoinColumn(name = "order_id"))
-    @Column(name = "task")
-    private List<String> requiredTasks = new ArrayList<>();
+    // Sum of the line totals, kept up to date by every line mutation
+    @Column(name = "parts_total", nullable = false)
+    private double partsTotal;
 
-    @ElementCollection
-    @CollectionTable(name = "order_completed_tasks", joinColumns = @JoinColumn(name = "order_id"))
-    @Column(name = "task")
-    private List<String> completedTasks = new ArrayList<>();
+    @JsonIgnore
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    private List<OrderTask> tasks = new ArrayList<>();
+
+    // Task counters, so close checks and progress never need the task rows
+    @Column(name = "required_task_count", nullable = false)
+    private int requiredTaskCount;
+
+    @Column(name = "completed_task_count", nullable = false)
+    private int completedTaskCount;
 
     private double laborCost;
     private boolean completed;
     private String description;
 
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    // Set while the order is completed; closed_on is the UTC day, which the dashboard groups by
+    @Column(name = "closed_at")
+    private Instant closedAt;
+
+    @JsonIgnore
+    @Column(name = "closed_on")
+    private LocalDate closedOn;
+
+    // Sequence of the last event in the order's event stream (see OrderEventLog)
+    @Column(name = "event_sequence", nullable = false)
+    private long eventSequence;
+
+    // Optimistic lock: a write based on an outdated read fails instead of overwriting newer changes
+    @Version
+    private Long version;
+
+    // Vehicle and completion as last read from or written to the database
+    @Transient
+    private HistoryState persistedHistoryState;
+
     public ServiceOrder() {}
 
+    // Truncated to the database precision, so keyset cursors match the stored value
+    @PrePersist
+    void onCreate() {
+        createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -59,35 +118,182 @@ public class ServiceOrder {
     public Mechanic getMechanic() { return mechanic; }
     public void setMechanic(Mechanic mechanic) { this.mechanic = mechanic; }
 
-    public List<Part> getParts() { return parts; }
-    public void setParts(List<Part> parts) { this.parts = parts; }
+    public List<OrderLine> getLines() { return lines; }
+
+    public double getPartsTotal() { return partsTotal; }
+
+    public List<OrderTask> getTasks() { return tasks; }
+
+    public int getRequiredTaskCount() { return requiredTaskCount; }
+
+    public int getCompletedTaskCount() { return completedTaskCount; }
+
+    // Names of all tasks, in the order they were added
+    public List<String> getRequiredTasks() {
+        return tasks.stream().map(OrderTask::getName).toList();
+    }
+
+    // Replaces the task list; tasks that stay keep their completion state
+    public void setRequiredTasks(List<String> names) {
+        Set<String> wanted = names != null ? new LinkedHashSet<>(names) : Set.of();
+        tasks.removeIf(task -> !wanted.contains(task.getName()));
+        Set<String> present = new HashSet<>(getRequiredTasks());
+        for (String name : wanted) {
+            if (present.add(name)) {
+                tasks.add(new OrderTask(this, name));
+            }
+        }
+        recalculateTaskCounts();
+    }
 
-    public List<String> getRequiredTasks() { return requiredTasks; }
-    public void setRequiredTasks(List<String> requiredTasks) { this.requiredTasks = requiredTasks; }
+    public List<String> getCompletedTasks() {
+        return tasks.stream().filter(OrderTask::isCompleted).map(OrderTask::getName).toList();
+    }
 
-    public List<String> getCompletedTasks() { return completedTasks; }
-    public void setCompletedTasks(List<String> completedTasks) { this.completedTasks = completedTasks; }
+    // Marks exactly the given tasks as completed; a completed task that is not on the list yet is added
+    public void setCompletedTasks(List<String> names) {
+        Set<String> done = names != null ? new LinkedHashSet<>(names) : Set.of();
+        Set<String> present = new HashSet<>();
+        for (OrderTask task : tasks) {
+            task.setCompleted(done.contains(task.getName()));
+            present.add(task.getName());
+        }
+        for (String name : done) {
+            if (present.add(name)) {
+                OrderTask task = new OrderTask(this, name);
+                task.setCompleted(true);
+                tasks.add(task);
+            }
+        }
+        recalculateTaskCounts();
+    }
+
+    // Appends a task without loading the others: adding to an inverse bag does not initialize it.
+    // The caller checks that the name is not taken yet.
+    public OrderTask addTask(String name) {
+        OrderTask task = new OrderTask(this, name);
+        tasks.add(task);
+        requiredTaskCount++;
+        return task;
+    }
+
+    public void completeTask(OrderTask task) {
+        if (!task.isCompleted()) {
+            task.setCompleted(true);
+            completedTaskCount++;
+        }
+    }
 
     public double getLaborCost() { return laborCost; }
     public void setLaborCost(double laborCost) { this.laborCost = laborCost; }
 
     public boolean isCompleted() { return completed; }
-    public void setCompleted(boolean completed) { this.completed = completed; }
+
+    // Closing stamps the time, reopening clears it
+    public void setCompleted(boolean completed) {
+        if (completed && closedAt == null) {
+            closedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+            closedOn = LocalDate.ofInstant(closedAt, ZoneOffset.UTC);
+        } else if (!completed) {
+            closedAt = null;
+            closedOn = null;
+        }
+        this.completed = completed;
+    }
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
+    public Instant getCreatedAt() { return createdAt; }
+
+    public Instant getClosedAt() { return closedAt; }
+
+    public LocalDate getClosedOn() { return closedOn; }
+
+    public Long getVersion() { return version; }
+
+    @JsonIgnore
+    public HistoryState getPersistedHistoryState() { return persistedHistoryState; }
+    public void setPersistedHistoryState(HistoryState persistedHistoryState) { this.persistedHistoryState = persistedHistoryState; }
+
+    @JsonIgnore
+    public long getEventSequence() { return eventSequence; }
+
+    public long nextEventSequence() {
+        return ++eventSequence;
+    }
+
     public double getTotalCost() {
-        double partsSum = 0.0;
-        if (parts != null) {
-            for (Part p : parts) {
-                partsSum += p != null ? p.getPrice() : 0.0;
+        return laborCost + partsTotal;
+    }
+
+    // Adds units of a part at its current catalog price. Units added at the same price share a line.
+    public OrderLine addPart(Part part, int quantity) {
+        OrderLine line = lines.stream()
+                .filter(l -> l.getPartId().equals(part.getId()) && l.getUnitPrice() == part.getPrice())
+                .findFirst()
+                .orElse(null);
+        if (line == null) {
+            line = new OrderLine(this, part, quantity);
+            lines.add(line);
+        } else {
+            line.setQuantity(line.getQuantity() + quantity);
+        }
+        recalculatePartsTotal();
+        return line;
+    }
+
+    // Removes up to quantity units of a part, most recently added lines first; returns the units removed
+    public int removePart(Long partId, int quantity) {
+        int removed = 0;
+        for (int i = lines.size() - 1; i >= 0 && removed < quantity; i--) {
+            OrderLine line = lines.get(i);
+            if (!line.getPartId().equals(partId)) {
+                continue;
+            }
+            int taken = Math.min(quantity - removed, line.getQuantity());
+            removed += taken;
+            if (taken == line.getQuantity()) {
+                lines.remove(i);
+            } else {
+                line.setQuantity(line.getQuantity() - taken);
             }
         }
-        return laborCost + partsSum;
+        recalculatePartsTotal();
+        return removed;
+    }
+
+    public void clearLines() {
+        lines.clear();
+        partsTotal = 0;
+    }
+
+    // Units per part id, over all lines
+    public Map<Long, Integer> quantitiesByPart() {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderLine line : lines) {
+            quantities.merge(line.getPartId(), line.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private void recalculateTaskCounts() {
+        requiredTaskCount = tasks.size();
+        completedTaskCount = (int) tasks.stream().filter(OrderTask::isCompleted).count();
+    }
+
+    private void recalculatePartsTotal() {
+        partsTotal = lines.stream().mapToDouble(OrderLine::getLineTotal).sum();
     }
 
     public boolean canBeClosed() {
-        return requiredTasks == null || requiredTasks.isEmpty() || (completedTasks != null && completedTasks.containsAll(requiredTasks));
+        return completedTaskCount >= requiredTaskCount;
+    }
+
+    // What a vehicle's service history summary depends on
+    public record HistoryState(Long vehicleId, boolean completed) {
+        public static HistoryState of(ServiceOrder order) {
+            return new HistoryState(order.vehicle != null ? order.vehicle.getId() : null, order.completed);
+        }
     }
 }
@@ -1,12 +1,21 @@
 package com.example.autoservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "vehicles")
+@Table(name = "vehicles", indexes = {
+        @Index(name = "idx_vehicles_owner", columnList = "owner_id"),
+        // Exact and prefix lookups; suffixes go through the reversed keys
+        @Index(name = "idx_vehicles_vin_key", columnList = "vin_key"),
+        @Index(name = "idx_vehicles_vin_key_reversed", columnList = "vin_key_reversed"),
+        @Index(name = "idx_vehicles_plate_key", columnList = "plate_key"),
+        @Index(name = "idx_vehicles_plate_key_reversed", columnList = "plate_key_reversed")
+})
 public class Vehicle {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vehicles_seq")
+    @SequenceGenerator(name = "vehicles_seq", sequenceName = "vehicles_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "brand", nullable = false, length = 50)
@@ -31,6 +40,23 @@ public class Vehicle {
     @Column(name = "license_plate", unique = true, length = 15)
     private String licensePlate;
 
+    // Normalized VIN and plate (see VehicleKeys), kept in step with vin and licensePlate
+    @JsonIgnore
+    @Column(name = "vin_key", length = 17)
+    private String vinKey;
+
+    @JsonIgnore
+    @Column(name = "vin_key_reversed", length = 17)
+    private String vinKeyReversed;
+
+    @JsonIgnore
+    @Column(name = "plate_key", length = 15)
+    private String plateKey;
+
+    @JsonIgnore
+    @Column(name = "plate_key_reversed", length = 15)
+    private String plateKeyReversed;
+
     public Vehicle() {
     }
 
@@ -52,6 +78,15 @@ public class Vehicle {
         this.licensePlate = licensePlate;
     }
 
+    @PrePersist
+    @PreUpdate
+    void updateKeys() {
+        vinKey = VehicleKeys.normalize(vin);
+        vinKeyReversed = VehicleKeys.reverse(vinKey);
+        plateKey = VehicleKeys.normalize(licensePlate);
+        plateKeyReversed = VehicleKeys.reverse(plateKey);
+    }
+
     public Long getId() {
         return id;
     }
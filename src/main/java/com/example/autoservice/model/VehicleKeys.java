@@ -0,0 +1,36 @@
+package com.example.autoservice.model;
+
+// Search keys of VINs and plates: upper case, without spaces or separators, and with the
+// Cyrillic letters that plates share with Latin ones (А, В, Е, К, М, Н, О, Р, С, Т, У, Х)
+// replaced by their Latin lookalikes, so "а 123 вс" and "A123BC" are the same plate.
+public final class VehicleKeys {
+
+    private static final String CYRILLIC = "АВЕКМНОРСТУХ";
+    private static final String LATIN = "ABEKMHOPCTYX";
+
+    private VehicleKeys() {
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = Character.toUpperCase(value.charAt(i));
+            int lookalike = CYRILLIC.indexOf(c);
+            if (lookalike >= 0) {
+                c = LATIN.charAt(lookalike);
+            }
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.isEmpty() ? null : sb.toString();
+    }
+
+    // Suffix searches are prefix searches over the reversed key
+    public static String reverse(String key) {
+        return key != null ? new StringBuilder(key).reverse().toString() : null;
+    }
+}
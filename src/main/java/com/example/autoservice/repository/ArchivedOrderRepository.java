@@ -0,0 +1,56 @@
+package com.example.autoservice.repository;
+
+import com.example.autoservice.model.ArchivedOrder;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    // Keyset windows with the same sorts as ServiceOrderRepository.findByCustomer_Id
+    Window<ArchivedOrder> findByCustomerId(Long customerId, ScrollPosition position, Sort sort, Limit limit);
+
+    Window<ArchivedOrder> findByVehicleId(Long vehicleId, ScrollPosition position, Sort sort, Limit limit);
+
+    // Same rows as ServiceOrderRepository.streamOrdersCreatedBetween
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select o.id as id, o.customerId as customerId, o.vehicleId as vehicleId, o.mechanicId as mechanicId, " +
+            "o.createdAt as createdAt, o.closedAt as closedAt, true as completed, o.totalCost as totalCost " +
+            "from ArchivedOrder o where o.createdAt >= :from and o.createdAt < :to order by o.id")
+    Stream<ServiceOrderRepository.OrderExportView> streamArchivedOrdersCreatedBetween(Instant from, Instant to);
+
+    @Query("select count(o) as orders, sum(o.totalCost) as spent, max(o.closedAt) as lastClosedAt " +
+            "from ArchivedOrder o where o.vehicleId = :vehicleId")
+    ServiceOrderRepository.ClosedOrdersView sumArchivedOrdersOfVehicle(Long vehicleId);
+
+    @Query("select l.category as category, sum(l.quantity) as units, sum(l.quantity * l.unitPrice) as value " +
+            "from ArchivedOrder o join o.lines l where o.vehicleId = :vehicleId group by l.category")
+    List<ServiceOrderRepository.ConsumptionView> sumArchivedPartsOfVehicle(Long vehicleId);
+
+    // Archived orders are completed, so none of them is open
+    @Query("select count(o) as orders, 0L as openOrders, sum(o.totalCost) as spent, max(o.createdAt) as lastOrderAt " +
+            "from ArchivedOrder o where o.customerId = :customerId")
+    ServiceOrderRepository.CustomerTotalsView sumArchivedOrdersOfCustomer(Long customerId);
+
+    // Dashboard aggregates of archived orders, in the shapes of the ones over service_orders
+    @Query("select o.closedOn as day, count(o) as orders, sum(o.totalCost) as revenue, " +
+            "sum((o.closedAt - o.createdAt) by nanosecond) / 1e9 as closeSeconds " +
+            "from ArchivedOrder o group by o.closedOn")
+    List<ServiceOrderRepository.ClosedDayView> sumArchivedOrdersPerDay();
+
+    @Query("select l.category as category, sum(l.quantity) as units, sum(l.quantity * l.unitPrice) as value " +
+            "from ArchivedOrder o join o.lines l group by l.category")
+    List<ServiceOrderRepository.ConsumptionView> sumArchivedPartsPerCategory();
+}
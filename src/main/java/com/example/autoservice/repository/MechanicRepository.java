@@ -4,6 +4,10 @@ import com.example.autoservice.model.Mechanic;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface MechanicRepository extends JpaRepository<Mechanic, Long> {
+
+    List<Mechanic> findByBranchIgnoreCase(String branch);
 }
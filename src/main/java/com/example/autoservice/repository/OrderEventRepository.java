@@ -0,0 +1,19 @@
+package com.example.autoservice.repository;
+
+import com.example.autoservice.model.OrderEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+
+    // Range scans on the (order_id, sequence) unique index
+    List<OrderEvent> findByOrderIdAndSequenceGreaterThanOrderBySequence(Long orderId, long after, Limit limit);
+
+    List<OrderEvent> findByOrderIdAndSequenceBetweenOrderBySequence(Long orderId, long from, long to);
+
+    boolean existsByOrderId(Long orderId);
+}
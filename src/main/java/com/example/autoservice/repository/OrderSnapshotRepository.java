@@ -0,0 +1,14 @@
+package com.example.autoservice.repository;
+
+import com.example.autoservice.model.OrderSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OrderSnapshotRepository extends JpaRepository<OrderSnapshot, Long> {
+
+    // Latest snapshot at or before the given event
+    Optional<OrderSnapshot> findFirstByOrderIdAndSequenceLessThanEqualOrderBySequenceDesc(Long orderId, long sequence);
+}
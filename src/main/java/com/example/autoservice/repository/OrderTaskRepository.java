@@ -0,0 +1,16 @@
+package com.example.autoservice.repository;
+
+import com.example.autoservice.model.OrderTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OrderTaskRepository extends JpaRepository<OrderTask, Long> {
+
+    // Point lookups on the (order_id, name) unique index
+    Optional<OrderTask> findByOrder_IdAndName(Long orderId, String name);
+
+    boolean existsByOrder_IdAndName(Long orderId, String name);
+}
@@ -0,0 +1,32 @@
+package com.example.autoservice.repository;
+
+import com.example.autoservice.model.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    List<OutboxEvent> findByIdGreaterThanOrderById(long after, Limit limit);
+
+    List<OutboxEvent> findByIdGreaterThanAndIdLessThanEqualOrderById(long after, long upTo, Limit limit);
+
+    @Query("select max(e.id) from OutboxEvent e")
+    Optional<Long> findMaxId();
+
+    @Query("select min(e.id) from OutboxEvent e")
+    Optional<Long> findMinId();
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxEvent e where e.createdAt < :cutoff")
+    int deleteCreatedBefore(Instant cutoff);
+}
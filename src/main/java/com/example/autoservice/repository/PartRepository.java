@@ -1,9 +1,91 @@
 package com.example.autoservice.repository;
 
 import com.example.autoservice.model.Part;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface PartRepository extends JpaRepository<Part, Long> {
+
+    // Case-insensitive lookups compare upper(column) = upper(?), backed by the
+    // upper() expression indexes in schema-postgresql.sql
+    Page<Part> findByCategoryIgnoreCase(String category, Pageable pageable);
+
+    Page<Part> findByManufacturerIgnoreCase(String manufacturer, Pageable pageable);
+
+    Page<Part> findByStockGreaterThan(Integer stock, Pageable pageable);
+
+    Page<Part> findByStockLessThanEqual(Integer stock, Pageable pageable);
+
+    Page<Part> findByPriceBetween(Double minPrice, Double maxPrice, Pageable pageable);
+
+    List<Part> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    List<Part> findByPartNumberIn(Collection<String> partNumbers);
+
+    // Export: read through a database cursor, fetch-size rows at a time; needs a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.id as id, p.partNumber as partNumber, p.name as name, p.category as category, " +
+            "p.manufacturer as manufacturer, p.price as price, p.stock as stock, p.isAvailable as available, " +
+            "p.description as description from Part p order by p.id")
+    Stream<ExportView> streamAllForExport();
+
+    @Query("select distinct p.category from Part p order by p.category")
+    List<String> findDistinctCategories();
+
+    // Decrements only while enough stock remains beyond the units kept back; returns 0 when it
+    // does not (or the part is missing)
+    @Modifying
+    @Query("update versioned Part p set p.stock = p.stock - :quantity, " +
+            "p.isAvailable = case when p.stock > :quantity then true else false end " +
+            "where p.id = :id and p.stock - :keptBack >= :quantity")
+    int decreaseStockIfAvailable(Long id, int quantity, int keptBack);
+
+    @Modifying
+    @Query("update versioned Part p set p.stock = p.stock + :quantity, p.isAvailable = true where p.id = :id")
+    int increaseStock(Long id, int quantity);
+
+    @Query("select p.category as category, p.manufacturer as manufacturer, sum(p.price * p.stock) as value " +
+            "from Part p group by p.category, p.manufacturer")
+    List<ValueBreakdown> sumValueByCategoryAndManufacturer();
+
+    interface ExportView {
+        Long getId();
+
+        String getPartNumber();
+
+        String getName();
+
+        String getCategory();
+
+        String getManufacturer();
+
+        Double getPrice();
+
+        Integer getStock();
+
+        Boolean getAvailable();
+
+        String getDescription();
+    }
+
+    interface ValueBreakdown {
+        String getCategory();
+
+        String getManufacturer();
+
+        Double getValue();
+    }
 }
@@ -1,9 +1,182 @@
 package com.example.autoservice.repository;
 
 import com.example.autoservice.model.ServiceOrder;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface ServiceOrderRepository extends JpaRepository<ServiceOrder, Long> {
+
+    // Listing queries join the to-one associations; the collections are loaded in batches
+    // (hibernate.default_batch_fetch_size) when the page is mapped to OrderSummary
+    @EntityGraph(attributePaths = {"customer", "vehicle", "mechanic"})
+    Page<ServiceOrder> findAllBy(Pageable pageable);
+
+    // Keyset windows; the sort is id or (createdAt, id), matching the indexes on ServiceOrder
+    @EntityGraph(attributePaths = {"customer", "vehicle", "mechanic"})
+    Window<ServiceOrder> findByCompletedFalse(ScrollPosition position, Sort sort, Limit limit);
+
+    @EntityGraph(attributePaths = {"customer", "vehicle", "mechanic"})
+    Window<ServiceOrder> findByCustomer_Id(Long customerId, ScrollPosition position, Sort sort, Limit limit);
+
+    // Order counts and spending of one customer (idx_orders_customer_id)
+    @Query("select count(o) as orders, sum(case when o.completed = false then 1 else 0 end) as openOrders, " +
+            "sum(case when o.completed = true then o.laborCost + o.partsTotal else 0 end) as spent, " +
+            "max(o.createdAt) as lastOrderAt from ServiceOrder o where o.customer.id = :customerId")
+    CustomerTotalsView sumOrdersOfCustomer(Long customerId);
+
+    @EntityGraph(attributePaths = {"customer", "vehicle", "mechanic"})
+    Window<ServiceOrder> findByVehicle_Id(Long vehicleId, ScrollPosition position, Sort sort, Limit limit);
+
+    // Service history summary of one vehicle (idx_orders_vehicle_id): closed orders, which are
+    // cached, and the open ones, which are counted on every read
+    @Query("select count(o) as orders, sum(o.laborCost + o.partsTotal) as spent, max(o.closedAt) as lastClosedAt " +
+            "from ServiceOrder o where o.vehicle.id = :vehicleId and o.completed = true")
+    ClosedOrdersView sumClosedOrdersOfVehicle(Long vehicleId);
+
+    @Query("select l.category as category, sum(l.quantity) as units, sum(l.quantity * l.unitPrice) as value " +
+            "from OrderLine l where l.order.vehicle.id = :vehicleId and l.order.completed = true group by l.category")
+    List<ConsumptionView> sumConsumedPartsOfVehicle(Long vehicleId);
+
+    long countByVehicle_IdAndCompletedFalse(Long vehicleId);
+
+    // (order id, part id, units) of all open orders
+    @Query("select l.order.id, l.partId, sum(l.quantity) from OrderLine l " +
+            "where l.order.completed = false group by l.order.id, l.partId")
+    List<Object[]> findOpenOrderPartQuantities();
+
+    // (mechanic id, open orders) of every mechanic with open orders
+    @Query("select o.mechanic.id, count(o) from ServiceOrder o " +
+            "where o.completed = false and o.mechanic is not null group by o.mechanic.id")
+    List<Object[]> countOpenOrdersByMechanic();
+
+    // Completed orders due for the archive (see OrderArchiver)
+    @Query("select o.id from ServiceOrder o where o.completed = true and o.closedAt < :closedBefore order by o.id")
+    List<Long> findIdsToArchive(Instant closedBefore, Limit limit);
+
+    // Aggregates the operations dashboard is rebuilt and checked from
+    @Query("select m.id as mechanicId, count(o) as orders from ServiceOrder o left join o.mechanic m " +
+            "where o.completed = false group by m.id")
+    List<OpenOrdersView> countOpenOrdersPerMechanic();
+
+    @Query("select o.closedOn as day, count(o) as orders, sum(o.laborCost + o.partsTotal) as revenue, " +
+            "sum((o.closedAt - o.createdAt) by nanosecond) / 1e9 as closeSeconds " +
+            "from ServiceOrder o where o.completed = true group by o.closedOn")
+    List<ClosedDayView> sumClosedOrdersPerDay();
+
+    @Query("select l.category as category, sum(l.quantity) as units, sum(l.quantity * l.unitPrice) as value " +
+            "from OrderLine l where l.order.completed = true group by l.category")
+    List<ConsumptionView> sumConsumedPartsPerCategory();
+
+    @Query("select o.laborCost + o.partsTotal from ServiceOrder o where o.id = :id")
+    Optional<Double> findTotalCost(Long id);
+
+    // Cost and task progress of many orders in one statement, without loading the orders
+    @Query("select o.id as id, o.laborCost + o.partsTotal as totalCost, o.completed as completed, " +
+            "o.requiredTaskCount as requiredTasks, o.completedTaskCount as completedTasks " +
+            "from ServiceOrder o where o.id in :ids order by o.id")
+    List<StatusView> findStatusByIdIn(Collection<Long> ids);
+
+    @Query("select o.id as id, o.laborCost + o.partsTotal as totalCost, o.completed as completed, " +
+            "o.requiredTaskCount as requiredTasks, o.completedTaskCount as completedTasks " +
+            "from ServiceOrder o where o.completed = false and o.id > :after order by o.id")
+    List<StatusView> findStatusOfOpenOrdersAfter(long after, Limit limit);
+
+    // Export: read through a database cursor, fetch-size rows at a time; needs a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select o.id as id, o.customer.id as customerId, o.vehicle.id as vehicleId, o.mechanic.id as mechanicId, " +
+            "o.createdAt as createdAt, o.closedAt as closedAt, o.completed as completed, " +
+            "o.laborCost + o.partsTotal as totalCost " +
+            "from ServiceOrder o where o.createdAt >= :from and o.createdAt < :to order by o.id")
+    Stream<OrderExportView> streamOrdersCreatedBetween(Instant from, Instant to);
+
+    interface StatusView {
+        Long getId();
+
+        Double getTotalCost();
+
+        boolean isCompleted();
+
+        int getRequiredTasks();
+
+        int getCompletedTasks();
+    }
+
+    interface OrderExportView {
+        Long getId();
+
+        Long getCustomerId();
+
+        Long getVehicleId();
+
+        Long getMechanicId();
+
+        Instant getCreatedAt();
+
+        Instant getClosedAt();
+
+        boolean isCompleted();
+
+        Double getTotalCost();
+    }
+
+    interface CustomerTotalsView {
+        long getOrders();
+
+        Long getOpenOrders();
+
+        Double getSpent();
+
+        Instant getLastOrderAt();
+    }
+
+    interface ClosedOrdersView {
+        long getOrders();
+
+        Double getSpent();
+
+        Instant getLastClosedAt();
+    }
+
+    interface OpenOrdersView {
+        Long getMechanicId();
+
+        long getOrders();
+    }
+
+    interface ClosedDayView {
+        LocalDate getDay();
+
+        long getOrders();
+
+        Double getRevenue();
+
+        Double getCloseSeconds();
+    }
+
+    interface ConsumptionView {
+        String getCategory();
+
+        Long getUnits();
+
+        Double getValue();
+    }
 }
@@ -1,9 +1,29 @@
 package com.example.autoservice.repository;
 
 import com.example.autoservice.model.Vehicle;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
+
+    // Vehicles of one owner without loading the owner (idx_vehicles_owner)
+    List<Vehicle> findByOwner_IdOrderById(Long ownerId);
+
+    // Lookups by normalized VIN and plate (VehicleKeys). Suffixes are matched as prefixes of the
+    // reversed keys, so every lookup is a range scan of one index.
+    List<Vehicle> findByVinKeyOrderById(String vinKey, Limit limit);
+
+    List<Vehicle> findByVinKeyStartingWithOrderByVinKey(String prefix, Limit limit);
+
+    List<Vehicle> findByVinKeyReversedStartingWithOrderByVinKeyReversed(String reversedSuffix, Limit limit);
+
+    List<Vehicle> findByPlateKeyOrderById(String plateKey, Limit limit);
+
+    List<Vehicle> findByPlateKeyStartingWithOrderByPlateKey(String prefix, Limit limit);
+
+    List<Vehicle> findByPlateKeyReversedStartingWithOrderByPlateKeyReversed(String reversedSuffix, Limit limit);
 }
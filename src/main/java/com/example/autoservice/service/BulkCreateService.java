@@ -0,0 +1,203 @@
+package com.example.autoservice.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Creates entities from a JSON array read as a stream: rows are bound and checked one by one
+// and persisted chunk by chunk, each chunk in its own transaction, so inserts go out as JDBC
+// batches with ids from the pooled sequences. A chunk the database rejects (a duplicate email
+// or VIN, an unknown owner) is rolled back and retried row by row to find the offending rows;
+// every row that is not created is reported with its index in the array.
+@Service
+public class BulkCreateService {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public BulkCreateService(EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${autoservice.bulk.chunk-size:1000}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    // Throws IllegalArgumentException when the body is not a JSON array. A malformed row ends the
+    // import; the chunks before it stay committed.
+    public <T> BulkResult create(InputStream body, BulkTarget<T> target) throws IOException {
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        List<RowError> errors = new ArrayList<>();
+        int received = 0;
+        int created = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (firstToken(parser) != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array");
+            }
+            while (true) {
+                JsonNode node;
+                try {
+                    if (parser.nextToken() == JsonToken.END_ARRAY) {
+                        break;
+                    }
+                    node = objectMapper.readTree(parser);
+                } catch (JsonProcessingException e) {
+                    errors.add(new RowError(received, "Malformed JSON, the rest of the array was not read: "
+                            + e.getOriginalMessage()));
+                    break;
+                }
+                if (node == null) {
+                    errors.add(new RowError(received, "Unexpected end of input"));
+                    break;
+                }
+                chunk.add(new Row(received++, node));
+                if (chunk.size() == chunkSize) {
+                    created += flushChunk(chunk, target, errors);
+                }
+            }
+        }
+        created += flushChunk(chunk, target, errors);
+        return new BulkResult(received, created, errors);
+    }
+
+    private <T> int flushChunk(List<Row> chunk, BulkTarget<T> target, List<RowError> errors) {
+        List<T> entities = new ArrayList<>(chunk.size());
+        List<Row> valid = new ArrayList<>(chunk.size());
+        for (Row row : chunk) {
+            T entity = bind(row, target, errors);
+            if (entity != null) {
+                entities.add(entity);
+                valid.add(row);
+            }
+        }
+        chunk.clear();
+        if (entities.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(entities, target));
+        } catch (DataAccessException | PersistenceException e) {
+            // Entities of the rolled back chunk already hold ids, so the rows are bound again
+            return insertOneByOne(valid, target, errors);
+        }
+        entities.forEach(target.committed());
+        return entities.size();
+    }
+
+    private <T> int insertOneByOne(List<Row> rows, BulkTarget<T> target, List<RowError> errors) {
+        int created = 0;
+        for (Row row : rows) {
+            T entity = bind(row, target, errors);
+            if (entity == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> insert(List.of(entity), target));
+            } catch (DataAccessException | PersistenceException e) {
+                errors.add(new RowError(row.index(), "Rejected by the database: " + firstLine(e)));
+                continue;
+            }
+            target.committed().accept(entity);
+            created++;
+        }
+        return created;
+    }
+
+    private <T> void insert(List<T> entities, BulkTarget<T> target) {
+        for (T entity : entities) {
+            entityManager.persist(entity);
+            target.saved().accept(entity);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private <T> T bind(Row row, BulkTarget<T> target, List<RowError> errors) {
+        if (!row.node().isObject()) {
+            errors.add(new RowError(row.index(), "Expected a JSON object"));
+            return null;
+        }
+        if (row.node().hasNonNull("id")) {
+            errors.add(new RowError(row.index(), "id is assigned by the server"));
+            return null;
+        }
+        T entity;
+        try {
+            entity = objectMapper.treeToValue(row.node(), target.type());
+        } catch (JsonProcessingException e) {
+            errors.add(new RowError(row.index(), e.getOriginalMessage()));
+            return null;
+        }
+        String problem = target.validator().apply(entity);
+        if (problem != null) {
+            errors.add(new RowError(row.index(), problem));
+            return null;
+        }
+        return entity;
+    }
+
+    private static JsonToken firstToken(JsonParser parser) throws IOException {
+        try {
+            return parser.nextToken();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Expected a JSON array", e);
+        }
+    }
+
+    private static String firstLine(Exception e) {
+        String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+        if (message == null) {
+            return e.getClass().getSimpleName();
+        }
+        int newline = message.indexOf('\n');
+        return newline < 0 ? message : message.substring(0, newline);
+    }
+
+    private record Row(int index, JsonNode node) {
+    }
+
+    // validator returns the problem with a row, or null when it can be inserted; saved runs in the
+    // chunk transaction after persist, committed once that transaction has committed
+    public record BulkTarget<T>(Class<T> type, Function<T, String> validator, Consumer<T> saved,
+                                Consumer<T> committed) {
+        public static <T> BulkTarget<T> of(Class<T> type, Function<T, String> validator) {
+            return new BulkTarget<>(type, validator, entity -> { }, entity -> { });
+        }
+
+        public BulkTarget<T> onSaved(Consumer<T> saved) {
+            return new BulkTarget<>(type, validator, saved, committed);
+        }
+
+        public BulkTarget<T> onCommitted(Consumer<T> committed) {
+            return new BulkTarget<>(type, validator, saved, committed);
+        }
+    }
+
+    public record RowError(int index, String message) {
+    }
+
+    public record BulkResult(int received, int created, List<RowError> errors) {
+    }
+}
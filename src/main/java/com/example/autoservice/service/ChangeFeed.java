@@ -0,0 +1,440 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.OutboxEvent;
+import com.example.autoservice.repository.OutboxEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Read side of the change feed: polls the outbox in id order and pushes committed changes to
+// SSE subscribers.
+//
+// Subscribers cost no thread while idle. A live subscriber has a bounded queue that a small pool
+// of sender threads drains. A subscriber that falls behind (full queue) or resumes from a
+// Last-Event-ID is switched to catch-up mode. In that mode the senders page through the outbox
+// table at the subscriber's own pace, so a slow client never holds more than a queue of changes
+// in memory. Once caught up it goes back to live delivery.
+//
+// A client that stops reading blocks the sender thread writing to it until the container's write
+// timeout. A send still blocked after send-timeout drops its subscriber (the client reconnects
+// with its Last-Event-ID) and a new sender thread takes the blocked one's place until it returns,
+// so a stalled client holds up the others for at most about twice send-timeout.
+//
+// Delivery follows the outbox ids, which transactions take when they insert, not when they
+// commit. A missing id is waited for gap-timeout from when the gap was first seen, then skipped.
+// Skipped ids are looked up again for late-commit-window: a transaction that was only slow
+// still reaches the connected subscribers, out of id order (a client that resumes from a later
+// Last-Event-ID does not get it). Rolled back ids are never filled and simply expire.
+@Service
+public class ChangeFeed {
+
+    private static final int POLL_BATCH = 500;
+    private static final int CATCH_UP_PAGE = 200;
+    private static final int MAX_SKIPPED = 10_000;
+
+    private final OutboxEventRepository repository;
+    private final Map<Subscriber, Boolean> subscribers = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor senders;
+    private final int senderThreads;
+    private final Clock clock = Clock.systemUTC();
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final Duration gapTimeout;
+    private final Duration lateCommitWindow;
+    private final Duration retention;
+    private final Duration emitterTimeout;
+    private final Duration sendTimeout;
+
+    // Id of the last change handed to subscribers; changes up to here are committed
+    private volatile long cursor;
+    private volatile boolean started;
+    // Guarded by this: the gap delivery waits at and when it was first seen, and the ids skipped
+    // over with the time they were skipped, oldest first
+    private long gapId;
+    private Instant gapSeenAt;
+    private final Map<Long, Instant> skipped = new LinkedHashMap<>();
+    // Guarded by senders: sender threads blocked in a send that was written off
+    private int writtenOff;
+
+    public ChangeFeed(OutboxEventRepository repository,
+                      @Value("${autoservice.changes.queue-capacity:256}") int queueCapacity,
+                      @Value("${autoservice.changes.max-subscribers:10000}") int maxSubscribers,
+                      @Value("${autoservice.changes.sender-threads:4}") int senderThreads,
+                      @Value("${autoservice.changes.gap-timeout:PT1S}") Duration gapTimeout,
+                      @Value("${autoservice.changes.late-commit-window:PT10M}") Duration lateCommitWindow,
+                      @Value("${autoservice.changes.retention:PT24H}") Duration retention,
+                      @Value("${autoservice.changes.emitter-timeout:PT30M}") Duration emitterTimeout,
+                      @Value("${autoservice.changes.send-timeout:PT10S}") Duration sendTimeout) {
+        this.repository = repository;
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.gapTimeout = gapTimeout;
+        this.lateCommitWindow = lateCommitWindow;
+        this.retention = retention;
+        this.emitterTimeout = emitterTimeout;
+        this.sendTimeout = sendTimeout;
+        this.senderThreads = senderThreads;
+        // Fixed size apart from the threads that stand in for written off ones (see dropStalled)
+        this.senders = new ThreadPoolExecutor(senderThreads, Integer.MAX_VALUE, 1, TimeUnit.MINUTES,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Live delivery starts with the changes committed after startup; older ones are read on resume
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        cursor = repository.findMaxId().orElse(0L);
+        started = true;
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+        subscribers.keySet().forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    // Without lastEventId only changes from now on are sent. Returns empty when the feed is full.
+    public Optional<SseEmitter> subscribe(Set<OutboxEvent.Topic> topics, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Subscriber subscriber;
+        // Under the poll lock, so no change can be published between reading the cursor and
+        // registering the subscriber
+        synchronized (this) {
+            long current = cursor;
+            boolean resume = lastEventId != null && lastEventId < current;
+            subscriber = new Subscriber(emitter, topics, resume ? lastEventId : current, resume);
+            subscribers.put(subscriber, Boolean.TRUE);
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        subscriber.schedule();
+        return Optional.of(emitter);
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Hands newly committed changes to the subscribers, in id order. A missing id may belong to a
+    // transaction that has not committed yet, so delivery waits at a gap until it has been open
+    // for gap-timeout, then skips it and keeps looking for the skipped ids.
+    @Scheduled(fixedDelayString = "${autoservice.changes.poll-interval:PT0.2S}")
+    public synchronized void poll() {
+        if (!started) {
+            return;
+        }
+        Instant now = clock.instant();
+        publishLateCommits(now);
+        for (OutboxEvent event : repository.findByIdGreaterThanOrderById(cursor, Limit.of(POLL_BATCH))) {
+            if (event.getId() != cursor + 1) {
+                if (gapId != cursor + 1) {
+                    gapId = cursor + 1;
+                    gapSeenAt = now;
+                }
+                if (now.isBefore(gapSeenAt.plus(gapTimeout))) {
+                    break;
+                }
+                for (long id = cursor + 1; id < event.getId(); id++) {
+                    skipped.put(id, now);
+                }
+                while (skipped.size() > MAX_SKIPPED) {
+                    skipped.remove(skipped.keySet().iterator().next());
+                }
+            }
+            cursor = event.getId();
+            publish(Change.of(event, false));
+        }
+    }
+
+    private void publishLateCommits(Instant now) {
+        Instant expired = now.minus(lateCommitWindow);
+        Iterator<Instant> skippedAt = skipped.values().iterator();
+        while (skippedAt.hasNext() && skippedAt.next().isBefore(expired)) {
+            skippedAt.remove();
+        }
+        if (skipped.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(skipped.keySet());
+        for (int from = 0; from < ids.size(); from += POLL_BATCH) {
+            List<Long> batch = ids.subList(from, Math.min(from + POLL_BATCH, ids.size()));
+            List<OutboxEvent> late = new ArrayList<>(repository.findAllById(batch));
+            late.sort(Comparator.comparing(OutboxEvent::getId));
+            for (OutboxEvent event : late) {
+                skipped.remove(event.getId());
+                publish(Change.of(event, true));
+            }
+        }
+    }
+
+    private void publish(Change change) {
+        for (Subscriber subscriber : subscribers.keySet()) {
+            subscriber.offer(change);
+        }
+    }
+
+    // Keeps idle connections open through proxies and finds clients that went away
+    @Scheduled(fixedDelayString = "${autoservice.changes.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers.keySet()) {
+            subscriber.heartbeat();
+        }
+    }
+
+    // Checked every send-timeout: a subscriber whose send has been blocked for longer is dropped,
+    // and the pool gets a thread in place of the blocked one until that send returns
+    @Scheduled(fixedDelayString = "${autoservice.changes.send-timeout:PT10S}")
+    public void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.keySet()) {
+            if (subscriber.writeOffIfStalled(now)) {
+                resizeSenders(1);
+            }
+        }
+    }
+
+    private void resizeSenders(int writtenOffDelta) {
+        synchronized (senders) {
+            writtenOff += writtenOffDelta;
+            senders.setCorePoolSize(senderThreads + writtenOff);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${autoservice.changes.cleanup-interval:PT10M}")
+    public void purge() {
+        repository.deleteCreatedBefore(clock.instant().minus(retention));
+    }
+
+    // late: committed after delivery had moved past its id
+    public record Change(long id, OutboxEvent.Topic topic, String type, String payload, boolean late) {
+        static Change of(OutboxEvent event, boolean late) {
+            return new Change(event.getId(), event.getTopic(), event.getType(), event.getPayload(), late);
+        }
+    }
+
+    private final class Subscriber {
+        private static final long IDLE = Long.MIN_VALUE;
+        private static final long WRITTEN_OFF = Long.MAX_VALUE;
+
+        private final SseEmitter emitter;
+        private final Set<OutboxEvent.Topic> topics;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Guarded by this
+        private final ArrayDeque<Change> queue = new ArrayDeque<>();
+        private boolean catchingUp;
+        private boolean heartbeatDue;
+        // Last change id that was sent or skipped; only touched by the sender that holds scheduled
+        private long position;
+        private volatile boolean closed;
+        // System.nanoTime() at the start of the send in progress, IDLE between sends, WRITTEN_OFF
+        // once a send took longer than send-timeout
+        private final AtomicLong sendStarted = new AtomicLong(IDLE);
+
+        Subscriber(SseEmitter emitter, Set<OutboxEvent.Topic> topics, long position, boolean catchingUp) {
+            this.emitter = emitter;
+            this.topics = topics;
+            this.position = position;
+            this.catchingUp = catchingUp;
+        }
+
+        void offer(Change change) {
+            if (closed || !topics.contains(change.topic())) {
+                return;
+            }
+            synchronized (this) {
+                if (catchingUp) {
+                    // Catch-up pages only read ids after the position, so late changes are queued
+                    // for when the subscriber is live again
+                    if (!change.late() || queue.size() >= queueCapacity) {
+                        return;
+                    }
+                    queue.add(change);
+                    return;
+                }
+                if (queue.size() >= queueCapacity) {
+                    // Too slow for live delivery: drop the queue and read from the outbox instead
+                    queue.clear();
+                    catchingUp = true;
+                } else {
+                    queue.add(change);
+                }
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                heartbeatDue = true;
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RuntimeException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        // Runs on one sender thread at a time per subscriber
+        private void drain() {
+            boolean failed = false;
+            try {
+                while (!closed) {
+                    if (isCatchingUp()) {
+                        catchUp();
+                        continue;
+                    }
+                    Change next;
+                    boolean ping;
+                    synchronized (this) {
+                        next = queue.poll();
+                        ping = heartbeatDue;
+                        heartbeatDue = false;
+                    }
+                    if (ping) {
+                        write(SseEmitter.event().comment("keep-alive"));
+                    }
+                    if (next == null) {
+                        scheduled.set(false);
+                        // An offer may have slipped in between the poll and the flag reset
+                        if (!hasWork() || !scheduled.compareAndSet(false, true)) {
+                            return;
+                        }
+                    } else if (next.id() > position || next.late()) {
+                        send(next);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client gone or emitter already completed; the container finishes the request
+                failed = true;
+                close();
+            } finally {
+                if (sendStarted.get() == WRITTEN_OFF) {
+                    // The stalled send has returned: end the response and retire the stand-in thread
+                    if (!failed) {
+                        emitter.complete();
+                    }
+                    resizeSenders(-1);
+                }
+            }
+        }
+
+        // Pages through the outbox up to the live cursor. After a short page the subscriber goes
+        // back to live delivery and reads once more what was committed in the meantime.
+        private void catchUp() throws IOException {
+            Optional<Long> oldest = repository.findMinId();
+            if (oldest.isPresent() && oldest.get() > position + 1) {
+                // Part of the requested history was purged: the client has to reload
+                write(SseEmitter.event().name("reset").data("{\"reason\":\"history purged\"}"));
+                position = oldest.get() - 1;
+            }
+            if (sendPage() == CATCH_UP_PAGE) {
+                return;
+            }
+            synchronized (this) {
+                catchingUp = false;
+            }
+            // Changes handed out while the flag was still set are read here; later ones queue up,
+            // and changes that arrive both ways are skipped by position
+            if (sendPage() == CATCH_UP_PAGE) {
+                synchronized (this) {
+                    catchingUp = true;
+                    queue.clear();
+                }
+            }
+        }
+
+        private int sendPage() throws IOException {
+            List<OutboxEvent> page = repository.findByIdGreaterThanAndIdLessThanEqualOrderById(
+                    position, cursor, Limit.of(CATCH_UP_PAGE));
+            for (OutboxEvent event : page) {
+                Change change = Change.of(event, false);
+                if (topics.contains(change.topic())) {
+                    send(change);
+                } else {
+                    position = change.id();
+                }
+            }
+            return page.size();
+        }
+
+        private void send(Change change) throws IOException {
+            write(SseEmitter.event()
+                    .id(String.valueOf(change.id()))
+                    .name(change.topic().name().toLowerCase(Locale.ROOT))
+                    .data(change.payload()));
+            position = Math.max(position, change.id());
+        }
+
+        private void write(SseEmitter.SseEventBuilder event) throws IOException {
+            long started = System.nanoTime();
+            sendStarted.set(started);
+            try {
+                emitter.send(event);
+            } finally {
+                sendStarted.compareAndSet(started, IDLE);
+            }
+        }
+
+        // Called by dropStalled; true when the send in progress is written off by this call
+        boolean writeOffIfStalled(long now) {
+            long started = sendStarted.get();
+            if (started == IDLE || started == WRITTEN_OFF || now - started < sendTimeout.toNanos()
+                    || !sendStarted.compareAndSet(started, WRITTEN_OFF)) {
+                return false;
+            }
+            close();
+            return true;
+        }
+
+        private synchronized boolean isCatchingUp() {
+            return catchingUp;
+        }
+
+        private synchronized boolean hasWork() {
+            return catchingUp || heartbeatDue || !queue.isEmpty();
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.OrderEvent;
+import com.example.autoservice.model.OutboxEvent;
+import com.example.autoservice.model.Part;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+
+// Write side of the change feed: changes are inserted in the transaction that makes them, so
+// a change is published exactly when it commits, on every instance that polls the outbox
+// (see ChangeFeed). Rolled back changes never reach subscribers.
+@Service
+public class ChangeOutbox {
+
+    private final OutboxEventRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Clock clock = Clock.systemUTC();
+
+    public ChangeOutbox(OutboxEventRepository repository, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderChanged(ServiceOrder order, OrderEvent.Type type, long sequence) {
+        record(OutboxEvent.Topic.ORDERS, type.name(), order.getId(),
+                new OrderChange(order.getId(), sequence, type, order.isCompleted(), order.getRequiredTaskCount(),
+                        order.getCompletedTaskCount(), order.getTotalCost()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void stockChanged(Part part) {
+        record(OutboxEvent.Topic.STOCK, "STOCK_CHANGED", part.getId(),
+                new StockChange(part.getId(), part.getName(), part.getPartNumber(), part.getStock(),
+                        Boolean.TRUE.equals(part.getIsAvailable())));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void partRemoved(Long partId) {
+        record(OutboxEvent.Topic.STOCK, "PART_REMOVED", partId, new StockChange(partId, null, null, 0, false));
+    }
+
+    private void record(OutboxEvent.Topic topic, String type, Long entityId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize change", e);
+        }
+        repository.save(new OutboxEvent(topic, type, entityId, json, clock.instant()));
+    }
+
+    public record OrderChange(Long orderId, long sequence, OrderEvent.Type type, boolean completed,
+                              int requiredTasks, int completedTasks, double totalCost) {
+    }
+
+    public record StockChange(Long partId, String name, String partNumber, int stock, boolean available) {
+    }
+}
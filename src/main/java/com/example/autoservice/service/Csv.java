@@ -0,0 +1,111 @@
+package com.example.autoservice.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// RFC 4180 CSV as used by the exports and the part import: comma separated, fields with a comma,
+// quote or line break are quoted and quotes inside them doubled.
+final class Csv {
+
+    private Csv() {
+    }
+
+    static String line(List<?> values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values.get(i);
+            if (value != null) {
+                line.append(field(value.toString()));
+            }
+        }
+        return line.toString();
+    }
+
+    private static String field(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // Reads one record at a time; a quoted field may span lines
+    static final class RecordReader {
+
+        private final Reader reader;
+        private int linesRead;
+        private int lineNumber;
+        private int pushedBack = -2;
+
+        RecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        // Line the record last returned by next() starts on
+        int lineNumber() {
+            return lineNumber;
+        }
+
+        // The fields of the next record, or null at the end of the input. A quoted field that is
+        // never closed is an IllegalArgumentException.
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            lineNumber = linesRead + 1;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        linesRead++;
+                    }
+                    field.append((char) c);
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r' || c == -1) {
+                    if (c == '\r') {
+                        int after = read();
+                        if (after != '\n') {
+                            pushedBack = after;
+                        }
+                    }
+                    linesRead++;
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
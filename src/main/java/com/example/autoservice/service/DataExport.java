@@ -0,0 +1,175 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.repository.ArchivedOrderRepository;
+import com.example.autoservice.repository.PartRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+// CSV and NDJSON exports of the parts catalog and the orders. Rows are read through a database
+// cursor (see the fetch-size hints on the export queries) and written as they arrive; they are
+// projections rather than entities, so neither the heap nor the persistence context grows with
+// the size of the export.
+@Service
+public class DataExport {
+
+    private final PartRepository partRepository;
+    private final ServiceOrderRepository orderRepository;
+    private final ArchivedOrderRepository archiveRepository;
+    private final ObjectMapper objectMapper;
+
+    public DataExport(PartRepository partRepository,
+                      ServiceOrderRepository orderRepository,
+                      ArchivedOrderRepository archiveRepository,
+                      ObjectMapper objectMapper) {
+        this.partRepository = partRepository;
+        this.orderRepository = orderRepository;
+        this.archiveRepository = archiveRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // The CSV columns are the ones PartImportService reads, so an export can be edited and imported
+    @Transactional(readOnly = true)
+    public long exportParts(Format format, Writer writer) throws IOException {
+        try (Stream<PartRepository.ExportView> rows = partRepository.streamAllForExport()) {
+            return write(rows.map(PartRow::of).iterator(), PartRow.COLUMNS, format, writer);
+        }
+    }
+
+    // Current and archived orders created in [from, to), merged in id order. Both queries read the
+    // same snapshot, so an order archived during the export is written exactly once.
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long exportOrders(Instant from, Instant to, Format format, Writer writer) throws IOException {
+        try (Stream<ServiceOrderRepository.OrderExportView> current = orderRepository.streamOrdersCreatedBetween(from, to);
+             Stream<ServiceOrderRepository.OrderExportView> archived = archiveRepository.streamArchivedOrdersCreatedBetween(from, to)) {
+            Iterator<OrderRow> rows = new MergedById(current.map(view -> OrderRow.of(view, false)).iterator(),
+                    archived.map(view -> OrderRow.of(view, true)).iterator());
+            return write(rows, OrderRow.COLUMNS, format, writer);
+        }
+    }
+
+    private long write(Iterator<? extends ExportRow> rows, List<String> columns, Format format, Writer writer)
+            throws IOException {
+        if (format == Format.CSV) {
+            writer.write(Csv.line(columns));
+            writer.write('\n');
+        }
+        long count = 0;
+        while (rows.hasNext()) {
+            ExportRow row = rows.next();
+            writer.write(format == Format.CSV ? Csv.line(row.values()) : objectMapper.writeValueAsString(row));
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    public enum Format {
+        CSV("text/csv"), NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        // null when the format is not supported
+        public static Format parse(String value) {
+            return Arrays.stream(values()).filter(format -> format.name().equalsIgnoreCase(value)).findFirst().orElse(null);
+        }
+    }
+
+    interface ExportRow {
+        List<Object> values();
+    }
+
+    public record PartRow(Long id, String partNumber, String name, String category, String manufacturer,
+                          Double price, Integer stock, Boolean available, String description) implements ExportRow {
+        static final List<String> COLUMNS = List.of("id", "partNumber", "name", "category", "manufacturer",
+                "price", "stock", "available", "description");
+
+        static PartRow of(PartRepository.ExportView view) {
+            return new PartRow(view.getId(), view.getPartNumber(), view.getName(), view.getCategory(),
+                    view.getManufacturer(), view.getPrice(), view.getStock(), view.getAvailable(), view.getDescription());
+        }
+
+        @Override
+        public List<Object> values() {
+            return Arrays.asList(id, partNumber, name, category, manufacturer, price, stock, available, description);
+        }
+    }
+
+    public record OrderRow(Long id, Long customerId, Long vehicleId, Long mechanicId, Instant createdAt,
+                           Instant closedAt, boolean completed, Double totalCost, boolean archived) implements ExportRow {
+        static final List<String> COLUMNS = List.of("id", "customerId", "vehicleId", "mechanicId", "createdAt",
+                "closedAt", "completed", "totalCost", "archived");
+
+        static OrderRow of(ServiceOrderRepository.OrderExportView view, boolean archived) {
+            return new OrderRow(view.getId(), view.getCustomerId(), view.getVehicleId(), view.getMechanicId(),
+                    view.getCreatedAt(), view.getClosedAt(), view.isCompleted(), view.getTotalCost(), archived);
+        }
+
+        @Override
+        public List<Object> values() {
+            return Arrays.asList(id, customerId, vehicleId, mechanicId, createdAt, closedAt, completed, totalCost, archived);
+        }
+    }
+
+    // Merges two id-ordered row sequences into one
+    private static final class MergedById implements Iterator<OrderRow> {
+
+        private final Iterator<OrderRow> left;
+        private final Iterator<OrderRow> right;
+        private OrderRow nextLeft;
+        private OrderRow nextRight;
+
+        MergedById(Iterator<OrderRow> left, Iterator<OrderRow> right) {
+            this.left = left;
+            this.right = right;
+            this.nextLeft = left.hasNext() ? left.next() : null;
+            this.nextRight = right.hasNext() ? right.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLeft != null || nextRight != null;
+        }
+
+        @Override
+        public OrderRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            OrderRow row;
+            if (nextRight == null || (nextLeft != null && nextLeft.id() < nextRight.id())) {
+                row = nextLeft;
+                nextLeft = left.hasNext() ? left.next() : null;
+            } else {
+                row = nextRight;
+                nextRight = right.hasNext() ? right.next() : null;
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.repository.PartRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Running inventory value (sum of price * stock) with per-category and per-manufacturer
+// breakdowns. Writers report deltas, which are applied once their transaction commits,
+// so reads never touch the parts table.
+//
+// A transaction holds the read side of commitLock from just before its commit until its deltas
+// are applied; loading the totals from the database takes the write side. A load therefore sees
+// either both the committed rows and the applied deltas of a transaction or neither, and no
+// delta can land on the totals between a load and the swap that installs them.
+@Service
+public class InventoryValuation {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryValuation.class);
+    private static final String NO_MANUFACTURER = "(none)";
+    private static final double TOLERANCE = 0.01;
+
+    private final PartRepository repository;
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private volatile Totals totals = new Totals();
+
+    public InventoryValuation(PartRepository repository) {
+        this.repository = repository;
+    }
+
+    public double getTotalValue() {
+        return totals.total.sum();
+    }
+
+    public Map<String, Double> getValueByCategory() {
+        return snapshot(totals.byCategory);
+    }
+
+    public Map<String, Double> getValueByManufacturer() {
+        return snapshot(totals.byManufacturer);
+    }
+
+    // Records a change of value for parts of the given category and manufacturer
+    public void adjust(String category, String manufacturer, double delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private boolean locked;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    commitLock.readLock().lock();
+                    locked = true;
+                }
+
+                @Override
+                public void afterCommit() {
+                    apply(category, manufacturer, delta);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (locked) {
+                        commitLock.readLock().unlock();
+                    }
+                }
+            });
+        } else {
+            commitLock.readLock().lock();
+            try {
+                apply(category, manufacturer, delta);
+            } finally {
+                commitLock.readLock().unlock();
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        commitLock.writeLock().lock();
+        try {
+            totals = load();
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        log.info("Inventory value initialized: {}", getTotalValue());
+    }
+
+    @Scheduled(fixedDelayString = "${autoservice.inventory.reconcile-interval:PT5M}",
+            initialDelayString = "${autoservice.inventory.reconcile-interval:PT5M}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    // Compares the tracked aggregates with the database and replaces them when they drifted.
+    // Commits wait while the single aggregate query runs.
+    public ReconciliationReport reconcile() {
+        Map<String, Double> drift = new TreeMap<>();
+        double trackedTotal;
+        double actualTotal;
+        boolean drifted;
+        commitLock.writeLock().lock();
+        try {
+            Totals current = totals;
+            Totals actual = load();
+            collectDrift("category:", current.byCategory, actual.byCategory, drift);
+            collectDrift("manufacturer:", current.byManufacturer, actual.byManufacturer, drift);
+            trackedTotal = current.total.sum();
+            actualTotal = actual.total.sum();
+            drifted = !drift.isEmpty() || Math.abs(trackedTotal - actualTotal) > TOLERANCE;
+            if (drifted) {
+                totals = actual;
+            }
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        if (drifted) {
+            log.warn("Inventory value drifted by {} (tracked {}, actual {}): {}",
+                    trackedTotal - actualTotal, trackedTotal, actualTotal, drift);
+        }
+        return new ReconciliationReport(trackedTotal, actualTotal, drifted, drift);
+    }
+
+    private Totals load() {
+        Totals loaded = new Totals();
+        for (PartRepository.ValueBreakdown row : repository.sumValueByCategoryAndManufacturer()) {
+            double value = row.getValue() != null ? row.getValue() : 0.0;
+            loaded.add(row.getCategory(), row.getManufacturer(), value);
+        }
+        return loaded;
+    }
+
+    private void apply(String category, String manufacturer, double delta) {
+        totals.add(category, manufacturer, delta);
+    }
+
+    private static void collectDrift(String prefix, Map<String, DoubleAdder> tracked,
+                                     Map<String, DoubleAdder> actual, Map<String, Double> drift) {
+        Set<String> keys = new HashSet<>(tracked.keySet());
+        keys.addAll(actual.keySet());
+        for (String key : keys) {
+            double trackedValue = tracked.containsKey(key) ? tracked.get(key).sum() : 0.0;
+            double actualValue = actual.containsKey(key) ? actual.get(key).sum() : 0.0;
+            if (Math.abs(trackedValue - actualValue) > TOLERANCE) {
+                drift.put(prefix + key, trackedValue - actualValue);
+            }
+        }
+    }
+
+    private static Map<String, Double> snapshot(Map<String, DoubleAdder> values) {
+        Map<String, Double> result = new HashMap<>();
+        values.forEach((key, value) -> result.put(key, value.sum()));
+        return result;
+    }
+
+    private static final class Totals {
+        final DoubleAdder total = new DoubleAdder();
+        final Map<String, DoubleAdder> byCategory = new ConcurrentHashMap<>();
+        final Map<String, DoubleAdder> byManufacturer = new ConcurrentHashMap<>();
+
+        void add(String category, String manufacturer, double delta) {
+            total.add(delta);
+            if (category != null) {
+                byCategory.computeIfAbsent(category, key -> new DoubleAdder()).add(delta);
+            }
+            String manufacturerKey = manufacturer != null ? manufacturer : NO_MANUFACTURER;
+            byManufacturer.computeIfAbsent(manufacturerKey, key -> new DoubleAdder()).add(delta);
+        }
+    }
+
+    public record ReconciliationReport(double trackedTotal, double actualTotal, boolean drifted,
+                                       Map<String, Double> drift) {
+    }
+}
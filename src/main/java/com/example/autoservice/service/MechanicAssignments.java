@@ -0,0 +1,125 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Mechanic;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.MechanicRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+import java.util.Optional;
+
+// Picks mechanics for orders by specialization and open workload. Workloads live in memory
+// (see MechanicQueues) and follow every change to an order's mechanic or open state; like the
+// stock holds, a change made inside a transaction is undone if the transaction rolls back.
+// The queues are filled from the database on startup.
+@Service
+public class MechanicAssignments {
+
+    private static final Logger log = LoggerFactory.getLogger(MechanicAssignments.class);
+
+    private final MechanicRepository mechanicRepository;
+    private final ServiceOrderRepository orderRepository;
+    private final MechanicQueues queues = new MechanicQueues();
+
+    public MechanicAssignments(MechanicRepository mechanicRepository, ServiceOrderRepository orderRepository) {
+        this.mechanicRepository = mechanicRepository;
+        this.orderRepository = orderRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        queues.clear();
+        for (Mechanic mechanic : mechanicRepository.findAll()) {
+            queues.register(mechanic.getId(), mechanic.getBranch(), mechanic.getSpecialization());
+        }
+        for (Object[] row : orderRepository.countOpenOrdersByMechanic()) {
+            queues.changeLoad((Long) row[0], ((Number) row[1]).intValue());
+        }
+        log.info("Mechanic queues built with {} mechanics", queues.size());
+    }
+
+    public void mechanicSaved(Mechanic mechanic) {
+        queues.register(mechanic.getId(), mechanic.getBranch(), mechanic.getSpecialization());
+    }
+
+    public void mechanicRemoved(Long mechanicId) {
+        queues.remove(mechanicId);
+    }
+
+    // Open orders currently counted for the mechanic
+    public int openOrders(Long mechanicId) {
+        return queues.load(mechanicId).orElse(0);
+    }
+
+    // Gives the order to the least loaded mechanic of the branch, preferring the specialization.
+    // An open order that had a mechanic is taken off that mechanic's workload.
+    public Optional<Mechanic> assign(ServiceOrder order, String branch, String specialization) {
+        Optional<Long> picked = queues.assign(branch, specialization);
+        if (picked.isEmpty()) {
+            return Optional.empty();
+        }
+        Long mechanicId = picked.get();
+        // The pick already counts the order. Deleting a mechanic takes it off the queues, so the id
+        // names an existing mechanic and a reference is enough: nothing is loaded to assign it.
+        Mechanic mechanic = mechanicRepository.getReferenceById(mechanicId);
+        onRollback(() -> queues.changeLoad(mechanicId, -1));
+        Long previous = mechanicId(order);
+        order.setMechanic(mechanic);
+        if (previous != null && !order.isCompleted()) {
+            change(previous, -1);
+        }
+        return Optional.of(mechanic);
+    }
+
+    // To be called after the order's mechanic or completed flag may have changed
+    public void orderChanged(Long previousMechanicId, boolean wasOpen, ServiceOrder order) {
+        Long current = mechanicId(order);
+        boolean open = !order.isCompleted();
+        if (Objects.equals(previousMechanicId, current) && wasOpen == open) {
+            return;
+        }
+        if (previousMechanicId != null && wasOpen) {
+            change(previousMechanicId, -1);
+        }
+        if (current != null && open) {
+            change(current, 1);
+        }
+    }
+
+    public void orderRemoved(ServiceOrder order) {
+        Long mechanicId = mechanicId(order);
+        if (mechanicId != null && !order.isCompleted()) {
+            change(mechanicId, -1);
+        }
+    }
+
+    public static Long mechanicId(ServiceOrder order) {
+        return order.getMechanic() != null ? order.getMechanic().getId() : null;
+    }
+
+    private void change(Long mechanicId, int delta) {
+        queues.changeLoad(mechanicId, delta);
+        onRollback(() -> queues.changeLoad(mechanicId, -delta));
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
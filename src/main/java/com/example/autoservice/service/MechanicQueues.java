@@ -0,0 +1,163 @@
+package com.example.autoservice.service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Open-order workload of mechanics, in one priority queue per (branch, specialization).
+// A queue keeps its mechanics ordered by open orders, then by how long ago their load last
+// changed, so equally loaded mechanics take turns. Picking the least loaded mechanic and
+// changing a load are O(log n) under the lock of a single queue.
+public class MechanicQueues {
+
+    private final Map<String, Map<String, Queue>> queuesByBranch = new ConcurrentHashMap<>();
+    // Queue of every known mechanic; changes for one mechanic run inside compute for its id
+    private final Map<Long, Queue> queueByMechanic = new ConcurrentHashMap<>();
+
+    // Adds the mechanic with no open orders, or moves it with its load when branch or
+    // specialization changed
+    public void register(Long mechanicId, String branch, String specialization) {
+        Queue target = queuesByBranch.computeIfAbsent(key(branch), b -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key(specialization), s -> new Queue());
+        queueByMechanic.compute(mechanicId, (id, current) -> {
+            if (current == target) {
+                return current;
+            }
+            target.add(id, current != null ? current.remove(id) : 0);
+            return target;
+        });
+    }
+
+    public void remove(Long mechanicId) {
+        queueByMechanic.computeIfPresent(mechanicId, (id, queue) -> {
+            queue.remove(id);
+            return null;
+        });
+    }
+
+    // Takes the least loaded mechanic with the specialization in the branch, or the least loaded
+    // one of the whole branch when nobody there has it, and counts one more open order for it
+    public Optional<Long> assign(String branch, String specialization) {
+        Map<String, Queue> queues = queuesByBranch.get(key(branch));
+        if (queues == null) {
+            return Optional.empty();
+        }
+        if (specialization != null && !specialization.isBlank()) {
+            Queue queue = queues.get(key(specialization));
+            Long mechanicId = queue != null ? queue.takeLeastLoaded() : null;
+            if (mechanicId != null) {
+                return Optional.of(mechanicId);
+            }
+        }
+        while (true) {
+            Queue best = null;
+            int bestLoad = Integer.MAX_VALUE;
+            for (Queue queue : queues.values()) {
+                int load = queue.lowestLoad();
+                if (load < bestLoad) {
+                    best = queue;
+                    bestLoad = load;
+                }
+            }
+            if (best == null) {
+                return Optional.empty();
+            }
+            // Null when the queue was emptied in the meantime: look again
+            Long mechanicId = best.takeLeastLoaded();
+            if (mechanicId != null) {
+                return Optional.of(mechanicId);
+            }
+        }
+    }
+
+    // Ignored for mechanics that are not registered
+    public void changeLoad(Long mechanicId, int delta) {
+        queueByMechanic.computeIfPresent(mechanicId, (id, queue) -> {
+            queue.adjust(id, delta);
+            return queue;
+        });
+    }
+
+    public OptionalInt load(Long mechanicId) {
+        Queue queue = queueByMechanic.get(mechanicId);
+        return queue != null ? queue.load(mechanicId) : OptionalInt.empty();
+    }
+
+    public int size() {
+        return queueByMechanic.size();
+    }
+
+    public void clear() {
+        queueByMechanic.clear();
+        queuesByBranch.clear();
+    }
+
+    // Names are matched ignoring case and surrounding blanks; no branch is a branch of its own
+    private static String key(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Slot(int load, long ticket, Long mechanicId) implements Comparable<Slot> {
+        @Override
+        public int compareTo(Slot other) {
+            int byLoad = Integer.compare(load, other.load);
+            return byLoad != 0 ? byLoad : Long.compare(ticket, other.ticket);
+        }
+    }
+
+    private static final class Queue {
+        private final TreeSet<Slot> byLoad = new TreeSet<>();
+        private final Map<Long, Slot> slots = new HashMap<>();
+        private long ticket;
+
+        synchronized void add(Long mechanicId, int load) {
+            put(mechanicId, load);
+        }
+
+        synchronized int remove(Long mechanicId) {
+            Slot slot = slots.remove(mechanicId);
+            if (slot == null) {
+                return 0;
+            }
+            byLoad.remove(slot);
+            return slot.load();
+        }
+
+        synchronized Long takeLeastLoaded() {
+            Slot first = byLoad.pollFirst();
+            if (first == null) {
+                return null;
+            }
+            put(first.mechanicId(), first.load() + 1);
+            return first.mechanicId();
+        }
+
+        synchronized void adjust(Long mechanicId, int delta) {
+            Slot slot = slots.get(mechanicId);
+            if (slot != null) {
+                byLoad.remove(slot);
+                put(mechanicId, Math.max(0, slot.load() + delta));
+            }
+        }
+
+        synchronized int lowestLoad() {
+            return byLoad.isEmpty() ? Integer.MAX_VALUE : byLoad.first().load();
+        }
+
+        synchronized OptionalInt load(Long mechanicId) {
+            Slot slot = slots.get(mechanicId);
+            return slot != null ? OptionalInt.of(slot.load()) : OptionalInt.empty();
+        }
+
+        // The new ticket puts the mechanic behind the others with the same load
+        private void put(Long mechanicId, int load) {
+            Slot slot = new Slot(load, ++ticket, mechanicId);
+            slots.put(mechanicId, slot);
+            byLoad.add(slot);
+        }
+    }
+}
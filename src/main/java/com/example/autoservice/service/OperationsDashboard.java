@@ -0,0 +1,413 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.OrderLine;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.ArchivedOrderRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+// Operations dashboard: open orders per mechanic, closed orders, revenue and time to close per
+// day, and parts consumed per category. Like InventoryValuation, writers report how an order's
+// figures changed and the difference is applied once the transaction commits, so reading the
+// dashboard never touches the orders. The figures are a function of the current orders: a
+// deleted or reopened order drops out again. Archived orders are kept apart: they cannot
+// change, so only the working set is reconciled. Commits and reconciliation are serialized the
+// way InventoryValuation does it, through the read and write sides of commitLock.
+@Service
+public class OperationsDashboard {
+
+    private static final Logger log = LoggerFactory.getLogger(OperationsDashboard.class);
+    private static final Long UNASSIGNED = 0L;
+    private static final String NO_CATEGORY = "(none)";
+    private static final double TOLERANCE = 0.01;
+
+    private final ServiceOrderRepository repository;
+    private final ArchivedOrderRepository archiveRepository;
+    private final InventoryValuation valuation;
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private volatile Totals totals = new Totals();
+    private volatile Totals archived = new Totals();
+
+    public OperationsDashboard(ServiceOrderRepository repository, ArchivedOrderRepository archiveRepository,
+                               InventoryValuation valuation) {
+        this.repository = repository;
+        this.archiveRepository = archiveRepository;
+        this.valuation = valuation;
+    }
+
+    // Figures of the order as it is now; taken before a change and compared afterwards.
+    // Reads the lines of completed orders only.
+    public OrderFigures figures(ServiceOrder order) {
+        return OrderFigures.of(order);
+    }
+
+    // Records the change from before to the order's current state; null on either side for
+    // created and deleted orders
+    public void changed(OrderFigures before, ServiceOrder after) {
+        OrderFigures current = after != null ? OrderFigures.of(after) : null;
+        if (Objects.equals(before, current)) {
+            return;
+        }
+        afterCommit(() -> apply(before, current));
+    }
+
+    // Moves the figures of archived orders from the working set to the archive
+    public void archived(List<OrderFigures> figures) {
+        afterCommit(() -> {
+            Totals hot = totals;
+            Totals cold = archived;
+            for (OrderFigures order : figures) {
+                hot.add(order, -1);
+                cold.add(order, 1);
+            }
+        });
+    }
+
+    // Days from today back to days - 1 days ago; days without closed orders are left out
+    public Dashboard read(int days) {
+        Totals current = totals;
+        Totals cold = archived;
+        LocalDate from = LocalDate.now(ZoneOffset.UTC).minusDays(Math.max(days, 1) - 1L);
+        Map<LocalDate, DayTotals> byDay = new TreeMap<>();
+        Map<String, PartTotals> partsByCategory = new TreeMap<>();
+        for (Totals source : List.of(current, cold)) {
+            source.byDay.tailMap(from).forEach((day, dayTotals) ->
+                    byDay.computeIfAbsent(day, d -> new DayTotals()).add(dayTotals));
+            source.partsByCategory.forEach((category, consumed) ->
+                    partsByCategory.computeIfAbsent(category, c -> new PartTotals()).add(consumed));
+        }
+        List<Day> recent = new ArrayList<>();
+        byDay.forEach((day, dayTotals) -> {
+            if (dayTotals.orders.sum() > 0) {
+                recent.add(dayTotals.toDay(day));
+            }
+        });
+        Map<Long, Long> openByMechanic = new TreeMap<>();
+        current.openByMechanic.forEach((mechanicId, count) -> {
+            if (!mechanicId.equals(UNASSIGNED) && count.sum() > 0) {
+                openByMechanic.put(mechanicId, count.sum());
+            }
+        });
+        Map<String, Consumption> parts = new TreeMap<>();
+        partsByCategory.forEach((category, consumed) -> {
+            if (consumed.units.sum() != 0) {
+                parts.put(category, consumed.toConsumption());
+            }
+        });
+        long closed = current.closedOrders.sum() + cold.closedOrders.sum();
+        LongAdder unassigned = current.openByMechanic.get(UNASSIGNED);
+        return new Dashboard(
+                current.openOrders.sum(),
+                unassigned != null ? unassigned.sum() : 0,
+                openByMechanic,
+                closed,
+                current.revenue.sum() + cold.revenue.sum(),
+                closed > 0 ? (current.closeSeconds.sum() + cold.closeSeconds.sum()) / closed : null,
+                recent,
+                parts,
+                valuation.getTotalValue());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        commitLock.writeLock().lock();
+        try {
+            totals = load();
+            archived = loadArchived();
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        log.info("Operations dashboard built: {} open, {} closed and {} archived orders",
+                totals.openOrders.sum(), totals.closedOrders.sum(), archived.closedOrders.sum());
+    }
+
+    @Scheduled(fixedDelayString = "${autoservice.dashboard.reconcile-interval:PT15M}",
+            initialDelayString = "${autoservice.dashboard.reconcile-interval:PT15M}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    // Compares the tracked aggregates of the working set with the database and replaces them
+    // when they drifted. Commits wait while the aggregate queries run.
+    public ReconciliationReport reconcile() {
+        Map<String, Double> drift = new TreeMap<>();
+        commitLock.writeLock().lock();
+        try {
+            Totals current = totals;
+            Totals actual = load();
+            collectDrift("open:", counts(current.openByMechanic), counts(actual.openByMechanic), drift);
+            collectDrift("closed:", dayCounts(current), dayCounts(actual), drift);
+            collectDrift("revenue:", dayValues(current, DayTotals::revenue),
+                    dayValues(actual, DayTotals::revenue), drift);
+            collectDrift("close-seconds:", dayValues(current, DayTotals::closeSeconds),
+                    dayValues(actual, DayTotals::closeSeconds), drift);
+            collectDrift("units:", categoryValues(current, true), categoryValues(actual, true), drift);
+            collectDrift("parts-value:", categoryValues(current, false), categoryValues(actual, false), drift);
+            if (!drift.isEmpty()) {
+                totals = actual;
+            }
+        } finally {
+            commitLock.writeLock().unlock();
+        }
+        boolean drifted = !drift.isEmpty();
+        if (drifted) {
+            log.warn("Operations dashboard drifted: {}", drift);
+        }
+        return new ReconciliationReport(drifted, drift);
+    }
+
+    private Totals load() {
+        Totals loaded = new Totals();
+        for (ServiceOrderRepository.OpenOrdersView row : repository.countOpenOrdersPerMechanic()) {
+            Long mechanicId = row.getMechanicId() != null ? row.getMechanicId() : UNASSIGNED;
+            loaded.openByMechanic.computeIfAbsent(mechanicId, id -> new LongAdder()).add(row.getOrders());
+            loaded.openOrders.add(row.getOrders());
+        }
+        addRows(loaded, repository.sumClosedOrdersPerDay(), repository.sumConsumedPartsPerCategory());
+        return loaded;
+    }
+
+    private Totals loadArchived() {
+        Totals loaded = new Totals();
+        addRows(loaded, archiveRepository.sumArchivedOrdersPerDay(), archiveRepository.sumArchivedPartsPerCategory());
+        return loaded;
+    }
+
+    private static void addRows(Totals totals, List<ServiceOrderRepository.ClosedDayView> days,
+                                List<ServiceOrderRepository.ConsumptionView> parts) {
+        for (ServiceOrderRepository.ClosedDayView row : days) {
+            double revenue = row.getRevenue() != null ? row.getRevenue() : 0.0;
+            double closeSeconds = row.getCloseSeconds() != null ? row.getCloseSeconds() : 0.0;
+            totals.addClosed(row.getDay(), row.getOrders(), revenue, closeSeconds);
+        }
+        for (ServiceOrderRepository.ConsumptionView row : parts) {
+            totals.addParts(row.getCategory(), row.getUnits() != null ? row.getUnits() : 0,
+                    row.getValue() != null ? row.getValue() : 0.0);
+        }
+    }
+
+    // The read side of commitLock is held from just before the commit until the action ran
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commitLock.readLock().lock();
+            try {
+                action.run();
+            } finally {
+                commitLock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitLock.readLock().lock();
+                locked = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    commitLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private void apply(OrderFigures before, OrderFigures after) {
+        Totals current = totals;
+        if (before != null) {
+            current.add(before, -1);
+        }
+        if (after != null) {
+            current.add(after, 1);
+        }
+    }
+
+    private static Map<String, Double> counts(Map<Long, LongAdder> values) {
+        Map<String, Double> result = new HashMap<>();
+        values.forEach((key, value) -> result.put(String.valueOf(key), (double) value.sum()));
+        return result;
+    }
+
+    private static Map<String, Double> dayCounts(Totals totals) {
+        Map<String, Double> result = new HashMap<>();
+        totals.byDay.forEach((day, value) -> result.put(day.toString(), (double) value.orders.sum()));
+        return result;
+    }
+
+    private static Map<String, Double> dayValues(Totals totals, Function<DayTotals, DoubleAdder> value) {
+        Map<String, Double> result = new HashMap<>();
+        totals.byDay.forEach((day, dayTotals) -> result.put(day.toString(), value.apply(dayTotals).sum()));
+        return result;
+    }
+
+    private static Map<String, Double> categoryValues(Totals totals, boolean units) {
+        Map<String, Double> result = new HashMap<>();
+        totals.partsByCategory.forEach((category, consumed) ->
+                result.put(category, units ? consumed.units.sum() : consumed.value.sum()));
+        return result;
+    }
+
+    private static void collectDrift(String prefix, Map<String, Double> tracked, Map<String, Double> actual,
+                                     Map<String, Double> drift) {
+        Set<String> keys = new HashSet<>(tracked.keySet());
+        keys.addAll(actual.keySet());
+        for (String key : keys) {
+            double trackedValue = tracked.getOrDefault(key, 0.0);
+            double actualValue = actual.getOrDefault(key, 0.0);
+            if (Math.abs(trackedValue - actualValue) > TOLERANCE) {
+                drift.put(prefix + key, trackedValue - actualValue);
+            }
+        }
+    }
+
+    // What one order contributes to the dashboard
+    public record OrderFigures(Long mechanicId, boolean completed, LocalDate closedOn, double revenue,
+                               double closeSeconds, Map<String, Consumption> parts) {
+
+        static OrderFigures of(ServiceOrder order) {
+            Long mechanicId = order.getMechanic() != null ? order.getMechanic().getId() : null;
+            if (!order.isCompleted()) {
+                return new OrderFigures(mechanicId, false, null, 0, 0, Map.of());
+            }
+            Map<String, Consumption> parts = new HashMap<>();
+            for (OrderLine line : order.getLines()) {
+                String category = line.getCategory() != null ? line.getCategory() : NO_CATEGORY;
+                parts.merge(category, new Consumption(line.getQuantity(), line.getLineTotal()), Consumption::plus);
+            }
+            double closeSeconds = order.getCreatedAt() != null && order.getClosedAt() != null
+                    ? Duration.between(order.getCreatedAt(), order.getClosedAt()).toNanos() / 1e9
+                    : 0;
+            return new OrderFigures(mechanicId, true, order.getClosedOn(), order.getTotalCost(), closeSeconds, parts);
+        }
+    }
+
+    public record Consumption(long units, double value) {
+        Consumption plus(Consumption other) {
+            return new Consumption(units + other.units, value + other.value);
+        }
+    }
+
+    public record Day(LocalDate day, long closedOrders, double revenue, double averageSecondsToClose) {
+    }
+
+    public record Dashboard(long openOrders,
+                            long unassignedOpenOrders,
+                            Map<Long, Long> openOrdersByMechanic,
+                            long closedOrders,
+                            double revenue,
+                            Double averageSecondsToClose,
+                            List<Day> days,
+                            Map<String, Consumption> partsConsumedByCategory,
+                            double inventoryValue) {
+    }
+
+    public record ReconciliationReport(boolean drifted, Map<String, Double> drift) {
+    }
+
+    private record DayTotals(LongAdder orders, DoubleAdder revenue, DoubleAdder closeSeconds) {
+        DayTotals() {
+            this(new LongAdder(), new DoubleAdder(), new DoubleAdder());
+        }
+
+        void add(DayTotals other) {
+            orders.add(other.orders.sum());
+            revenue.add(other.revenue.sum());
+            closeSeconds.add(other.closeSeconds.sum());
+        }
+
+        Day toDay(LocalDate day) {
+            long count = orders.sum();
+            return new Day(day, count, revenue.sum(), closeSeconds.sum() / count);
+        }
+    }
+
+    private record PartTotals(LongAdder units, DoubleAdder value) {
+        PartTotals() {
+            this(new LongAdder(), new DoubleAdder());
+        }
+
+        void add(PartTotals other) {
+            units.add(other.units.sum());
+            value.add(other.value.sum());
+        }
+
+        Consumption toConsumption() {
+            return new Consumption(units.sum(), value.sum());
+        }
+    }
+
+    private static final class Totals {
+        final LongAdder openOrders = new LongAdder();
+        final Map<Long, LongAdder> openByMechanic = new ConcurrentHashMap<>();
+        final LongAdder closedOrders = new LongAdder();
+        final DoubleAdder revenue = new DoubleAdder();
+        final DoubleAdder closeSeconds = new DoubleAdder();
+        final ConcurrentSkipListMap<LocalDate, DayTotals> byDay = new ConcurrentSkipListMap<>();
+        final Map<String, PartTotals> partsByCategory = new ConcurrentHashMap<>();
+
+        void add(OrderFigures figures, int sign) {
+            if (!figures.completed()) {
+                Long mechanicId = figures.mechanicId() != null ? figures.mechanicId() : UNASSIGNED;
+                openByMechanic.computeIfAbsent(mechanicId, id -> new LongAdder()).add(sign);
+                openOrders.add(sign);
+                return;
+            }
+            addClosed(figures.closedOn(), sign, sign * figures.revenue(), sign * figures.closeSeconds());
+            figures.parts().forEach((category, consumed) ->
+                    addParts(category, sign * consumed.units(), sign * consumed.value()));
+        }
+
+        void addClosed(LocalDate day, long orders, double revenueDelta, double closeSecondsDelta) {
+            closedOrders.add(orders);
+            revenue.add(revenueDelta);
+            closeSeconds.add(closeSecondsDelta);
+            if (day != null) {
+                DayTotals dayTotals = byDay.computeIfAbsent(day, d -> new DayTotals());
+                dayTotals.orders().add(orders);
+                dayTotals.revenue().add(revenueDelta);
+                dayTotals.closeSeconds().add(closeSecondsDelta);
+            }
+        }
+
+        void addParts(String category, long units, double value) {
+            PartTotals partTotals = partsByCategory.computeIfAbsent(category != null ? category : NO_CATEGORY,
+                    c -> new PartTotals());
+            partTotals.units().add(units);
+            partTotals.value().add(value);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.dto.OrderSummary;
+import com.example.autoservice.model.ArchivedOrder;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Moves completed orders that were closed long enough ago out of service_orders and its line
+// and task tables into archived_orders. Orders are moved in id-ordered batches, each in its
+// own transaction, and a run stops after max-batches so it never holds the tables for long.
+// An order reopened or changed while its batch was read fails the version check on delete
+// and stays where it is until the next run.
+@Service
+public class OrderArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiver.class);
+
+    private final ServiceOrderRepository orderRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final OperationsDashboard dashboard;
+    private final ObjectMapper objectMapper;
+    private final Duration closedBefore;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public OrderArchiver(ServiceOrderRepository orderRepository,
+                         EntityManager entityManager,
+                         PlatformTransactionManager transactionManager,
+                         OperationsDashboard dashboard,
+                         ObjectMapper objectMapper,
+                         @Value("${autoservice.archive.closed-before:P90D}") Duration closedBefore,
+                         @Value("${autoservice.archive.batch-size:200}") int batchSize,
+                         @Value("${autoservice.archive.max-batches:50}") int maxBatches) {
+        this.orderRepository = orderRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dashboard = dashboard;
+        this.objectMapper = objectMapper;
+        this.closedBefore = closedBefore;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${autoservice.archive.interval:PT1H}",
+            initialDelayString = "${autoservice.archive.interval:PT1H}")
+    public void scheduledRun() {
+        ArchiveRun run = run();
+        if (run.archived() > 0) {
+            log.info("Archived {} orders in {} batches", run.archived(), run.batches());
+        }
+    }
+
+    public ArchiveRun run() {
+        return run(closedBefore);
+    }
+
+    // Archives the orders closed longer ago than closedBefore
+    public ArchiveRun run(Duration closedBefore) {
+        Instant cutoff = Instant.now().minus(closedBefore);
+        long archived = 0;
+        int batches = 0;
+        while (batches < maxBatches) {
+            Integer moved;
+            try {
+                moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            } catch (OptimisticLockingFailureException e) {
+                log.warn("Archiving stopped, an order changed while it was archived: {}", e.getMessage());
+                break;
+            }
+            if (moved == null || moved == 0) {
+                break;
+            }
+            archived += moved;
+            batches++;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        return new ArchiveRun(archived, batches);
+    }
+
+    private int archiveBatch(Instant cutoff) {
+        List<Long> ids = orderRepository.findIdsToArchive(cutoff, Limit.of(batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<ServiceOrder> orders = orderRepository.findAllById(ids);
+        Instant now = Instant.now();
+        List<OperationsDashboard.OrderFigures> figures = new ArrayList<>();
+        for (ServiceOrder order : orders) {
+            // persist, not save: the id is assigned, and save would select it first
+            entityManager.persist(new ArchivedOrder(order, document(order), now));
+            figures.add(dashboard.figures(order));
+        }
+        orderRepository.deleteAll(orders);
+        orderRepository.flush();
+        dashboard.archived(figures);
+        return orders.size();
+    }
+
+    private String document(ServiceOrder order) {
+        try {
+            return objectMapper.writeValueAsString(OrderSummary.of(order));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Order " + order.getId() + " cannot be archived", e);
+        }
+    }
+
+    public record ArchiveRun(long archived, int batches) {
+    }
+}
@@ -0,0 +1,278 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.dto.OrderState;
+import com.example.autoservice.model.OrderEvent;
+import com.example.autoservice.model.OrderSnapshot;
+import com.example.autoservice.model.Part;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.OrderEventRepository;
+import com.example.autoservice.repository.OrderSnapshotRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Append-only history of service orders. Every business operation adds one row to the order's
+// stream in the transaction that changes the order; the stream position comes from a counter on
+// the order row, so concurrent appends are ordered by the order's optimistic lock. Every
+// snapshot-interval events the full state is stored as well, and replays start from there.
+@Service
+public class OrderEventLog {
+
+    private final OrderEventRepository eventRepository;
+    private final OrderSnapshotRepository snapshotRepository;
+    private final ChangeOutbox outbox;
+    private final ObjectMapper objectMapper;
+    private final int snapshotInterval;
+    private final Clock clock = Clock.systemUTC();
+
+    public OrderEventLog(OrderEventRepository eventRepository, OrderSnapshotRepository snapshotRepository,
+                         ChangeOutbox outbox, ObjectMapper objectMapper,
+                         @Value("${autoservice.orders.events.snapshot-interval:50}") int snapshotInterval) {
+        this.eventRepository = eventRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.outbox = outbox;
+        this.objectMapper = objectMapper;
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+    }
+
+    // All appends run after the operation has been applied to the order
+
+    public void created(ServiceOrder order) {
+        append(order, OrderEvent.Type.CREATED, OrderState.of(order));
+    }
+
+    public void updated(ServiceOrder order) {
+        append(order, OrderEvent.Type.UPDATED, OrderState.of(order));
+    }
+
+    public void partAdded(ServiceOrder order, Part part, int quantity) {
+        append(order, OrderEvent.Type.PART_ADDED, new PartAdded(part.getId(), part.getName(), quantity, part.getPrice()));
+    }
+
+    public void partRemoved(ServiceOrder order, Long partId, int quantity) {
+        append(order, OrderEvent.Type.PART_REMOVED, new PartRemoved(partId, quantity));
+    }
+
+    public void taskAdded(ServiceOrder order, String task) {
+        append(order, OrderEvent.Type.TASK_ADDED, new TaskChange(task));
+    }
+
+    public void taskCompleted(ServiceOrder order, String task) {
+        append(order, OrderEvent.Type.TASK_COMPLETED, new TaskChange(task));
+    }
+
+    public void laborCostChanged(ServiceOrder order, double previous) {
+        append(order, OrderEvent.Type.LABOR_COST_CHANGED, new LaborCostChange(previous, order.getLaborCost()));
+    }
+
+    public void mechanicAssigned(ServiceOrder order) {
+        append(order, OrderEvent.Type.MECHANIC_ASSIGNED, new MechanicAssigned(MechanicAssignments.mechanicId(order)));
+    }
+
+    public void closed(ServiceOrder order) {
+        append(order, OrderEvent.Type.CLOSED, Map.of());
+    }
+
+    public void cancelled(ServiceOrder order) {
+        append(order, OrderEvent.Type.CANCELLED, Map.of());
+    }
+
+    public void deleted(ServiceOrder order) {
+        append(order, OrderEvent.Type.DELETED, Map.of());
+    }
+
+    // Events after the given sequence, oldest first
+    @Transactional(readOnly = true)
+    public List<TimelineEntry> timeline(Long orderId, long after, int limit) {
+        return eventRepository.findByOrderIdAndSequenceGreaterThanOrderBySequence(orderId, after, Limit.of(limit))
+                .stream()
+                .map(event -> new TimelineEntry(event.getSequence(), event.getType(), event.getOccurredAt(),
+                        read(event.getData(), JsonNode.class)))
+                .toList();
+    }
+
+    // State after the given event (the latest state when at is null): the nearest snapshot
+    // plus the events that follow it
+    @Transactional(readOnly = true)
+    public Optional<ReplayedState> stateAt(Long orderId, Long at) {
+        long until = at != null ? at : Long.MAX_VALUE;
+        Optional<OrderSnapshot> snapshot =
+                snapshotRepository.findFirstByOrderIdAndSequenceLessThanEqualOrderBySequenceDesc(orderId, until);
+        long from = snapshot.map(OrderSnapshot::getSequence).orElse(0L);
+        List<OrderEvent> events = eventRepository.findByOrderIdAndSequenceBetweenOrderBySequence(orderId, from + 1, until);
+        if (snapshot.isEmpty() && events.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Replay replay = snapshot.map(s -> new Replay(read(s.getState(), OrderState.class))).orElseGet(() -> new Replay(orderId));
+        long sequence = from;
+        for (OrderEvent event : events) {
+            replay.apply(event);
+            sequence = event.getSequence();
+        }
+        return Optional.of(new ReplayedState(orderId, sequence, from, events.size(), replay.toState()));
+    }
+
+    private void append(ServiceOrder order, OrderEvent.Type type, Object data) {
+        long sequence = order.nextEventSequence();
+        Instant now = clock.instant();
+        try {
+            eventRepository.save(new OrderEvent(order.getId(), sequence, type, write(data), now));
+        } catch (DataIntegrityViolationException e) {
+            // The insert runs before the order row is flushed: a taken (order_id, sequence) means a
+            // concurrent writer got there first, which is the same conflict as a stale order version
+            throw new ObjectOptimisticLockingFailureException(ServiceOrder.class, order.getId(), e);
+        }
+        if (sequence % snapshotInterval == 0) {
+            snapshotRepository.save(new OrderSnapshot(order.getId(), sequence, write(OrderState.of(order)), now));
+        }
+        outbox.orderChanged(order, type, sequence);
+    }
+
+    private String write(Object data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize order event", e);
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read order event", e);
+        }
+    }
+
+    // Mutable order state for replays; mirrors the rules of ServiceOrder
+    private final class Replay {
+        private final Long orderId;
+        private Long customerId;
+        private Long vehicleId;
+        private Long mechanicId;
+        private String description;
+        private final List<OrderState.Line> lines = new ArrayList<>();
+        private final Map<String, Boolean> tasks = new LinkedHashMap<>();
+        private double laborCost;
+        private boolean completed;
+        private boolean deleted;
+
+        Replay(Long orderId) {
+            this.orderId = orderId;
+        }
+
+        Replay(OrderState state) {
+            this.orderId = state.orderId();
+            reset(state);
+        }
+
+        void apply(OrderEvent event) {
+            switch (event.getType()) {
+                case CREATED, UPDATED -> reset(read(event.getData(), OrderState.class));
+                case PART_ADDED -> addPart(read(event.getData(), PartAdded.class));
+                case PART_REMOVED -> removePart(read(event.getData(), PartRemoved.class));
+                case TASK_ADDED -> tasks.putIfAbsent(read(event.getData(), TaskChange.class).task(), false);
+                case TASK_COMPLETED -> tasks.put(read(event.getData(), TaskChange.class).task(), true);
+                case LABOR_COST_CHANGED -> laborCost = read(event.getData(), LaborCostChange.class).laborCost();
+                case CLOSED -> completed = true;
+                case MECHANIC_ASSIGNED -> mechanicId = read(event.getData(), MechanicAssigned.class).mechanicId();
+                case CANCELLED -> {
+                    lines.clear();
+                    mechanicId = null;
+                }
+                case DELETED -> deleted = true;
+            }
+        }
+
+        private void reset(OrderState state) {
+            customerId = state.customerId();
+            vehicleId = state.vehicleId();
+            mechanicId = state.mechanicId();
+            description = state.description();
+            lines.clear();
+            lines.addAll(state.lines());
+            tasks.clear();
+            state.tasks().forEach(task -> tasks.put(task.name(), task.completed()));
+            laborCost = state.laborCost();
+            completed = state.completed();
+            deleted = state.deleted();
+        }
+
+        private void addPart(PartAdded added) {
+            for (int i = 0; i < lines.size(); i++) {
+                OrderState.Line line = lines.get(i);
+                if (line.partId().equals(added.partId()) && line.unitPrice() == added.unitPrice()) {
+                    lines.set(i, new OrderState.Line(line.partId(), line.partName(), line.quantity() + added.quantity(),
+                            line.unitPrice()));
+                    return;
+                }
+            }
+            lines.add(new OrderState.Line(added.partId(), added.partName(), added.quantity(), added.unitPrice()));
+        }
+
+        // Newest lines first, like ServiceOrder.removePart
+        private void removePart(PartRemoved removed) {
+            int remaining = removed.quantity();
+            for (int i = lines.size() - 1; i >= 0 && remaining > 0; i--) {
+                OrderState.Line line = lines.get(i);
+                if (!line.partId().equals(removed.partId())) {
+                    continue;
+                }
+                int taken = Math.min(remaining, line.quantity());
+                remaining -= taken;
+                if (taken == line.quantity()) {
+                    lines.remove(i);
+                } else {
+                    lines.set(i, new OrderState.Line(line.partId(), line.partName(), line.quantity() - taken,
+                            line.unitPrice()));
+                }
+            }
+        }
+
+        OrderState toState() {
+            double partsTotal = lines.stream().mapToDouble(line -> line.quantity() * line.unitPrice()).sum();
+            List<OrderState.Task> taskList = tasks.entrySet().stream()
+                    .map(entry -> new OrderState.Task(entry.getKey(), entry.getValue()))
+                    .toList();
+            return new OrderState(orderId, customerId, vehicleId, mechanicId, description, List.copyOf(lines),
+                    taskList, laborCost, partsTotal, laborCost + partsTotal, completed, deleted);
+        }
+    }
+
+    public record PartAdded(Long partId, String partName, int quantity, double unitPrice) {
+    }
+
+    public record PartRemoved(Long partId, int quantity) {
+    }
+
+    public record TaskChange(String task) {
+    }
+
+    public record LaborCostChange(double previous, double laborCost) {
+    }
+
+    public record MechanicAssigned(Long mechanicId) {
+    }
+
+    public record TimelineEntry(long sequence, OrderEvent.Type type, Instant occurredAt, JsonNode data) {
+    }
+
+    public record ReplayedState(Long orderId, long sequence, long snapshotSequence, int eventsReplayed,
+                                OrderState state) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.dto.OrderSummary;
+import com.example.autoservice.model.ArchivedOrder;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.ArchivedOrderRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Orders of a customer or a vehicle across service_orders and the archive. Both tables are read
+// from the same keyset position with the same sort and limit, and the two windows are merged.
+@Service
+public class OrderHistory {
+
+    private final ServiceOrderRepository orderRepository;
+    private final ArchivedOrderRepository archiveRepository;
+    private final ObjectMapper objectMapper;
+
+    public OrderHistory(ServiceOrderRepository orderRepository, ArchivedOrderRepository archiveRepository,
+                        ObjectMapper objectMapper) {
+        this.orderRepository = orderRepository;
+        this.archiveRepository = archiveRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public OrderPage customerOrders(Long customerId, ScrollPosition position, Sort sort, Limit limit) {
+        return merge(orderRepository.findByCustomer_Id(customerId, position, sort, limit),
+                archiveRepository.findByCustomerId(customerId, position, sort, limit), sort, limit);
+    }
+
+    public OrderPage vehicleOrders(Long vehicleId, ScrollPosition position, Sort sort, Limit limit) {
+        return merge(orderRepository.findByVehicle_Id(vehicleId, position, sort, limit),
+                archiveRepository.findByVehicleId(vehicleId, position, sort, limit), sort, limit);
+    }
+
+    // Order counts and spending of a customer, archive included
+    public Totals customerTotals(Long customerId) {
+        ServiceOrderRepository.CustomerTotalsView current = orderRepository.sumOrdersOfCustomer(customerId);
+        ServiceOrderRepository.CustomerTotalsView archived = archiveRepository.sumArchivedOrdersOfCustomer(customerId);
+        return new Totals(
+                current.getOrders() + archived.getOrders(),
+                current.getOpenOrders() != null ? current.getOpenOrders() : 0,
+                sum(current.getSpent()) + sum(archived.getSpent()),
+                latest(current.getLastOrderAt(), archived.getLastOrderAt()));
+    }
+
+    public OrderSummary summary(ArchivedOrder order) {
+        try {
+            return objectMapper.readValue(order.getDocument(), OrderSummary.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Archived order " + order.getId() + " is unreadable", e);
+        }
+    }
+
+    private OrderPage merge(Window<ServiceOrder> current, Window<ArchivedOrder> archived, Sort sort, Limit limit) {
+        List<OrderSummary> merged = new ArrayList<>(current.getContent().stream().map(OrderSummary::of).toList());
+        for (ArchivedOrder order : archived) {
+            merged.add(summary(order));
+        }
+        merged.sort(comparator(sort));
+        boolean hasNext = current.hasNext() || archived.hasNext() || merged.size() > limit.max();
+        return new OrderPage(merged.subList(0, Math.min(merged.size(), limit.max())), hasNext);
+    }
+
+    // Same order as the window queries' Sort: createdAt (if sorted by it), then id
+    private static Comparator<OrderSummary> comparator(Sort sort) {
+        Comparator<OrderSummary> comparator = null;
+        for (Sort.Order property : sort) {
+            Comparator<OrderSummary> next = property.getProperty().equals("id")
+                    ? Comparator.comparing(OrderSummary::id)
+                    : Comparator.comparing(OrderSummary::createdAt);
+            if (property.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static double sum(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+
+    public record OrderPage(List<OrderSummary> orders, boolean hasNext) {
+    }
+
+    // spent counts completed orders only
+    public record Totals(long orders, long openOrders, double spent, Instant lastOrderAt) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Read-through cache in front of PartRepository for read-only catalog lookups. Entries are
+// detached copies, so callers that modify a part must still load it from the repository.
+// Writers evict the entry only once their transaction commits: until then other readers
+// still see the committed row, and a rollback leaves the cache as it was. A read racing
+// with the commit cannot keep the old row, since the eviction waits for a load in progress.
+@Service
+public class PartCache {
+
+    private static final String CATEGORIES = "categories";
+
+    private final PartRepository repository;
+    private final Cache<Long, Part> parts;
+    private final Cache<String, List<String>> categories;
+
+    public PartCache(PartRepository repository,
+                     @Value("${autoservice.parts.cache.maximum-size:10000}") long maximumSize,
+                     @Value("${autoservice.parts.cache.ttl:PT10M}") Duration ttl) {
+        this.repository = repository;
+        this.parts = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.categories = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Optional<Part> find(Long id) {
+        return Optional.ofNullable(parts.get(id, key -> repository.findById(key).map(Part::new).orElse(null)));
+    }
+
+    // Cached parts by id; the missing ones are loaded with a single IN query
+    public Map<Long, Part> findAll(Iterable<Long> ids) {
+        return parts.getAll(ids, missing -> repository.findAllById(List.copyOf(missing)).stream()
+                .collect(Collectors.toMap(Part::getId, Part::new)));
+    }
+
+    public List<String> categories() {
+        return categories.get(CATEGORIES, key -> List.copyOf(repository.findDistinctCategories()));
+    }
+
+    public void evict(Long id) {
+        afterCommit(() -> parts.invalidate(id));
+    }
+
+    public void evictAll(Iterable<Long> ids) {
+        afterCommit(() -> parts.invalidateAll(ids));
+    }
+
+    public void evictCategories() {
+        afterCommit(() -> categories.invalidate(CATEGORIES));
+    }
+
+    public Map<String, Statistics> statistics() {
+        Map<String, Statistics> statistics = new LinkedHashMap<>();
+        statistics.put("parts", Statistics.of(parts));
+        statistics.put("categories", Statistics.of(categories));
+        return statistics;
+    }
+
+    // Outside a transaction the write has already happened
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    public record Statistics(long entries, long hits, long misses, double hitRate,
+                             long evictions, long loads, double averageLoadMillis) {
+        static Statistics of(Cache<?, ?> cache) {
+            CacheStats stats = cache.stats();
+            return new Statistics(cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.hitRate(),
+                    stats.evictionCount(), stats.loadCount(), stats.averageLoadPenalty() / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Imports supplier price lists and catalog edits, matching parts by partNumber. Input is NDJSON
+// (one part object per line) or CSV whose header names the columns; partNumber, name, category,
+// manufacturer, price, stock and description are read, anything else (the id column of an
+// export) is ignored. A known part gets the fields present on the line; an unknown one is created
+// and needs name, category and price. Lines are applied chunk by chunk, like restocks, so only
+// one chunk is held at a time; a chunk the database rejects (a name already used by another
+// part) is applied again line by line to find the offending lines.
+@Service
+public class PartImportService {
+
+    private static final Set<String> COLUMNS = Set.of("partnumber", "name", "category", "manufacturer", "price",
+            "stock", "description");
+
+    private final PartRepository repository;
+    private final EntityManager entityManager;
+    private final OptimisticRetry retry;
+    private final ChangeOutbox outbox;
+    private final PartSearchService searchService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public PartImportService(PartRepository repository,
+                             EntityManager entityManager,
+                             OptimisticRetry retry,
+                             ChangeOutbox outbox,
+                             PartSearchService searchService,
+                             ObjectMapper objectMapper,
+                             @Value("${autoservice.parts.import.chunk-size:1000}") int chunkSize) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.retry = retry;
+        this.outbox = outbox;
+        this.searchService = searchService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    // A CSV without a header naming partNumber is an IllegalArgumentException, raised before any
+    // line is applied. Malformed CSV further down ends the import at that line.
+    public void importParts(BufferedReader reader, boolean csv, Consumer<ImportResult> sink) {
+        List<ImportLine> chunk = new ArrayList<>(chunkSize);
+        try {
+            if (csv) {
+                readCsv(new Csv.RecordReader(reader), chunk, sink);
+            } else {
+                readNdjson(reader, chunk, sink);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        flushChunk(chunk, sink);
+    }
+
+    private void readNdjson(BufferedReader reader, List<ImportLine> chunk, Consumer<ImportResult> sink)
+            throws IOException {
+        String text;
+        int lineNumber = 0;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+            add(parseJson(lineNumber, text), chunk, sink);
+        }
+    }
+
+    private void readCsv(Csv.RecordReader reader, List<ImportLine> chunk, Consumer<ImportResult> sink)
+            throws IOException {
+        List<String> header = reader.next();
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; header != null && i < header.size(); i++) {
+            String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (COLUMNS.contains(column)) {
+                columns.putIfAbsent(column, i);
+            }
+        }
+        if (!columns.containsKey("partnumber")) {
+            throw new IllegalArgumentException("The CSV header has no partNumber column");
+        }
+        while (true) {
+            List<String> fields;
+            try {
+                fields = reader.next();
+            } catch (IllegalArgumentException e) {
+                flushChunk(chunk, sink);
+                sink.accept(ImportLine.invalid(reader.lineNumber(), null, e.getMessage())
+                        .result(ImportStatus.INVALID_LINE, null));
+                return;
+            }
+            if (fields == null) {
+                return;
+            }
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            add(parseCsv(reader.lineNumber(), fields, columns), chunk, sink);
+        }
+    }
+
+    private void add(ImportLine line, List<ImportLine> chunk, Consumer<ImportResult> sink) {
+        chunk.add(line);
+        if (chunk.size() == chunkSize) {
+            flushChunk(chunk, sink);
+        }
+    }
+
+    private void flushChunk(List<ImportLine> chunk, Consumer<ImportResult> sink) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<ImportResult> results = new ArrayList<>(chunk.size());
+        try {
+            Applied applied = retry.execute(status -> apply(chunk));
+            applied.parts().forEach(searchService::index);
+            results.addAll(applied.results());
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
+        } catch (DataAccessException | PersistenceException e) {
+            for (ImportLine line : chunk) {
+                results.add(applyAlone(line));
+            }
+        }
+        chunk.clear();
+        results.forEach(sink);
+    }
+
+    private ImportResult applyAlone(ImportLine line) {
+        try {
+            Applied applied = retry.execute(status -> apply(List.of(line)));
+            applied.parts().forEach(searchService::index);
+            return applied.results().get(0);
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
+        } catch (DataAccessException | PersistenceException e) {
+            String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            return new ImportResult(line.line(), line.partNumber(), ImportStatus.REJECTED, null,
+                    message != null ? message.lines().findFirst().orElse(message) : e.getClass().getSimpleName());
+        }
+    }
+
+    private Applied apply(List<ImportLine> lines) {
+        Set<String> partNumbers = new LinkedHashSet<>();
+        for (ImportLine line : lines) {
+            if (line.problem() == null) {
+                partNumbers.add(line.partNumber());
+            }
+        }
+        Map<String, Part> parts = new HashMap<>();
+        if (!partNumbers.isEmpty()) {
+            repository.findByPartNumberIn(partNumbers).forEach(part -> parts.put(part.getPartNumber(), part));
+        }
+
+        List<ImportResult> results = new ArrayList<>(lines.size());
+        Map<String, Part> changed = new LinkedHashMap<>();
+        Map<String, Part> stockChanged = new LinkedHashMap<>();
+        for (ImportLine line : lines) {
+            if (line.problem() != null) {
+                results.add(line.result(ImportStatus.INVALID_LINE, null));
+                continue;
+            }
+            Part part = parts.get(line.partNumber());
+            ImportStatus status = ImportStatus.UPDATED;
+            if (part == null) {
+                if (line.name() == null || line.category() == null || line.price() == null) {
+                    results.add(line.invalid("name, category and price are required for a new part")
+                            .result(ImportStatus.INVALID_LINE, null));
+                    continue;
+                }
+                part = new Part(line.name(), line.price(), line.stock() != null ? line.stock() : 0,
+                        line.description(), line.category(), line.manufacturer(), line.partNumber());
+                entityManager.persist(part);
+                parts.put(line.partNumber(), part);
+                stockChanged.put(line.partNumber(), part);
+                status = ImportStatus.CREATED;
+            } else {
+                line.applyTo(part);
+                if (line.stock() != null) {
+                    stockChanged.put(line.partNumber(), part);
+                }
+            }
+            changed.put(line.partNumber(), part);
+            results.add(line.result(status, part.getId()));
+        }
+        // One change per part whose stock was set, with its stock after the whole chunk
+        stockChanged.values().forEach(outbox::stockChanged);
+        entityManager.flush();
+        entityManager.clear();
+        return new Applied(results, List.copyOf(changed.values()));
+    }
+
+    private ImportLine parseJson(int lineNumber, String text) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (IOException e) {
+            return ImportLine.invalid(lineNumber, null, "Malformed JSON");
+        }
+        if (!node.isObject()) {
+            return ImportLine.invalid(lineNumber, null, "Expected a JSON object");
+        }
+        return ImportLine.parse(lineNumber, text(node, "partNumber"), text(node, "name"), text(node, "category"),
+                text(node, "manufacturer"), text(node, "price"), text(node, "stock"), text(node, "description"));
+    }
+
+    private static ImportLine parseCsv(int lineNumber, List<String> fields, Map<String, Integer> columns) {
+        return ImportLine.parse(lineNumber, field(fields, columns, "partnumber"), field(fields, columns, "name"),
+                field(fields, columns, "category"), field(fields, columns, "manufacturer"),
+                field(fields, columns, "price"), field(fields, columns, "stock"), field(fields, columns, "description"));
+    }
+
+    private static String text(JsonNode node, String name) {
+        JsonNode value = node.get(name);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    private record Applied(List<ImportResult> results, List<Part> parts) {
+    }
+
+    public enum ImportStatus {
+        CREATED, UPDATED, INVALID_LINE, REJECTED
+    }
+
+    // Absent and blank fields are null and leave the part's current value in place
+    public record ImportLine(int line, String partNumber, String name, String category, String manufacturer,
+                             Double price, Integer stock, String description, String problem) {
+
+        static ImportLine parse(int line, String partNumber, String name, String category, String manufacturer,
+                                String price, String stock, String description) {
+            partNumber = blankToNull(partNumber);
+            if (partNumber == null) {
+                return invalid(line, null, "partNumber is required");
+            }
+            if (partNumber.length() > 50) {
+                return invalid(line, partNumber, "partNumber is longer than 50 characters");
+            }
+            Double parsedPrice;
+            Integer parsedStock;
+            try {
+                parsedPrice = blankToNull(price) == null ? null : Double.valueOf(price.trim());
+                parsedStock = blankToNull(stock) == null ? null : Integer.valueOf(stock.trim());
+            } catch (NumberFormatException e) {
+                return invalid(line, partNumber, "price and stock must be numbers");
+            }
+            if ((parsedPrice != null && (parsedPrice < 0 || parsedPrice.isNaN() || parsedPrice.isInfinite()))
+                    || (parsedStock != null && parsedStock < 0)) {
+                return invalid(line, partNumber, "price and stock cannot be negative");
+            }
+            return new ImportLine(line, partNumber, blankToNull(name), blankToNull(category),
+                    blankToNull(manufacturer), parsedPrice, parsedStock, blankToNull(description), null);
+        }
+
+        static ImportLine invalid(int line, String partNumber, String problem) {
+            return new ImportLine(line, partNumber, null, null, null, null, null, null, problem);
+        }
+
+        ImportLine invalid(String problem) {
+            return invalid(line, partNumber, problem);
+        }
+
+        void applyTo(Part part) {
+            if (name != null) {
+                part.setName(name);
+            }
+            if (category != null) {
+                part.setCategory(category);
+            }
+            if (manufacturer != null) {
+                part.setManufacturer(manufacturer);
+            }
+            if (price != null) {
+                part.setPrice(price);
+            }
+            if (description != null) {
+                part.setDescription(description);
+            }
+            if (stock != null) {
+                part.setStock(stock);
+            }
+        }
+
+        ImportResult result(ImportStatus status, Long partId) {
+            return new ImportResult(line, partNumber, status, partId, problem);
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+    }
+
+    public record ImportResult(int line, String partNumber, ImportStatus status, Long partId, String message) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.autoservice.service;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Reprices a whole category with set-based UPDATEs. Parts are processed in id-ordered
+// chunks, each in its own transaction, so row locks are held for one chunk at a time.
+@Service
+public class PartRepricingService {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryValuation valuation;
+    private final PartCache cache;
+    private final int chunkSize;
+
+    public PartRepricingService(EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                InventoryValuation valuation,
+                                PartCache cache,
+                                @Value("${autoservice.parts.repricing.chunk-size:1000}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.valuation = valuation;
+        this.cache = cache;
+        this.chunkSize = chunkSize;
+    }
+
+    public RepricingResult reprice(String category, double percentageChange, PriceRounding rounding, boolean dryRun) {
+        double factor = 1 + percentageChange / 100;
+        String newPrice = rounding.expression("p.price * :factor");
+
+        if (dryRun) {
+            List<Object[]> rows = entityManager.createQuery(
+                            "select p.category, p.manufacturer, count(p), sum(p.price * p.stock), sum(" + newPrice + " * p.stock) " +
+                                    "from Part p where upper(p.category) = upper(:category) " +
+                                    "group by p.category, p.manufacturer", Object[].class)
+                    .setParameter("category", category)
+                    .setParameter("factor", factor)
+                    .getResultList();
+            Totals totals = new Totals();
+            rows.forEach(totals::add);
+            return totals.toResult(category, percentageChange, rounding, true, 0, 0);
+        }
+
+        Totals totals = new Totals();
+        long updated = 0;
+        int chunks = 0;
+        long lastId = 0;
+        while (true) {
+            final long after = lastId;
+            ChunkResult chunk = transactionTemplate.execute(status -> repriceChunk(category, after, factor, newPrice));
+            if (chunk == null || chunk.ids().isEmpty()) {
+                break;
+            }
+            chunk.groups().forEach(totals::add);
+            updated += chunk.updated();
+            chunks++;
+            lastId = chunk.ids().get(chunk.ids().size() - 1);
+            if (chunk.ids().size() < chunkSize) {
+                break;
+            }
+        }
+        return totals.toResult(category, percentageChange, rounding, false, updated, chunks);
+    }
+
+    private ChunkResult repriceChunk(String category, long afterId, double factor, String newPrice) {
+        List<Long> ids = entityManager.createQuery(
+                        "select p.id from Part p where upper(p.category) = upper(:category) and p.id > :afterId order by p.id",
+                        Long.class)
+                .setParameter("category", category)
+                .setParameter("afterId", afterId)
+                .setMaxResults(chunkSize)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return new ChunkResult(ids, List.of(), 0);
+        }
+
+        List<Object[]> groups = entityManager.createQuery(
+                        "select p.category, p.manufacturer, count(p), sum(p.price * p.stock), sum(" + newPrice + " * p.stock) " +
+                                "from Part p where p.id in :ids group by p.category, p.manufacturer", Object[].class)
+                .setParameter("ids", ids)
+                .setParameter("factor", factor)
+                .getResultList();
+        int updated = entityManager.createQuery("update versioned Part p set p.price = " + newPrice + " where p.id in :ids")
+                .setParameter("ids", ids)
+                .setParameter("factor", factor)
+                .executeUpdate();
+        cache.evictAll(ids);
+
+        for (Object[] group : groups) {
+            valuation.adjust((String) group[0], (String) group[1], asDouble(group[4]) - asDouble(group[3]));
+        }
+        return new ChunkResult(ids, groups, updated);
+    }
+
+    private static double asDouble(Object value) {
+        return value != null ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    // A positive price never rounds down to nothing: it keeps at least one step (0.01 or 1)
+    public enum PriceRounding {
+        NONE("%1$s"),
+        CENTS("case when %1$s > 0 and round(%1$s, 2) < 0.01 then 0.01 else round(%1$s, 2) end"),
+        WHOLE("case when %1$s > 0 and round(%1$s, 0) < 1 then 1.0 else round(%1$s, 0) end"),
+        // 12.34 -> 12.99
+        NINETY_NINE("(floor(%1$s) + 0.99)");
+
+        private final String template;
+
+        PriceRounding(String template) {
+            this.template = template;
+        }
+
+        String expression(String price) {
+            return String.format(template, price);
+        }
+    }
+
+    public record RepricingResult(String category, double percentageChange, PriceRounding rounding,
+                                  boolean dryRun, long matched, long updated, int chunks,
+                                  double valueBefore, double valueAfter, double valueDelta) {
+    }
+
+    private record ChunkResult(List<Long> ids, List<Object[]> groups, int updated) {
+    }
+
+    private static final class Totals {
+        long matched;
+        double before;
+        double after;
+
+        void add(Object[] group) {
+            matched += ((Number) group[2]).longValue();
+            before += asDouble(group[3]);
+            after += asDouble(group[4]);
+        }
+
+        RepricingResult toResult(String category, double percentageChange, PriceRounding rounding,
+                                 boolean dryRun, long updated, int chunks) {
+            return new RepricingResult(category, percentageChange, rounding, dryRun, matched, updated, chunks,
+                    before, after, after - before);
+        }
+    }
+}
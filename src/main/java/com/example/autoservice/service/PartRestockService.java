@@ -0,0 +1,177 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Applies supplier deliveries: part ids are fetched with IN queries, stock changes are
+// flushed as JDBC-batched UPDATEs (hibernate.jdbc.batch_size / order_updates). Restocking
+// only adds to the stock, so a chunk that loses a version race is simply applied again.
+@Service
+public class PartRestockService {
+
+    private final PartRepository repository;
+    private final EntityManager entityManager;
+    private final OptimisticRetry retry;
+    private final ChangeOutbox outbox;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public PartRestockService(PartRepository repository,
+                              EntityManager entityManager,
+                              OptimisticRetry retry,
+                              ChangeOutbox outbox,
+                              ObjectMapper objectMapper,
+                              @Value("${autoservice.parts.restock.chunk-size:1000}") int chunkSize) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.retry = retry;
+        this.outbox = outbox;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    // Whole delivery in one transaction
+    public List<RestockResult> restock(List<RestockLine> lines) {
+        return retry.execute(status -> apply(lines));
+    }
+
+    // Reads NDJSON ({"partId":1,"quantity":5} per line) or CSV (partId,quantity) and commits
+    // every chunk separately, so only one chunk of lines and entities is held at a time.
+    public void restock(BufferedReader reader, boolean csv, Consumer<RestockResult> sink) {
+        List<RestockLine> chunk = new ArrayList<>(chunkSize);
+        try {
+            String text;
+            int lineNumber = 0;
+            while ((text = reader.readLine()) != null) {
+                lineNumber++;
+                if (text.isBlank() || (csv && lineNumber == 1 && isCsvHeader(text))) {
+                    continue;
+                }
+                chunk.add(csv ? parseCsv(lineNumber, text) : parseJson(lineNumber, text));
+                if (chunk.size() == chunkSize) {
+                    flushChunk(chunk, sink);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        flushChunk(chunk, sink);
+    }
+
+    private void flushChunk(List<RestockLine> chunk, Consumer<RestockResult> sink) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<RestockResult> results = retry.execute(status -> apply(chunk));
+        chunk.clear();
+        if (results != null) {
+            results.forEach(sink);
+        }
+    }
+
+    private List<RestockResult> apply(List<RestockLine> lines) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (RestockLine line : lines) {
+            if (line.partId() != null) {
+                ids.add(line.partId());
+            }
+        }
+        Map<Long, Part> parts = new HashMap<>();
+        List<Long> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += chunkSize) {
+            List<Long> batch = idList.subList(from, Math.min(from + chunkSize, idList.size()));
+            repository.findAllById(batch).forEach(part -> parts.put(part.getId(), part));
+        }
+
+        List<RestockResult> results = new ArrayList<>(lines.size());
+        Set<Part> restocked = new LinkedHashSet<>();
+        for (RestockLine line : lines) {
+            if (line.partId() == null || line.quantity() == null || line.quantity() <= 0) {
+                results.add(line.result(RestockStatus.INVALID_LINE, null));
+                continue;
+            }
+            Part part = parts.get(line.partId());
+            if (part == null) {
+                results.add(line.result(RestockStatus.UNKNOWN_PART, null));
+                continue;
+            }
+            part.increaseStock(line.quantity());
+            restocked.add(part);
+            results.add(line.result(RestockStatus.RESTOCKED, part.getStock()));
+        }
+        // One change per part, with its stock after the whole chunk
+        restocked.forEach(outbox::stockChanged);
+        entityManager.flush();
+        entityManager.clear();
+        return results;
+    }
+
+    private RestockLine parseJson(int lineNumber, String text) {
+        try {
+            JsonNode node = objectMapper.readTree(text);
+            JsonNode partId = node.get("partId");
+            JsonNode quantity = node.get("quantity");
+            return new RestockLine(lineNumber,
+                    partId != null && partId.canConvertToLong() ? partId.asLong() : null,
+                    quantity != null && quantity.canConvertToInt() ? quantity.asInt() : null);
+        } catch (IOException e) {
+            return new RestockLine(lineNumber, null, null);
+        }
+    }
+
+    private static RestockLine parseCsv(int lineNumber, String text) {
+        String[] columns = text.split("[,;]");
+        return new RestockLine(lineNumber,
+                columns.length > 0 ? parseLong(columns[0]) : null,
+                columns.length > 1 ? parseInt(columns[1]) : null);
+    }
+
+    private static boolean isCsvHeader(String text) {
+        return parseLong(text.split("[,;]")[0]) == null;
+    }
+
+    private static Long parseLong(String value) {
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Integer parseInt(String value) {
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public enum RestockStatus {
+        RESTOCKED, UNKNOWN_PART, INVALID_LINE
+    }
+
+    public record RestockLine(int line, Long partId, Integer quantity) {
+        RestockResult result(RestockStatus status, Integer stock) {
+            return new RestockResult(line, partId, quantity, status, stock);
+        }
+    }
+
+    public record RestockResult(int line, Long partId, Integer quantity, RestockStatus status, Integer stock) {
+    }
+}
@@ -0,0 +1,406 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory trigram index over part name, part number, manufacturer and description.
+// Every part occupies a dense slot; postings store (slot << 1 | primary) where primary
+// marks trigrams coming from name or part number, which rank above the other fields.
+public class PartSearchIndex {
+
+    // Share of query trigrams a part has to contain to be a match. Low enough for
+    // one typo in a word, high enough to keep unrelated parts out.
+    private static final double MIN_MATCH_RATIO = 0.4;
+    private static final double COMMON_TRIGRAM_RATIO = 0.1;
+    private static final int COMMON_TRIGRAM_MIN_PARTS = 10_000;
+
+    // Accumulator layout: matched trigram count above HIT_SHIFT, primary matches below
+    private static final int HIT_SHIFT = 16;
+    private static final int HIT = 1 << HIT_SHIFT;
+    private static final int PRIMARY_MASK = HIT - 1;
+
+    private static final int WEIGHT_SHIFT = 41;
+    private static final int LENGTH_SHIFT = 31;
+    private static final long LENGTH_MASK = (1L << 10) - 1;
+    private static final long SLOT_MASK = (1L << 31) - 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final Map<Long, Integer> slotByPartId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] partIds = new long[1024];
+    private int[] primaryLengths = new int[1024];
+    private int slotCount;
+    private int deletedCount;
+
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public void index(Part part) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(part.getId());
+            addSlot(part);
+            if (deletedCount > 1024 && deletedCount > slotCount / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long partId) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(partId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            slotByPartId.clear();
+            deleted.clear();
+            slotCount = 0;
+            deletedCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByPartId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchResult search(String query, int offset, int limit) {
+        long[] queryTrigrams = queryTrigrams(query);
+        if (queryTrigrams.length == 0 || limit <= 0) {
+            return new SearchResult(0, List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            IntList[] lists = new IntList[queryTrigrams.length];
+            int listCount = 0;
+            for (long trigram : queryTrigrams) {
+                IntList posting = postings.get(trigram);
+                if (posting != null) {
+                    lists[listCount++] = posting;
+                }
+            }
+            Arrays.sort(lists, 0, listCount, Comparator.comparingInt(list -> list.size));
+
+            // Trigrams found in a large share of the catalog ("  b", "er ") say almost
+            // nothing about relevance but dominate the scan, so they are skipped as long
+            // as a more selective trigram is left and treated as matched by every candidate.
+            int commonLimit = Math.max(COMMON_TRIGRAM_MIN_PARTS, (int) ((slotCount - deletedCount) * COMMON_TRIGRAM_RATIO));
+            int used = listCount;
+            while (used > 1 && lists[used - 1].size > commonLimit) {
+                used--;
+            }
+            int skipped = listCount - used;
+            int minHits = Math.max(1, (int) Math.ceil(queryTrigrams.length * MIN_MATCH_RATIO) - skipped);
+
+            // Rarest trigrams first: a part matching at least minHits of n trigrams must
+            // occur in one of the first n - minHits + 1 lists, so only those lists can
+            // introduce candidates and the longer lists only add to existing ones.
+            int generators = queryTrigrams.length - skipped - minHits + 1;
+
+            Scratch s = scratch.get();
+            s.ensureCapacity(slotCount);
+            int[] acc = s.acc;
+            IntList touched = s.touched;
+            for (int l = 0; l < used; l++) {
+                int[] entries = lists[l].data;
+                int size = lists[l].size;
+                if (l < generators) {
+                    for (int i = 0; i < size; i++) {
+                        int entry = entries[i];
+                        int slot = entry >>> 1;
+                        if (acc[slot] == 0) {
+                            touched.add(slot);
+                        }
+                        acc[slot] += HIT | (entry & 1);
+                    }
+                } else {
+                    for (int i = 0; i < size; i++) {
+                        int entry = entries[i];
+                        int slot = entry >>> 1;
+                        if (acc[slot] != 0) {
+                            acc[slot] += HIT | (entry & 1);
+                        }
+                    }
+                }
+            }
+
+            int total = 0;
+            int k = offset + limit;
+            LongMinHeap top = s.top;
+            top.reset(k);
+            for (int i = 0; i < touched.size; i++) {
+                int slot = touched.data[i];
+                int value = acc[slot];
+                acc[slot] = 0;
+                int hits = value >>> HIT_SHIFT;
+                if (hits < minHits || deleted.get(slot)) {
+                    continue;
+                }
+                total++;
+                top.offer(rankKey(2 * (hits + skipped) + (value & PRIMARY_MASK), primaryLengths[slot], slot));
+            }
+            touched.size = 0;
+
+            long[] ranked = top.drainDescending();
+            List<Hit> page = new ArrayList<>(Math.max(0, ranked.length - offset));
+            for (int i = offset; i < ranked.length; i++) {
+                long key = ranked[i];
+                int weight = (int) (key >>> WEIGHT_SHIFT);
+                int slot = (int) (SLOT_MASK - (key & SLOT_MASK));
+                page.add(new Hit(partIds[slot], weight / (2.0 * queryTrigrams.length)));
+            }
+            return new SearchResult(total, page);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Packs (weight desc, name length asc, slot asc) into one long so that the
+    // larger key is the better hit. Weight counts a trigram 2, or 3 from name/part number.
+    private static long rankKey(int weight, int length, int slot) {
+        long lengthRank = LENGTH_MASK - Math.min(length, LENGTH_MASK);
+        return ((long) weight << WEIGHT_SHIFT) | (lengthRank << LENGTH_SHIFT) | (SLOT_MASK - slot);
+    }
+
+    private void addSlot(Part part) {
+        if (slotCount == partIds.length) {
+            partIds = Arrays.copyOf(partIds, slotCount * 2);
+            primaryLengths = Arrays.copyOf(primaryLengths, slotCount * 2);
+        }
+        int slot = slotCount++;
+        partIds[slot] = part.getId();
+        slotByPartId.put(part.getId(), slot);
+
+        String name = normalize(part.getName());
+        String partNumber = normalize(part.getPartNumber());
+        primaryLengths[slot] = name.length() + partNumber.length();
+
+        Set<Long> primary = new LinkedHashSet<>();
+        addTrigrams(name, primary, true);
+        addTrigrams(partNumber, primary, true);
+        addTrigrams(partNumber.replace(" ", ""), primary, true);
+        Set<Long> secondary = new LinkedHashSet<>();
+        addTrigrams(normalize(part.getManufacturer()), secondary, true);
+        addTrigrams(normalize(part.getDescription()), secondary, true);
+        secondary.removeAll(primary);
+
+        for (long trigram : primary) {
+            postings.computeIfAbsent(trigram, t -> new IntList(4)).add(slot << 1 | 1);
+        }
+        for (long trigram : secondary) {
+            postings.computeIfAbsent(trigram, t -> new IntList(4)).add(slot << 1);
+        }
+    }
+
+    private void removeSlot(Long partId) {
+        Integer slot = slotByPartId.remove(partId);
+        if (slot != null) {
+            deleted.set(slot);
+            deletedCount++;
+        }
+    }
+
+    // Drops postings of deleted slots and renumbers the live ones
+    private void compact() {
+        int[] remap = new int[slotCount];
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (deleted.get(slot)) {
+                remap[slot] = -1;
+            } else {
+                remap[slot] = live;
+                partIds[live] = partIds[slot];
+                primaryLengths[live] = primaryLengths[slot];
+                slotByPartId.put(partIds[live], live);
+                live++;
+            }
+        }
+        postings.values().removeIf(posting -> {
+            int size = 0;
+            for (int i = 0; i < posting.size; i++) {
+                int entry = posting.data[i];
+                int target = remap[entry >>> 1];
+                if (target >= 0) {
+                    posting.data[size++] = target << 1 | (entry & 1);
+                }
+            }
+            posting.size = size;
+            return size == 0;
+        });
+        slotCount = live;
+        deleted.clear();
+        deletedCount = 0;
+    }
+
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c == 'ё') {
+                c = 'е';
+            }
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) == ' ') {
+            sb.setLength(length - 1);
+        }
+        return sb.toString();
+    }
+
+    // Each word is padded with two leading blanks and one trailing blank, as pg_trgm does,
+    // so that word starts weigh more and short prefixes still produce trigrams.
+    private static void addTrigrams(String normalized, Set<Long> out, boolean closeLastWord) {
+        if (normalized.isEmpty()) {
+            return;
+        }
+        String[] words = normalized.split(" ");
+        for (int w = 0; w < words.length; w++) {
+            boolean close = closeLastWord || w < words.length - 1;
+            String padded = "  " + words[w] + (close ? " " : "");
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                out.add(key(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2)));
+            }
+        }
+    }
+
+    // The last query word is probably still being typed, so it is matched as a prefix
+    private static long[] queryTrigrams(String query) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        addTrigrams(normalize(query), trigrams, false);
+        return trigrams.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long key(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    public record Hit(long partId, double score) {
+    }
+
+    public record SearchResult(int total, List<Hit> hits) {
+    }
+
+    private static final class IntList {
+        int[] data;
+        int size;
+
+        IntList(int capacity) {
+            data = new int[capacity];
+        }
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+    }
+
+    // Bounded min-heap of rank keys keeping the best k offered so far
+    private static final class LongMinHeap {
+        long[] heap = new long[64];
+        int size;
+        int capacity;
+
+        void reset(int capacity) {
+            this.capacity = capacity;
+            size = 0;
+            if (heap.length < capacity) {
+                heap = new long[capacity];
+            }
+        }
+
+        void offer(long key) {
+            if (size < capacity) {
+                int i = size++;
+                while (i > 0 && heap[(i - 1) / 2] > key) {
+                    heap[i] = heap[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = key;
+            } else if (key > heap[0]) {
+                siftDown(key);
+            }
+        }
+
+        private void siftDown(long key) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (heap[child] >= key) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = key;
+        }
+
+        long[] drainDescending() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            for (int i = 0, j = sorted.length - 1; i < j; i++, j--) {
+                long tmp = sorted[i];
+                sorted[i] = sorted[j];
+                sorted[j] = tmp;
+            }
+            return sorted;
+        }
+    }
+
+    // Per-thread accumulators, reset after each query through the touched list
+    private static final class Scratch {
+        int[] acc = new int[0];
+        final IntList touched = new IntList(256);
+        final LongMinHeap top = new LongMinHeap();
+
+        void ensureCapacity(int slots) {
+            if (acc.length < slots) {
+                acc = new int[Math.max(slots, acc.length * 2)];
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Service
+public class PartSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(PartSearchService.class);
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final PartRepository repository;
+    private final PartCache cache;
+    private final PartSearchIndex index = new PartSearchIndex();
+
+    public PartSearchService(PartRepository repository, PartCache cache) {
+        this.repository = repository;
+        this.cache = cache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        index.clear();
+        long lastId = 0;
+        List<Part> batch;
+        do {
+            batch = repository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_BATCH_SIZE));
+            batch.forEach(index::index);
+            if (!batch.isEmpty()) {
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        log.info("Part search index built with {} parts", index.size());
+    }
+
+    public void index(Part part) {
+        index.index(part);
+    }
+
+    public void remove(Long partId) {
+        index.remove(partId);
+    }
+
+    public Page<Part> search(String query, Pageable pageable) {
+        PartSearchIndex.SearchResult result = index.search(query, (int) pageable.getOffset(), pageable.getPageSize());
+        List<Long> ids = result.hits().stream().map(PartSearchIndex.Hit::partId).toList();
+        Map<Long, Part> parts = cache.findAll(ids);
+        List<Part> ranked = ids.stream().map(parts::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(ranked, pageable, result.total());
+    }
+}
@@ -0,0 +1,305 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.dto.OrderSummary;
+import com.example.autoservice.model.OrderTask;
+import com.example.autoservice.model.Part;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.OrderTaskRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Mutations of open service orders. The single-operation endpoints and the batch endpoints
+// share these rules; a batch loads its orders once and flushes once, at commit.
+// All of them are re-applied to the current state on a retry (see OptimisticRetry).
+@Service
+public class ServiceOrderService {
+
+    public static final int MAX_OPERATIONS = 200;
+
+    private final ServiceOrderRepository repository;
+    private final OrderTaskRepository taskRepository;
+    private final PartCache partCache;
+    private final StockReservations reservations;
+    private final OptimisticRetry retry;
+    private final OrderEventLog eventLog;
+
+    public ServiceOrderService(ServiceOrderRepository repository, OrderTaskRepository taskRepository,
+                               PartCache partCache, StockReservations reservations, OptimisticRetry retry,
+                               OrderEventLog eventLog) {
+        this.repository = repository;
+        this.taskRepository = taskRepository;
+        this.partCache = partCache;
+        this.reservations = reservations;
+        this.retry = retry;
+        this.eventLog = eventLog;
+    }
+
+    // Each call is one transaction, retried on a version conflict: every operation is checked
+    // again against the reloaded order. expectedVersion (If-Match) pins the order version the
+    // client has seen; null accepts any.
+    public OperationOutcome apply(Long orderId, Operation operation, Long expectedVersion) {
+        return retry.execute(status -> {
+            Optional<ServiceOrder> order = repository.findById(orderId);
+            if (order.isEmpty()) {
+                return new OperationOutcome(null, OperationResult.of(0, operation, Status.NOT_FOUND, "Order not found"));
+            }
+            if (isStale(order.get(), expectedVersion)) {
+                return new OperationOutcome(order.get(), stale(0, operation, order.get()));
+            }
+            return new OperationOutcome(order.get(), apply(order.get(), 0, operation));
+        });
+    }
+
+    // All operations of one order. With atomic=true nothing is kept unless every operation applies.
+    public BatchResult applyBatch(Long orderId, List<Operation> operations, boolean atomic, Long expectedVersion) {
+        return retry.execute(status -> {
+            Optional<ServiceOrder> order = repository.findById(orderId);
+            if (order.isEmpty()) {
+                return BatchResult.notFound(orderId);
+            }
+            BatchResult result = applyAll(order.get(), operations, expectedVersion);
+            if (atomic && result.hasRejections()) {
+                status.setRollbackOnly();
+                return result.rolledBack();
+            }
+            return result;
+        });
+    }
+
+    // Several orders in one transaction; the orders are loaded with a single query
+    public List<BatchResult> applyBatches(List<OrderOperations> batches, boolean atomic) {
+        Set<Long> ids = batches.stream().map(OrderOperations::orderId).collect(Collectors.toCollection(LinkedHashSet::new));
+        return retry.execute(status -> {
+            Map<Long, ServiceOrder> orders = repository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(ServiceOrder::getId, Function.identity()));
+
+            List<BatchResult> results = new ArrayList<>(batches.size());
+            boolean rejected = false;
+            for (OrderOperations batch : batches) {
+                ServiceOrder order = orders.get(batch.orderId());
+                BatchResult result = order != null
+                        ? applyAll(order, batch.operations(), batch.version())
+                        : BatchResult.notFound(batch.orderId());
+                rejected |= order == null || result.hasRejections();
+                results.add(result);
+            }
+            if (atomic && rejected) {
+                status.setRollbackOnly();
+                return results.stream().map(BatchResult::rolledBack).toList();
+            }
+            return results;
+        });
+    }
+
+    private BatchResult applyAll(ServiceOrder order, List<Operation> operations, Long expectedVersion) {
+        if (isStale(order, expectedVersion)) {
+            List<OperationResult> results = new ArrayList<>(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                results.add(stale(i, operations.get(i), order));
+            }
+            return new BatchResult(order.getId(), true, false, results, null);
+        }
+        // Task operations work on the loaded task list instead of one lookup per operation;
+        // across several orders the lists are initialized in batches (default_batch_fetch_size)
+        if (operations.stream().anyMatch(operation -> operation.type() != null && operation.type().usesTasks())) {
+            Hibernate.initialize(order.getTasks());
+        }
+        List<OperationResult> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            results.add(apply(order, i, operations.get(i)));
+        }
+        return new BatchResult(order.getId(), true, true, results, OrderSummary.of(order));
+    }
+
+    private OperationResult apply(ServiceOrder order, int index, Operation operation) {
+        if (operation.type() == null) {
+            return OperationResult.of(index, operation, Status.REJECTED, "Operation type is required");
+        }
+        if (order.isCompleted()) {
+            return OperationResult.of(index, operation, Status.REJECTED, "Order is completed");
+        }
+        return switch (operation.type()) {
+            case ADD_PART -> addPart(order, index, operation);
+            case REMOVE_PART -> removePart(order, index, operation);
+            case ADD_REQUIRED_TASK -> addRequiredTask(order, index, operation);
+            case COMPLETE_TASK -> completeTask(order, index, operation);
+            case UPDATE_LABOR_COST -> updateLaborCost(order, index, operation);
+        };
+    }
+
+    // Holds the units for the order; stock itself only changes when the order is closed
+    private OperationResult addPart(ServiceOrder order, int index, Operation operation) {
+        int quantity = operation.quantity() != null ? operation.quantity() : 1;
+        if (operation.partId() == null || quantity <= 0) {
+            return OperationResult.of(index, operation, Status.REJECTED, "Part id and a positive quantity are required");
+        }
+        Optional<Part> part = partCache.find(operation.partId());
+        if (part.isEmpty()) {
+            return OperationResult.of(index, operation, Status.NOT_FOUND, "Part not found");
+        }
+        if (!reservations.reserve(order.getId(), operation.partId(), quantity, part.get().getStock())) {
+            return OperationResult.of(index, operation, Status.REJECTED, "Not enough free stock");
+        }
+        order.addPart(part.get(), quantity);
+        eventLog.partAdded(order, part.get(), quantity);
+        return OperationResult.of(index, operation, Status.APPLIED, null);
+    }
+
+    // Removes all units of the part unless a quantity is given, and drops their hold
+    private OperationResult removePart(ServiceOrder order, int index, Operation operation) {
+        Integer quantity = operation.quantity();
+        if (operation.partId() == null || (quantity != null && quantity <= 0)) {
+            return OperationResult.of(index, operation, Status.REJECTED, "Part id is required and quantity must be positive");
+        }
+        int removed = order.removePart(operation.partId(), quantity != null ? quantity : Integer.MAX_VALUE);
+        if (removed == 0) {
+            return partCache.find(operation.partId()).isEmpty()
+                    ? OperationResult.of(index, operation, Status.NOT_FOUND, "Part not found")
+                    : OperationResult.of(index, operation, Status.UNCHANGED, "Part is not on the order");
+        }
+        reservations.release(order.getId(), operation.partId(), removed);
+        eventLog.partRemoved(order, operation.partId(), removed);
+        return OperationResult.of(index, operation, Status.APPLIED, null);
+    }
+
+    private OperationResult addRequiredTask(ServiceOrder order, int index, Operation operation) {
+        if (operation.task() == null) {
+            return OperationResult.of(index, operation, Status.REJECTED, "Task is required");
+        }
+        if (findTask(order, operation.task()).isPresent()) {
+            return OperationResult.of(index, operation, Status.UNCHANGED, "Task is already required");
+        }
+        order.addTask(operation.task());
+        eventLog.taskAdded(order, operation.task());
+        return OperationResult.of(index, operation, Status.APPLIED, null);
+    }
+
+    // Task must be required and not completed yet; only its row and the counters change
+    private OperationResult completeTask(ServiceOrder order, int index, Operation operation) {
+        Optional<OrderTask> task = operation.task() != null ? findTask(order, operation.task()) : Optional.empty();
+        if (task.isEmpty()) {
+            return OperationResult.of(index, operation, Status.REJECTED, "Task is not required by the order");
+        }
+        if (task.get().isCompleted()) {
+            return OperationResult.of(index, operation, Status.REJECTED, "Task is already completed");
+        }
+        order.completeTask(task.get());
+        eventLog.taskCompleted(order, operation.task());
+        return OperationResult.of(index, operation, Status.APPLIED, null);
+    }
+
+    private OperationResult updateLaborCost(ServiceOrder order, int index, Operation operation) {
+        if (operation.laborCost() == null || operation.laborCost() < 0) {
+            return OperationResult.of(index, operation, Status.REJECTED, "Labor cost must not be negative");
+        }
+        double previous = order.getLaborCost();
+        if (previous == operation.laborCost()) {
+            return OperationResult.of(index, operation, Status.UNCHANGED, null);
+        }
+        order.setLaborCost(operation.laborCost());
+        eventLog.laborCostChanged(order, previous);
+        return OperationResult.of(index, operation, Status.APPLIED, null);
+    }
+
+    private static boolean isStale(ServiceOrder order, Long expectedVersion) {
+        return expectedVersion != null && !expectedVersion.equals(order.getVersion());
+    }
+
+    private static OperationResult stale(int index, Operation operation, ServiceOrder order) {
+        return OperationResult.of(index, operation, Status.STALE, "Order is at version " + order.getVersion());
+    }
+
+    // Searches the task list when it is loaded already, otherwise uses the (order_id, name) index
+    private Optional<OrderTask> findTask(ServiceOrder order, String name) {
+        if (Hibernate.isInitialized(order.getTasks())) {
+            return order.getTasks().stream().filter(task -> task.getName().equals(name)).findFirst();
+        }
+        return taskRepository.findByOrder_IdAndName(order.getId(), name);
+    }
+
+    public enum OperationType {
+        ADD_PART, REMOVE_PART, ADD_REQUIRED_TASK, COMPLETE_TASK, UPDATE_LABOR_COST;
+
+        boolean usesTasks() {
+            return this == ADD_REQUIRED_TASK || this == COMPLETE_TASK;
+        }
+    }
+
+    public enum Status {
+        APPLIED, UNCHANGED, REJECTED, NOT_FOUND, STALE, ROLLED_BACK
+    }
+
+    public record Operation(OperationType type, Long partId, Integer quantity, String task, Double laborCost) {
+        public static Operation addPart(Long partId, int quantity) {
+            return new Operation(OperationType.ADD_PART, partId, quantity, null, null);
+        }
+
+        public static Operation removePart(Long partId, Integer quantity) {
+            return new Operation(OperationType.REMOVE_PART, partId, quantity, null, null);
+        }
+
+        public static Operation addRequiredTask(String task) {
+            return new Operation(OperationType.ADD_REQUIRED_TASK, null, null, task, null);
+        }
+
+        public static Operation completeTask(String task) {
+            return new Operation(OperationType.COMPLETE_TASK, null, null, task, null);
+        }
+
+        public static Operation updateLaborCost(Double laborCost) {
+            return new Operation(OperationType.UPDATE_LABOR_COST, null, null, null, laborCost);
+        }
+    }
+
+    public record OperationResult(int index, OperationType type, Status status, String message) {
+        static OperationResult of(int index, Operation operation, Status status, String message) {
+            return new OperationResult(index, operation.type(), status, message);
+        }
+
+        boolean isRejected() {
+            return status == Status.REJECTED || status == Status.NOT_FOUND || status == Status.STALE;
+        }
+    }
+
+    public record OperationOutcome(ServiceOrder order, OperationResult result) {
+    }
+
+    // version is optional and works like If-Match for this order
+    public record OrderOperations(Long orderId, Long version, List<Operation> operations) {
+    }
+
+    public record BatchResult(Long orderId, boolean found, boolean committed,
+                              List<OperationResult> operations, OrderSummary order) {
+        static BatchResult notFound(Long orderId) {
+            return new BatchResult(orderId, false, false, List.of(), null);
+        }
+
+        public boolean isStale() {
+            return operations.stream().anyMatch(result -> result.status() == Status.STALE);
+        }
+
+        boolean hasRejections() {
+            return operations.stream().anyMatch(OperationResult::isRejected);
+        }
+
+        // Applied operations are reported as rolled back and the order state is left out
+        BatchResult rolledBack() {
+            List<OperationResult> rolledBack = operations.stream()
+                    .map(result -> result.status() == Status.APPLIED
+                            ? new OperationResult(result.index(), result.type(), Status.ROLLED_BACK, null)
+                            : result)
+                    .toList();
+            return new BatchResult(orderId, found, false, rolledBack, null);
+        }
+    }
+}
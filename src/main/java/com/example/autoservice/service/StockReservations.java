@@ -0,0 +1,247 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.repository.ServiceOrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Holds on part stock for open service orders. Holds live in memory and are grouped per
+// part; every change to a part's holds runs inside ConcurrentHashMap.compute for that part,
+// so contention is limited to orders competing for the same part.
+@Service
+public class StockReservations {
+
+    private final Map<Long, PartHolds> byPart = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> partsByOrder = new ConcurrentHashMap<>();
+    private final ServiceOrderRepository orderRepository;
+    private final Duration ttl;
+    private final Clock clock = Clock.systemUTC();
+
+    public StockReservations(ServiceOrderRepository orderRepository,
+                             @Value("${autoservice.reservations.ttl:PT2H}") Duration ttl) {
+        this.orderRepository = orderRepository;
+        this.ttl = ttl;
+    }
+
+    // Holds are not persisted: parts on open orders are held again with a fresh TTL on startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreOpenOrders() {
+        for (Object[] row : orderRepository.findOpenOrderPartQuantities()) {
+            restore((Long) row[0], (Long) row[1], ((Number) row[2]).intValue());
+        }
+    }
+
+    // Holds quantity units of the part for the order if that many are still free.
+    // A hold taken inside a transaction is dropped again if the transaction rolls back.
+    public boolean reserve(Long orderId, Long partId, int quantity, int onHand) {
+        Instant expiresAt = clock.instant().plus(ttl);
+        boolean[] reserved = new boolean[1];
+        byPart.compute(partId, (id, holds) -> {
+            PartHolds current = holds != null ? holds : new PartHolds();
+            for (Long expiredOrderId : current.expire(clock.instant()).keySet()) {
+                forgetOrderPart(expiredOrderId, partId);
+            }
+            if (onHand - current.reserved >= quantity) {
+                current.add(orderId, quantity, expiresAt);
+                reserved[0] = true;
+            }
+            return current.isEmpty() ? null : current;
+        });
+        if (reserved[0]) {
+            partsByOrder.computeIfAbsent(orderId, id -> ConcurrentHashMap.newKeySet()).add(partId);
+            onRollback(() -> release(orderId, partId, quantity));
+        }
+        return reserved[0];
+    }
+
+    // Re-creates a hold regardless of free stock
+    public void restore(Long orderId, Long partId, int quantity) {
+        Instant expiresAt = clock.instant().plus(ttl);
+        byPart.compute(partId, (id, holds) -> {
+            PartHolds current = holds != null ? holds : new PartHolds();
+            current.add(orderId, quantity, expiresAt);
+            return current;
+        });
+        partsByOrder.computeIfAbsent(orderId, id -> ConcurrentHashMap.newKeySet()).add(partId);
+    }
+
+    // Like reserve, a release inside a transaction is undone if the transaction rolls back
+    public void release(Long orderId, Long partId, int quantity) {
+        int[] released = new int[1];
+        byPart.computeIfPresent(partId, (id, holds) -> {
+            released[0] = holds.remove(orderId, quantity);
+            return holds.isEmpty() ? null : holds;
+        });
+        if (held(orderId, partId) == 0) {
+            forgetOrderPart(orderId, partId);
+        }
+        if (released[0] > 0) {
+            onRollback(() -> restore(orderId, partId, released[0]));
+        }
+    }
+
+    // Drops every hold of the order, after the surrounding transaction commits
+    public void releaseAll(Long orderId) {
+        afterCommit(() -> {
+            Set<Long> parts = partsByOrder.remove(orderId);
+            if (parts == null) {
+                return;
+            }
+            for (Long partId : parts) {
+                byPart.computeIfPresent(partId, (id, holds) -> {
+                    holds.remove(orderId, Integer.MAX_VALUE);
+                    return holds.isEmpty() ? null : holds;
+                });
+            }
+        });
+    }
+
+    public int held(Long orderId, Long partId) {
+        PartHolds holds = byPart.get(partId);
+        if (holds == null) {
+            return 0;
+        }
+        return holds.held(orderId, clock.instant());
+    }
+
+    public int reserved(Long partId) {
+        PartHolds holds = byPart.get(partId);
+        if (holds == null) {
+            return 0;
+        }
+        return holds.unexpired(clock.instant());
+    }
+
+    @Scheduled(fixedDelayString = "${autoservice.reservations.sweep-interval:PT1M}")
+    public void expireHolds() {
+        Instant now = clock.instant();
+        for (Long partId : byPart.keySet()) {
+            byPart.computeIfPresent(partId, (id, holds) -> {
+                for (Long orderId : holds.expire(now).keySet()) {
+                    forgetOrderPart(orderId, partId);
+                }
+                return holds.isEmpty() ? null : holds;
+            });
+        }
+    }
+
+    private void forgetOrderPart(Long orderId, Long partId) {
+        partsByOrder.computeIfPresent(orderId, (id, parts) -> {
+            parts.remove(partId);
+            return parts.isEmpty() ? null : parts;
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static final class Hold {
+        int quantity;
+        Instant expiresAt;
+
+        Hold(int quantity, Instant expiresAt) {
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // Holds of one part. Writers run inside ConcurrentHashMap.compute for the part; the
+    // monitor additionally covers readers that look at the holds outside of compute.
+    private static final class PartHolds {
+        final Map<Long, Hold> byOrder = new HashMap<>();
+        int reserved;
+
+        synchronized void add(Long orderId, int quantity, Instant expiresAt) {
+            Hold hold = byOrder.get(orderId);
+            if (hold == null) {
+                byOrder.put(orderId, new Hold(quantity, expiresAt));
+            } else {
+                hold.quantity += quantity;
+                hold.expiresAt = expiresAt;
+            }
+            reserved += quantity;
+        }
+
+        synchronized int remove(Long orderId, int quantity) {
+            Hold hold = byOrder.get(orderId);
+            if (hold == null) {
+                return 0;
+            }
+            int released = Math.min(quantity, hold.quantity);
+            hold.quantity -= released;
+            reserved -= released;
+            if (hold.quantity == 0) {
+                byOrder.remove(orderId);
+            }
+            return released;
+        }
+
+        synchronized Map<Long, Hold> expire(Instant now) {
+            Map<Long, Hold> expired = new HashMap<>();
+            byOrder.entrySet().removeIf(entry -> {
+                if (entry.getValue().expiresAt.isAfter(now)) {
+                    return false;
+                }
+                expired.put(entry.getKey(), entry.getValue());
+                reserved -= entry.getValue().quantity;
+                return true;
+            });
+            return expired;
+        }
+
+        synchronized int held(Long orderId, Instant now) {
+            Hold hold = byOrder.get(orderId);
+            return hold != null && hold.expiresAt.isAfter(now) ? hold.quantity : 0;
+        }
+
+        synchronized int unexpired(Instant now) {
+            int total = 0;
+            for (Hold hold : byOrder.values()) {
+                if (hold.expiresAt.isAfter(now)) {
+                    total += hold.quantity;
+                }
+            }
+            return total;
+        }
+
+        synchronized boolean isEmpty() {
+            return byOrder.isEmpty();
+        }
+    }
+}
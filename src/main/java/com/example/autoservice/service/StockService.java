@@ -0,0 +1,90 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Stock mutations as single conditional UPDATEs, so concurrent requests for the same part
+// neither lose updates nor oversell. Joins the caller's transaction when there is one.
+@Service
+public class StockService {
+
+    private final PartRepository repository;
+    private final EntityManager entityManager;
+    private final InventoryValuation valuation;
+    private final PartCache cache;
+    private final ChangeOutbox outbox;
+    private final StockReservations reservations;
+
+    public StockService(PartRepository repository, EntityManager entityManager, InventoryValuation valuation,
+                        PartCache cache, ChangeOutbox outbox, StockReservations reservations) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.valuation = valuation;
+        this.cache = cache;
+        this.outbox = outbox;
+        this.reservations = reservations;
+    }
+
+    // Direct sale: only units that no open order holds can be taken, as /availability reports
+    // them. A hold taken at the same moment can still race the UPDATE; closing that order then
+    // holds the units again and fails with a 400 if they are gone.
+    @Transactional
+    public StockUpdate decrease(Long partId, int quantity) {
+        return decrease(partId, quantity, reservations.reserved(partId));
+    }
+
+    // Takes the units an order holds when it is closed; its hold covers them, so only the stock
+    // on hand is checked
+    @Transactional
+    public StockUpdate consumeHeld(Long partId, int quantity) {
+        return decrease(partId, quantity, 0);
+    }
+
+    private StockUpdate decrease(Long partId, int quantity, int keptBack) {
+        if (quantity <= 0) {
+            return new StockUpdate(StockUpdate.Status.INVALID_QUANTITY, null);
+        }
+        if (repository.decreaseStockIfAvailable(partId, quantity, keptBack) == 0) {
+            return repository.existsById(partId)
+                    ? new StockUpdate(StockUpdate.Status.INSUFFICIENT_STOCK, null)
+                    : new StockUpdate(StockUpdate.Status.NOT_FOUND, null);
+        }
+        return applied(partId, -quantity);
+    }
+
+    @Transactional
+    public StockUpdate increase(Long partId, int quantity) {
+        if (quantity <= 0) {
+            return new StockUpdate(StockUpdate.Status.INVALID_QUANTITY, null);
+        }
+        if (repository.increaseStock(partId, quantity) == 0) {
+            return new StockUpdate(StockUpdate.Status.NOT_FOUND, null);
+        }
+        return applied(partId, quantity);
+    }
+
+    // The bulk UPDATE bypasses the persistence context and the entity listeners, so the
+    // part is refreshed, the value delta reported, the cached copy evicted and the change
+    // published here
+    private StockUpdate applied(Long partId, int delta) {
+        Part part = repository.findById(partId).orElseThrow();
+        entityManager.refresh(part);
+        valuation.adjust(part.getCategory(), part.getManufacturer(), part.getPrice() * delta);
+        cache.evict(partId);
+        outbox.stockChanged(part);
+        return new StockUpdate(StockUpdate.Status.UPDATED, part);
+    }
+
+    public record StockUpdate(Status status, Part part) {
+        public enum Status {
+            UPDATED, NOT_FOUND, INSUFFICIENT_STOCK, INVALID_QUANTITY
+        }
+
+        public boolean isUpdated() {
+            return status == Status.UPDATED;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.repository.ArchivedOrderRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Service history summary of a vehicle: visits, lifetime spend and parts replaced per category.
+// The closed-order part, over service_orders and the archive, is cached per vehicle until
+// VehicleHistoryListener sees one of the vehicle's completed orders change; only the open orders
+// are counted on every read. Evictions are repeated after commit, as in PartCache.
+@Service
+public class VehicleHistorySummaries {
+
+    private final ServiceOrderRepository orderRepository;
+    private final ArchivedOrderRepository archiveRepository;
+    private final Cache<Long, ClosedOrders> closed;
+
+    public VehicleHistorySummaries(ServiceOrderRepository orderRepository,
+                                   ArchivedOrderRepository archiveRepository,
+                                   @Value("${autoservice.vehicles.history-cache.maximum-size:10000}") long maximumSize) {
+        this.orderRepository = orderRepository;
+        this.archiveRepository = archiveRepository;
+        this.closed = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public Summary summary(Long vehicleId) {
+        ClosedOrders closedOrders = closed.get(vehicleId, this::load);
+        long openOrders = orderRepository.countByVehicle_IdAndCompletedFalse(vehicleId);
+        return new Summary(closedOrders.orders() + openOrders, openOrders, closedOrders.spent(),
+                closedOrders.lastClosedAt(), closedOrders.partsByCategory());
+    }
+
+    public void evict(Long vehicleId) {
+        closed.invalidate(vehicleId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    closed.invalidate(vehicleId);
+                }
+            });
+        }
+    }
+
+    private ClosedOrders load(Long vehicleId) {
+        ServiceOrderRepository.ClosedOrdersView current = orderRepository.sumClosedOrdersOfVehicle(vehicleId);
+        ServiceOrderRepository.ClosedOrdersView archived = archiveRepository.sumArchivedOrdersOfVehicle(vehicleId);
+        Map<String, PartsReplaced> parts = new TreeMap<>();
+        addParts(parts, orderRepository.sumConsumedPartsOfVehicle(vehicleId));
+        addParts(parts, archiveRepository.sumArchivedPartsOfVehicle(vehicleId));
+        Instant lastClosedAt = current.getLastClosedAt();
+        if (lastClosedAt == null || (archived.getLastClosedAt() != null && archived.getLastClosedAt().isAfter(lastClosedAt))) {
+            lastClosedAt = archived.getLastClosedAt();
+        }
+        return new ClosedOrders(current.getOrders() + archived.getOrders(),
+                value(current.getSpent()) + value(archived.getSpent()), lastClosedAt, Collections.unmodifiableMap(parts));
+    }
+
+    private static void addParts(Map<String, PartsReplaced> parts, List<ServiceOrderRepository.ConsumptionView> rows) {
+        for (ServiceOrderRepository.ConsumptionView row : rows) {
+            String category = row.getCategory() != null ? row.getCategory() : "(none)";
+            PartsReplaced replaced = new PartsReplaced(row.getUnits() != null ? row.getUnits() : 0, value(row.getValue()));
+            parts.merge(category, replaced, PartsReplaced::plus);
+        }
+    }
+
+    private static double value(Double value) {
+        return value != null ? value : 0.0;
+    }
+
+    private record ClosedOrders(long orders, double spent, Instant lastClosedAt,
+                                Map<String, PartsReplaced> partsByCategory) {
+    }
+
+    // visits counts open orders too; spend and parts count completed orders only
+    public record Summary(long visits, long openOrders, double lifetimeSpend, Instant lastClosedAt,
+                          Map<String, PartsReplaced> partsReplacedByCategory) {
+    }
+
+    public record PartsReplaced(long units, double value) {
+        PartsReplaced plus(PartsReplaced other) {
+            return new PartsReplaced(units + other.units, value + other.value);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+-- Expression and partial indexes that JPA annotations cannot describe.
+-- Runs after Hibernate has created the schema (see spring.jpa.defer-datasource-initialization).
+
+CREATE INDEX IF NOT EXISTS idx_parts_category_upper ON parts (upper(category));
+CREATE INDEX IF NOT EXISTS idx_parts_manufacturer_upper ON parts (upper(manufacturer));
+
+-- Open orders are a small, hot subset of all orders: keep the /active keyset index to them
+CREATE INDEX IF NOT EXISTS idx_orders_open_created ON service_orders (created_at, id) WHERE NOT completed;
+
+-- VIN and plate prefix lookups (LIKE 'key%') need pattern ops unless the database collation is C;
+-- suffix lookups use the same on the reversed keys
+CREATE INDEX IF NOT EXISTS idx_vehicles_vin_key_pattern ON vehicles (vin_key text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_vehicles_vin_key_reversed_pattern ON vehicles (vin_key_reversed text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_vehicles_plate_key_pattern ON vehicles (plate_key text_pattern_ops);
+CREATE INDEX IF NOT EXISTS idx_vehicles_plate_key_reversed_pattern ON vehicles (plate_key_reversed text_pattern_ops);
@@ -0,0 +1,112 @@
+package com.example.autoservice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Chunks of three, so the duplicate email rolls back a chunk that also holds valid rows
+@SpringBootTest(properties = "autoservice.bulk.chunk-size=3")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BulkCreateTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void rowsThatCannotBeCreatedAreReportedByIndex() throws Exception {
+		String body = "["
+				+ customer("Bulk 0", "bulk0@example.com") + ","
+				+ customer("Bulk 1", "bulk1@example.com") + ","
+				+ "{\"phone\":\"no name\",\"email\":\"bulk2@example.com\"},"
+				+ customer("Bulk 3", "bulk3@example.com") + ","
+				+ customer("Bulk 4", "bulk0@example.com") + ","
+				+ customer("Bulk 5", "bulk5@example.com") + ","
+				+ "{\"id\":1,\"name\":\"Bulk 6\",\"email\":\"bulk6@example.com\"}"
+				+ "]";
+		String response = mvc.perform(post("/api/customers/bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.received").value(7))
+				.andExpect(jsonPath("$.created").value(4))
+				.andReturn().getResponse().getContentAsString();
+
+		List<Integer> rejected = new ArrayList<>();
+		objectMapper.readTree(response).get("errors").forEach(error -> rejected.add(error.get("index").asInt()));
+		assertEquals(List.of(2, 4, 6), rejected);
+
+		JsonNode customers = objectMapper.readTree(mvc.perform(get("/api/customers"))
+				.andReturn().getResponse().getContentAsString());
+		List<String> names = new ArrayList<>();
+		customers.forEach(c -> names.add(c.get("name").asText()));
+		for (String name : List.of("Bulk 0", "Bulk 1", "Bulk 3", "Bulk 5")) {
+			assertEquals(1, names.stream().filter(name::equals).count(), name);
+		}
+		assertEquals(0, names.stream().filter("Bulk 4"::equals).count());
+	}
+
+	@Test
+	void partsGetAvailabilityFromStockAndABodyThatIsNotAnArrayIsRejected() throws Exception {
+		String body = "[{\"name\":\"Bulk filter\",\"price\":9.5,\"stock\":0,\"category\":\"Filters\"},"
+				+ "{\"name\":\"Bulk pad\",\"price\":20,\"stock\":-1,\"category\":\"Brakes\"}]";
+		String response = mvc.perform(post("/api/parts/bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.created").value(1))
+				.andExpect(jsonPath("$.errors[0].index").value(1))
+				.andReturn().getResponse().getContentAsString();
+		assertEquals(1, objectMapper.readTree(response).get("errors").size());
+
+		JsonNode parts = objectMapper.readTree(mvc.perform(get("/api/parts"))
+				.andReturn().getResponse().getContentAsString());
+		List<Boolean> available = new ArrayList<>();
+		parts.forEach(part -> {
+			if (part.get("name").asText().equals("Bulk filter")) {
+				available.add(part.get("isAvailable").asBoolean());
+			}
+		});
+		assertEquals(List.of(false), available);
+
+		mvc.perform(post("/api/mechanics/bulk").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"x\"}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void aCreateThatViolatesAUniqueColumnLeavesTheSearchIndexAlone() throws Exception {
+		mvc.perform(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\":\"Unique gasket\",\"price\":3,\"stock\":1,\"category\":\"Gaskets\",\"partNumber\":\"BULK-DUP-1\"}"))
+				.andExpect(status().isOk());
+
+		assertThrows(ServletException.class, () -> mvc.perform(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Zanzibar gasket\",\"price\":3,\"stock\":1,\"category\":\"Gaskets\",\"partNumber\":\"BULK-DUP-1\"}")));
+
+		mvc.perform(get("/api/parts/search").param("name", "Zanzibar"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.page.totalElements").value(0))
+				.andExpect(jsonPath("$.content").isEmpty());
+		mvc.perform(get("/api/parts/search").param("name", "Unique gasket"))
+				.andExpect(jsonPath("$.page.totalElements").value(1));
+	}
+
+	private static String customer(String name, String email) {
+		return "{\"name\":\"" + name + "\",\"email\":\"" + email + "\"}";
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.model.OutboxEvent;
+import com.example.autoservice.repository.OutboxEventRepository;
+import com.example.autoservice.service.ChangeFeed;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A client that stops reading only blocks a send once the socket buffers are full, which needs a
+// real connection. One sender thread, so without the send timeout the stalled client would hold
+// up every other subscriber until the container's write timeout.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"autoservice.changes.sender-threads=1",
+		"autoservice.changes.send-timeout=PT1S",
+		"autoservice.changes.poll-interval=PT0.05S"})
+@ActiveProfiles("test")
+class ChangeFeedStallTest {
+
+	private static final int STALLING_CHANGES = 400;
+	private static final long WAIT_MILLIS = 10_000;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ChangeFeed feed;
+
+	@Autowired
+	private OutboxEventRepository outboxRepository;
+
+	@Test
+	void aClientThatStopsReadingIsDroppedWithoutHoldingUpTheOthers() throws Exception {
+		try (Socket stalled = new Socket()) {
+			// A small receive window fills after a few changes; the client never reads
+			stalled.setReceiveBufferSize(4096);
+			stalled.connect(new InetSocketAddress("localhost", port));
+			OutputStream out = stalled.getOutputStream();
+			out.write(("GET /api/changes HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n")
+					.getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			await(() -> feed.subscriberCount() == 1, "stalled client subscribed");
+
+			// Far more than the socket buffers hold, so the send to the stalled client blocks
+			String filler = "x".repeat(8192);
+			List<OutboxEvent> changes = new ArrayList<>();
+			for (int i = 0; i < STALLING_CHANGES; i++) {
+				changes.add(change("{\"filler\":\"" + filler + "\"}"));
+			}
+			outboxRepository.saveAll(changes);
+
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+			CompletableFuture<HttpResponse<InputStream>> healthy = client.sendAsync(
+					HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/changes")).build(),
+					HttpResponse.BodyHandlers.ofInputStream());
+			await(() -> feed.subscriberCount() == 2, "healthy client subscribed");
+			outboxRepository.save(change("{\"marker\":\"after-stall\"}"));
+			// The response starts with the first change sent to the client
+			HttpResponse<InputStream> response = healthy.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+			assertEquals(200, response.statusCode());
+
+			CompletableFuture<Boolean> received = CompletableFuture.supplyAsync(() -> {
+				try (BufferedReader reader = new BufferedReader(
+						new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						if (line.contains("after-stall")) {
+							return true;
+						}
+					}
+					return false;
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			assertTrue(received.get(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+			await(() -> feed.subscriberCount() == 1, "stalled client dropped");
+			response.body().close();
+		}
+	}
+
+	private static OutboxEvent change(String payload) {
+		return new OutboxEvent(OutboxEvent.Topic.STOCK, "TEST", 0L, payload, Instant.now());
+	}
+
+	private static void await(BooleanSupplier condition, String description) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertTrue(condition.getAsBoolean(), description);
+	}
+}
@@ -0,0 +1,212 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.model.OutboxEvent;
+import com.example.autoservice.repository.OutboxEventRepository;
+import com.example.autoservice.service.ChangeFeed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The test polls the feed itself; the gap timeout is short so that skipping can be waited for
+@SpringBootTest(properties = {"autoservice.changes.poll-interval=PT1H", "autoservice.changes.gap-timeout=PT0.5S"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ChangeFeedTest {
+
+	private static final long WAIT_MILLIS = 5000;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ChangeFeed feed;
+
+	@Autowired
+	private OutboxEventRepository outboxRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	// Moves delivery past gaps that earlier tests left in the shared outbox
+	@BeforeEach
+	void catchUpWithTheOutbox() throws Exception {
+		MvcResult probe = subscribe(get("/api/changes"));
+		committed("caught-up");
+		pollUntil(probe, "caught-up");
+	}
+
+	@Test
+	void changesReachTheSubscribersOfTheirTopic() throws Exception {
+		MvcResult stock = subscribe(get("/api/changes").param("topics", "stock"));
+		MvcResult orders = subscribe(get("/api/changes").param("topics", "ORDERS"));
+
+		long part = id(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Feed part\",\"price\":1.0,\"stock\":3,\"category\":\"Feed\"}"));
+		long customer = id(post("/api/customers").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Feed customer\",\"email\":\"feed@example.com\"}"));
+		long order = id(post("/api/orders").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"customer\":{\"id\":" + customer + "},\"laborCost\":1}"));
+		feed.poll();
+
+		String stockEvents = awaitContent(stock, "\"partId\":" + part);
+		String orderEvents = awaitContent(orders, "\"orderId\":" + order);
+		assertTrue(stockEvents.contains("event:stock"), stockEvents);
+		assertFalse(stockEvents.contains("event:orders"), stockEvents);
+		assertFalse(orderEvents.contains("event:stock"), orderEvents);
+
+		mvc.perform(get("/api/changes").param("topics", "invoices")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void aSubscriberResumesAfterLastEventId() throws Exception {
+		committed("resume-1");
+		long first = outboxRepository.findMaxId().orElseThrow();
+		committed("resume-2");
+		committed("resume-3");
+		feed.poll();
+
+		MvcResult resumed = subscribe(get("/api/changes").header("Last-Event-ID", first));
+		String events = awaitContent(resumed, "resume-3");
+		assertFalse(events.contains("resume-1"), events);
+		assertTrue(events.indexOf("resume-2") < events.indexOf("resume-3"), events);
+	}
+
+	@Test
+	void aGapIsWaitedForFromWhenItIsFirstSeenAndALateCommitIsStillDelivered() throws Exception {
+		MvcResult subscriber = subscribe(get("/api/changes"));
+
+		// The change after the gap is older than the gap timeout when the feed first sees the gap,
+		// which must not count towards the wait
+		HeldChange slow = hold("slow");
+		outboxRepository.save(change("after-slow", Instant.now().minusSeconds(60)));
+		feed.poll();
+		slow.commit();
+		String events = pollUntil(subscriber, "after-slow");
+		assertTrue(events.contains("\"slow\"") && events.indexOf("\"slow\"") < events.indexOf("after-slow"), events);
+
+		// Still open when the gap times out: skipped, then delivered out of order once committed
+		HeldChange late = hold("late");
+		committed("after-late");
+		pollUntil(subscriber, "after-late");
+		late.commit();
+		events = pollUntil(subscriber, "\"late\"");
+		assertTrue(events.indexOf("after-late") < events.indexOf("\"late\""), events);
+
+		// A rolled back change holds up delivery for the gap timeout only
+		HeldChange rolledBack = hold("rolled-back");
+		committed("after-rollback");
+		rolledBack.rollback();
+		events = pollUntil(subscriber, "after-rollback");
+		assertFalse(events.contains("rolled-back"), events);
+	}
+
+	private void committed(String marker) {
+		outboxRepository.save(change(marker, Instant.now()));
+	}
+
+	private static OutboxEvent change(String marker, Instant createdAt) {
+		return new OutboxEvent(OutboxEvent.Topic.STOCK, "TEST", 0L, "{\"marker\":\"" + marker + "\"}", createdAt);
+	}
+
+	// Inserts a change in a transaction that stays open until commit() or rollback()
+	private HeldChange hold(String marker) throws Exception {
+		CountDownLatch inserted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		HeldChange held = new HeldChange(release);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		held.done = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+			outboxRepository.saveAndFlush(change(marker, Instant.now()));
+			inserted.countDown();
+			try {
+				assertTrue(release.await(10, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			if (held.rollback) {
+				status.setRollbackOnly();
+			}
+		}));
+		assertTrue(inserted.await(10, TimeUnit.SECONDS));
+		return held;
+	}
+
+	private static final class HeldChange {
+		private final CountDownLatch release;
+		private CompletableFuture<Void> done;
+		private volatile boolean rollback;
+
+		HeldChange(CountDownLatch release) {
+			this.release = release;
+		}
+
+		void commit() throws Exception {
+			release.countDown();
+			done.get(10, TimeUnit.SECONDS);
+		}
+
+		void rollback() throws Exception {
+			rollback = true;
+			commit();
+		}
+	}
+
+	private MvcResult subscribe(RequestBuilder request) throws Exception {
+		return mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+	}
+
+	private String awaitContent(MvcResult subscriber, String expected) throws Exception {
+		return await(subscriber, expected, () -> { });
+	}
+
+	// Polls the feed until the subscriber got the change, for changes delivered once a gap times out
+	private String pollUntil(MvcResult subscriber, String expected) throws Exception {
+		return await(subscriber, expected, feed::poll);
+	}
+
+	private static String await(MvcResult subscriber, String expected, Runnable step) throws Exception {
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		step.run();
+		String content = content(subscriber);
+		while (!content.contains(expected) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+			step.run();
+			content = content(subscriber);
+		}
+		assertTrue(content.contains(expected), content);
+		return content;
+	}
+
+	private static String content(MvcResult subscriber) throws Exception {
+		return subscriber.getResponse().getContentAsString();
+	}
+
+	private long id(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body).get("id").asLong();
+	}
+}
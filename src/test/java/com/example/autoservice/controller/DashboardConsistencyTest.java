@@ -0,0 +1,133 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.service.OperationsDashboard;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DashboardConsistencyTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private OperationsDashboard dashboard;
+
+	@Test
+	void incrementalFiguresMatchARebuild() throws Exception {
+		// Other tests may have written orders behind the dashboard's back
+		dashboard.reconcile();
+		OperationsDashboard.Dashboard before = dashboard.read(1);
+
+		long mechanic = id(post("/api/mechanics").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Dashboard mechanic\",\"branch\":\"Dashboard branch\"}"));
+		long part = id(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Dashboard part\",\"price\":10.0,\"stock\":100,\"category\":\"Dashboard\"}"));
+		String order = "{\"laborCost\":5,\"lines\":[{\"partId\":" + part + ",\"quantity\":2}]}";
+		long closed = id(post("/api/orders").param("branch", "Dashboard branch")
+				.contentType(MediaType.APPLICATION_JSON).content(order));
+		long reopened = id(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(order));
+		long deleted = id(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(order));
+		long cancelled = id(post("/api/orders").param("branch", "Dashboard branch")
+				.contentType(MediaType.APPLICATION_JSON).content(order));
+
+		mvc.perform(put("/api/orders/{id}/close", closed)).andExpect(status().isOk());
+		mvc.perform(put("/api/orders/{id}/close", reopened)).andExpect(status().isOk());
+		mvc.perform(put("/api/orders/{id}/close", deleted)).andExpect(status().isOk());
+		mvc.perform(put("/api/orders/{id}", reopened).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"laborCost\":5,\"completed\":false}")).andExpect(status().isOk());
+		mvc.perform(delete("/api/orders/{id}", deleted)).andExpect(status().isNoContent());
+		mvc.perform(put("/api/orders/{id}/cancel", cancelled)).andExpect(status().isOk());
+
+		OperationsDashboard.Dashboard after = dashboard.read(1);
+		assertEquals(before.closedOrders() + 1, after.closedOrders());
+		assertEquals(before.revenue() + 25.0, after.revenue(), 1e-9);
+		assertEquals(before.openOrders() + 2, after.openOrders());
+		assertEquals(before.unassignedOpenOrders() + 2, after.unassignedOpenOrders());
+		assertEquals(null, after.openOrdersByMechanic().get(mechanic));
+		assertEquals(new OperationsDashboard.Consumption(2, 20.0), after.partsConsumedByCategory().get("Dashboard"));
+
+		OperationsDashboard.ReconciliationReport report = dashboard.reconcile();
+		assertFalse(report.drifted(), report.drift().toString());
+	}
+
+	@Test
+	void reconcilingWhileOrdersChangeNeitherLosesNorDoubleCountsChanges() throws Exception {
+		dashboard.reconcile();
+
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(5);
+		List<Future<?>> writers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			// A part per writer, so that the writers only contend on the dashboard
+			long part = id(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+					.content("{\"name\":\"Dashboard stress part " + t + "\",\"price\":4.0,\"stock\":100,"
+							+ "\"category\":\"Dashboard stress\"}"));
+			String order = "{\"laborCost\":3,\"lines\":[{\"partId\":" + part + ",\"quantity\":1}]}";
+			writers.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < 25; i++) {
+					long created = id(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(order));
+					mvc.perform(put("/api/orders/{id}/close", created)).andExpect(status().isOk());
+				}
+				return null;
+			}));
+		}
+		Future<List<OperationsDashboard.ReconciliationReport>> reconciler = executor.submit(() -> {
+			start.await();
+			List<OperationsDashboard.ReconciliationReport> reports = new ArrayList<>();
+			while (writing.get()) {
+				reports.add(dashboard.reconcile());
+			}
+			return reports;
+		});
+		start.countDown();
+		for (Future<?> writer : writers) {
+			writer.get();
+		}
+		writing.set(false);
+		List<OperationsDashboard.ReconciliationReport> reports = reconciler.get();
+		executor.shutdown();
+
+		for (OperationsDashboard.ReconciliationReport report : reports) {
+			assertFalse(report.drifted(), report.drift().toString());
+		}
+		assertEquals(new OperationsDashboard.Consumption(100, 400.0),
+				dashboard.read(1).partsConsumedByCategory().get("Dashboard stress"));
+	}
+
+	private long id(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		JsonNode json = objectMapper.readTree(body);
+		return json.get("id").asLong();
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.autoservice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// An archive run takes every completed order in the database, so the class starts a context
+// (and database) of its own rather than archiving the orders of classes that shared the cached one
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+class OrderArchiveTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void archivedOrdersAreStillFoundByIdAndInTheCustomerHistory() throws Exception {
+		long customer = json(post("/api/customers").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Archive customer\",\"phone\":\"555\",\"email\":\"archive@example.com\"}")).get("id").asLong();
+		String order = "{\"customer\":{\"id\":" + customer + "},\"laborCost\":10}";
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			ids.add(json(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(order)).get("id").asLong());
+		}
+		mvc.perform(put("/api/orders/{id}/close", ids.get(0))).andExpect(status().isOk());
+		mvc.perform(put("/api/orders/{id}/close", ids.get(2))).andExpect(status().isOk());
+
+		JsonNode run = json(post("/api/orders/archive").param("closedBefore", "PT0S"));
+		assertEquals(2, run.get("archived").asLong(), run.toString());
+
+		mvc.perform(get("/api/orders/{id}", ids.get(2)))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"2\""))
+				.andExpect(jsonPath("$.completed").value(true))
+				.andExpect(jsonPath("$.totalCost").value(10.0));
+		mvc.perform(get("/api/orders/{id}/completion-status", ids.get(2))).andExpect(status().isNotFound());
+
+		// Pages of two over three open and two archived orders, oldest first
+		List<Long> listed = new ArrayList<>();
+		String cursor = null;
+		do {
+			RequestBuilder page = cursor == null
+					? get("/api/orders/customer/{id}", customer).param("size", "2").param("direction", "asc")
+					: get("/api/orders/customer/{id}", customer).param("size", "2").param("direction", "asc").param("cursor", cursor);
+			JsonNode window = json(page);
+			window.get("orders").forEach(o -> listed.add(o.get("id").asLong()));
+			cursor = window.get("nextCursor").isNull() ? null : window.get("nextCursor").asText();
+		} while (cursor != null);
+		assertEquals(ids, listed);
+	}
+
+	private JsonNode json(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+}
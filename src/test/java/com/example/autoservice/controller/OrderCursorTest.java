@@ -0,0 +1,156 @@
+package com.example.autoservice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The active listing covers every open order in the database, so the class starts a context
+// (and database) of its own and knows exactly which orders each walk must return
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+class OrderCursorTest {
+
+	private static final int PAGE_SIZE = 3;
+	private static final Instant BASE = Instant.parse("2024-03-01T08:00:00Z");
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void walkingTheCursorsReturnsEveryOrderOnceInEachSort() throws Exception {
+		long customer = customer("Cursor customer");
+		long other = customer("Other cursor customer");
+		// Later orders are older, and four share an instant, so the tie spans a page boundary
+		int[] minutes = {30, 10, 10, 20, 10, 10, 0, 40};
+		List<Order> orders = new ArrayList<>();
+		for (int minute : minutes) {
+			orders.add(order(customer, BASE.plusSeconds(minute * 60L)));
+		}
+		Order closed = order(customer, BASE.plusSeconds(10 * 60L));
+		mvc.perform(put("/api/orders/{id}/close", closed.id())).andExpect(status().isOk());
+		List<Order> customerOrders = new ArrayList<>(orders);
+		customerOrders.add(closed);
+		List<Order> active = new ArrayList<>(orders);
+		active.add(order(other, BASE.plusSeconds(10 * 60L)));
+		for (String direction : List.of("asc", "desc")) {
+			for (String sort : List.of("id", "createdAt")) {
+				assertEquals(ids(sorted(active, sort, direction)),
+						walk(() -> get("/api/orders/active"), sort, direction), sort + " " + direction);
+				assertEquals(ids(sorted(customerOrders, sort, direction)),
+						walk(() -> get("/api/orders/customer/{id}", customer), sort, direction), sort + " " + direction);
+			}
+		}
+	}
+
+	@Test
+	void unsupportedSortsAndBadCursorsAreRejected() throws Exception {
+		long customer = customer("Rejected cursor customer");
+		String idCursor = encode("id||1");
+
+		for (String path : List.of("/api/orders/active", "/api/orders/customer/" + customer)) {
+			mvc.perform(get(path).param("sort", "laborCost")).andExpect(status().isBadRequest());
+			mvc.perform(get(path).param("direction", "sideways")).andExpect(status().isBadRequest());
+			mvc.perform(get(path).param("size", "0")).andExpect(status().isBadRequest());
+			mvc.perform(get(path).param("cursor", "not base64!")).andExpect(status().isBadRequest());
+			mvc.perform(get(path).param("cursor", encode("createdAt|yesterday|1"))).andExpect(status().isBadRequest());
+			mvc.perform(get(path).param("cursor", encode("createdAt|" + BASE + "|x"))).andExpect(status().isBadRequest());
+			mvc.perform(get(path).param("cursor", encode("createdAt|" + BASE))).andExpect(status().isBadRequest());
+			// A cursor only continues the sort it was issued for
+			mvc.perform(get(path).param("sort", "createdAt").param("cursor", idCursor)).andExpect(status().isBadRequest());
+			mvc.perform(get(path).param("sort", "id").param("cursor", idCursor)).andExpect(status().isOk());
+		}
+	}
+
+	// Follows nextCursor to the end, checking every window is full but the last
+	private List<Long> walk(Supplier<MockHttpServletRequestBuilder> listing, String sort, String direction) throws Exception {
+		List<Long> listed = new ArrayList<>();
+		String cursor = null;
+		int windows = 0;
+		do {
+			MockHttpServletRequestBuilder request = listing.get().param("sort", sort).param("direction", direction)
+					.param("size", String.valueOf(PAGE_SIZE));
+			if (cursor != null) {
+				request.param("cursor", cursor);
+			}
+			JsonNode window = json(request);
+			window.get("orders").forEach(order -> listed.add(order.get("id").asLong()));
+			cursor = window.get("nextCursor").isNull() ? null : window.get("nextCursor").asText();
+			windows++;
+			if (cursor != null) {
+				assertEquals(PAGE_SIZE * windows, listed.size());
+			}
+		} while (cursor != null);
+		assertTrue(windows > 1, "one window only");
+		return listed;
+	}
+
+	private static List<Order> sorted(List<Order> orders, String sort, String direction) {
+		Comparator<Order> byId = Comparator.comparing(Order::id);
+		Comparator<Order> order = sort.equals("id") ? byId : Comparator.comparing(Order::createdAt).thenComparing(byId);
+		return orders.stream().sorted(direction.equals("asc") ? order : order.reversed()).toList();
+	}
+
+	private static List<Long> ids(List<Order> orders) {
+		return orders.stream().map(Order::id).toList();
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private long customer(String name) throws Exception {
+		return json(post("/api/customers").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"" + name + "\",\"email\":\"" + name.replace(' ', '.') + "@example.com\"}"))
+				.get("id").asLong();
+	}
+
+	// created_at is set on insert only, so the test moves it in the table
+	private Order order(long customer, Instant createdAt) throws Exception {
+		long id = json(post("/api/orders").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"customer\":{\"id\":" + customer + "},\"laborCost\":10}")).get("id").asLong();
+		jdbcTemplate.update("update service_orders set created_at = ? where id = ?", Timestamp.from(createdAt), id);
+		return new Order(id, createdAt);
+	}
+
+	private JsonNode json(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+
+	private record Order(long id, Instant createdAt) {
+	}
+}
@@ -0,0 +1,104 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.PartRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Run with: mvn test -Dbenchmark=true -Dtest=OrderStatusBatchBenchmarkTest [-Dbenchmark.orders=300]
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class OrderStatusBatchBenchmarkTest {
+
+	private static final int ROUNDS = 7;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PartRepository partRepository;
+
+	@Autowired
+	private ServiceOrderRepository orderRepository;
+
+	@Test
+	void batchStatusBeatsPerOrderPolling() throws Exception {
+		int orders = Integer.getInteger("benchmark.orders", 300);
+		List<Long> ids = createOrders(orders);
+		String idList = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		long[] perOrder = new long[ROUNDS];
+		long[] batch = new long[ROUNDS];
+		long perOrderStatements = 0;
+		long batchStatements = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			statistics.clear();
+			long start = System.nanoTime();
+			for (Long id : ids) {
+				mvc.perform(get("/api/orders/{id}/total-cost", id)).andExpect(status().isOk());
+				mvc.perform(get("/api/orders/{id}/completion-status", id)).andExpect(status().isOk());
+			}
+			perOrder[round] = System.nanoTime() - start;
+			perOrderStatements = statistics.getPrepareStatementCount();
+
+			statistics.clear();
+			start = System.nanoTime();
+			mvc.perform(get("/api/orders/status").param("ids", idList)).andExpect(status().isOk());
+			batch[round] = System.nanoTime() - start;
+			batchStatements = statistics.getPrepareStatementCount();
+		}
+
+		Arrays.sort(perOrder);
+		Arrays.sort(batch);
+		double perOrderMillis = perOrder[ROUNDS / 2] / 1e6;
+		double batchMillis = batch[ROUNDS / 2] / 1e6;
+		System.out.printf("%d orders: per-order endpoints %.1f ms / %d statements, batch endpoint %.1f ms / %d statements%n",
+				orders, perOrderMillis, perOrderStatements, batchMillis, batchStatements);
+		assertEquals(1, batchStatements);
+		assertTrue(batchMillis * 10 < perOrderMillis, "batch " + batchMillis + " ms vs per-order " + perOrderMillis + " ms");
+	}
+
+	private List<Long> createOrders(int count) {
+		List<Part> parts = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			parts.add(partRepository.save(new Part("Status benchmark part " + i, 5.0 + i, 1000, "Filters")));
+		}
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			ServiceOrder order = new ServiceOrder();
+			order.addPart(parts.get(i % parts.size()), 1 + i % 3);
+			order.setRequiredTasks(new ArrayList<>(List.of("Diagnose", "Repair", "Test drive")));
+			order.setCompletedTasks(new ArrayList<>(List.of("Diagnose", "Repair", "Test drive").subList(0, i % 4)));
+			order.setLaborCost(40 + i % 7);
+			order.setDescription("Status benchmark order " + i);
+			ids.add(orderRepository.save(order).getId());
+		}
+		return ids;
+	}
+}
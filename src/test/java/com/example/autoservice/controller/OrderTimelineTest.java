@@ -0,0 +1,158 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.dto.OrderState;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import com.example.autoservice.service.OrderEventLog;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Snapshots every 50 events (the default), so a stream of 61 events replays from a snapshot
+// past the 50th and from the start before it
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderTimelineTest {
+
+	private static final int OPERATIONS = 60;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ServiceOrderRepository orderRepository;
+
+	@Autowired
+	private OrderEventLog eventLog;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void replayingTheEventsGivesTheStateAfterEveryEvent() throws Exception {
+		long filter = id(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Timeline filter\",\"price\":2.5,\"stock\":1000,\"category\":\"Timeline\"}"));
+		long belt = id(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Timeline belt\",\"price\":4.0,\"stock\":1000,\"category\":\"Timeline\"}"));
+		long order = id(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content("{\"laborCost\":10}"));
+
+		// states.get(n) is the order after its n-th event
+		List<OrderState> states = new ArrayList<>();
+		states.add(null);
+		states.add(state(order));
+		for (int i = 0; i < OPERATIONS; i++) {
+			RequestBuilder operation = switch (i % 6) {
+				case 0 -> post("/api/orders/{id}/parts/{part}", order, filter).param("quantity", "2");
+				case 1 -> post("/api/orders/{id}/parts/{part}", order, belt);
+				case 2 -> post("/api/orders/{id}/required-tasks", order).content("task-" + i);
+				case 3 -> post("/api/orders/{id}/complete-task", order).content("task-" + (i - 1));
+				case 4 -> patch("/api/orders/{id}/labor-cost", order).param("laborCost", String.valueOf(10 + i));
+				default -> delete("/api/orders/{id}/parts/{part}", order, filter).param("quantity", "1");
+			};
+			mvc.perform(operation).andExpect(status().isOk());
+			states.add(state(order));
+		}
+
+		JsonNode timeline = json(get("/api/orders/{id}/timeline", order));
+		assertEquals(OPERATIONS + 1, timeline.size());
+		assertEquals("CREATED", timeline.get(0).get("type").asText());
+		for (int n = 1; n <= OPERATIONS + 1; n++) {
+			assertEquals(n, timeline.get(n - 1).get("sequence").asLong());
+
+			JsonNode replayed = json(get("/api/orders/{id}/timeline/state", order).param("at", String.valueOf(n)));
+			assertEquals(n, replayed.get("sequence").asLong());
+			assertEquals(n < 50 ? 0 : 50, replayed.get("snapshotSequence").asLong());
+			assertEquals(states.get(n), objectMapper.treeToValue(replayed.get("state"), OrderState.class), "after event " + n);
+		}
+
+		// Without at: the events after the snapshot replayed onto it
+		OrderEventLog.ReplayedState latest = eventLog.stateAt(order, null).orElseThrow();
+		assertEquals(50, latest.snapshotSequence());
+		assertEquals(11, latest.eventsReplayed());
+		assertEquals(states.get(OPERATIONS + 1), latest.state());
+
+		mvc.perform(get("/api/orders/{id}/timeline/state", order).param("at", "0")).andExpect(status().isBadRequest());
+		mvc.perform(get("/api/orders/{id}/timeline", Long.MAX_VALUE)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void anAppendThatLosesTheRaceForItsSequenceIsAConflict() throws Exception {
+		long order = id(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content("{\"laborCost\":10}"));
+
+		// Appends event 2 and keeps its transaction open until released
+		CountDownLatch appended = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		CompletableFuture<Void> held = CompletableFuture.runAsync(() -> transaction.executeWithoutResult(status -> {
+			ServiceOrder loaded = orderRepository.findById(order).orElseThrow();
+			eventLog.taskAdded(loaded, "held");
+			appended.countDown();
+			try {
+				assertTrue(release.await(10, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}));
+		assertTrue(appended.await(10, TimeUnit.SECONDS));
+
+		// Reads the order before event 2 commits, so it appends event 2 as well
+		CompletableFuture<Integer> update = CompletableFuture.supplyAsync(() -> {
+			try {
+				return mvc.perform(put("/api/orders/{id}", order).contentType(MediaType.APPLICATION_JSON)
+						.content("{\"laborCost\":20}")).andReturn().getResponse().getStatus();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		Thread.sleep(300);
+		release.countDown();
+		held.get(10, TimeUnit.SECONDS);
+
+		assertEquals(409, update.get(15, TimeUnit.SECONDS));
+		JsonNode timeline = json(get("/api/orders/{id}/timeline", order));
+		assertEquals(2, timeline.size());
+		assertEquals("TASK_ADDED", timeline.get(1).get("type").asText());
+	}
+
+	private OrderState state(long orderId) {
+		return new TransactionTemplate(transactionManager)
+				.execute(status -> OrderState.of(orderRepository.findById(orderId).orElseThrow()));
+	}
+
+	private long id(RequestBuilder request) throws Exception {
+		return json(request).get("id").asLong();
+	}
+
+	private JsonNode json(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+}
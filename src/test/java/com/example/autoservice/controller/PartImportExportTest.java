@@ -0,0 +1,104 @@
+package com.example.autoservice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The order export merges archived and current orders, and the archive run here must move only this class's orders
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_CLASS)
+class PartImportExportTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void csvImportUpsertsByPartNumberAndTheExportReadsBackTheSameColumns() throws Exception {
+		String csv = "partNumber,name,category,price,stock,description\n"
+				+ "IMP-1,Import filter,Filters,12.5,4,\"Fits A, B and\nC\"\n"
+				+ "IMP-2,Import belt,Belts,30,,\n"
+				+ "IMP-1,,,13,,\n"
+				+ "IMP-3,No category,,5,1,\n"
+				+ ",Missing number,Belts,1,1,\n";
+		List<JsonNode> results = ndjson(mvc.perform(post("/api/parts/import").contentType("text/csv").content(csv))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+
+		assertEquals(List.of("CREATED", "CREATED", "UPDATED", "INVALID_LINE", "INVALID_LINE"),
+				results.stream().map(r -> r.get("status").asText()).toList());
+		// The quoted description spans lines 2 and 3
+		assertEquals(List.of(2, 4, 5, 6, 7), results.stream().map(r -> r.get("line").asInt()).toList());
+
+		String exported = mvc.perform(get("/api/parts/export").param("format", "csv"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		assertTrue(exported.startsWith("id,partNumber,name,category,manufacturer,price,stock,available,description\n"));
+		long id = results.get(0).get("partId").asLong();
+		assertTrue(exported.contains(id + ",IMP-1,Import filter,Filters,,13.0,4,true,\"Fits A, B and\nC\"\n"), exported);
+
+		// The export imports back as is
+		List<JsonNode> again = ndjson(mvc.perform(post("/api/parts/import").contentType("text/csv").content(exported))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+		assertEquals(List.of("UPDATED", "UPDATED"), again.stream()
+				.filter(r -> r.get("partNumber").asText().startsWith("IMP-"))
+				.map(r -> r.get("status").asText()).toList());
+
+		mvc.perform(post("/api/parts/import").contentType("text/csv").content("name,price\nx,1\n"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void orderExportMergesCurrentAndArchivedOrdersInIdOrder() throws Exception {
+		long customer = objectMapper.readTree(mvc.perform(post("/api/customers").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Export customer\",\"email\":\"export@example.com\"}"))
+				.andReturn().getResponse().getContentAsString()).get("id").asLong();
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			ids.add(objectMapper.readTree(mvc.perform(post("/api/orders").contentType(MediaType.APPLICATION_JSON)
+					.content("{\"customer\":{\"id\":" + customer + "},\"laborCost\":10}"))
+					.andReturn().getResponse().getContentAsString()).get("id").asLong());
+		}
+		mvc.perform(put("/api/orders/{id}/close", ids.get(1))).andExpect(status().isOk());
+		mvc.perform(post("/api/orders/archive").param("closedBefore", "PT0S")).andExpect(status().isOk());
+
+		List<JsonNode> rows = ndjson(mvc.perform(get("/api/orders/export"))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsString());
+		List<JsonNode> mine = rows.stream().filter(r -> r.get("customerId").asLong() == customer).toList();
+		assertEquals(ids, mine.stream().map(r -> r.get("id").asLong()).toList());
+		assertEquals(List.of(false, true, false), mine.stream().map(r -> r.get("archived").asBoolean()).toList());
+		List<Long> all = rows.stream().map(r -> r.get("id").asLong()).toList();
+		assertEquals(all.stream().sorted().toList(), all);
+
+		mvc.perform(get("/api/orders/export").param("format", "xml")).andExpect(status().isBadRequest());
+	}
+
+	private List<JsonNode> ndjson(String body) throws Exception {
+		List<JsonNode> rows = new ArrayList<>();
+		for (String line : body.split("\n")) {
+			if (!line.isBlank()) {
+				rows.add(objectMapper.readTree(line));
+			}
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,247 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Chunks of three lines, so the streamed deliveries below span several transactions. Every
+// delivery is also applied to a twin set of parts the way the old per-row restock did
+// (findById, increaseStock, save), and both must end with the same stock and valuation.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"autoservice.parts.restock.chunk-size=3",
+		"autoservice.changes.poll-interval=PT1H"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PartRestockTest {
+
+	private static final String NDJSON = "application/x-ndjson";
+	private static final long UNKNOWN_PART = Long.MAX_VALUE;
+	private static final int STREAMED_LINES = 400;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PartRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void aJsonDeliveryReportsEveryLineAndMatchesThePerRowRestock() throws Exception {
+		long filter = part("Json filter", 2.5, "Restock json");
+		long belt = part("Json belt", 4, "Restock json");
+		long oldFilter = part("Json filter", 2.5, "Restock json per row");
+		long oldBelt = part("Json belt", 4, "Restock json per row");
+		double valueBefore = totalValue();
+
+		JsonNode results = json(post("/api/parts/bulk/restock").contentType(MediaType.APPLICATION_JSON)
+				.content("["
+						+ "{\"partId\":" + filter + ",\"quantity\":5},"
+						+ "{\"partId\":" + UNKNOWN_PART + ",\"quantity\":3},"
+						+ "{\"partId\":" + belt + ",\"quantity\":2},"
+						+ "{\"partId\":" + filter + ",\"quantity\":0},"
+						+ "{\"quantity\":4},"
+						+ "{\"partId\":" + filter + ",\"quantity\":1}"
+						+ "]"));
+		List<JsonNode> lines = new ArrayList<>();
+		results.forEach(lines::add);
+
+		assertEquals(List.of("RESTOCKED", "UNKNOWN_PART", "RESTOCKED", "INVALID_LINE", "INVALID_LINE", "RESTOCKED"),
+				statuses(lines));
+		assertEquals(List.of(1, 2, 3, 4, 5, 6), lineNumbers(lines));
+		assertEquals(List.of("15", "null", "12", "null", "null", "16"), stocks(lines));
+
+		restockPerRow(new long[][] {{oldFilter, 5}, {oldBelt, 2}, {oldFilter, 1}});
+		assertEquals(stock(oldFilter), stock(filter));
+		assertEquals(stock(oldBelt), stock(belt));
+		assertEquals(2 * (2.5 * 6 + 4 * 2), totalValue() - valueBefore, 1e-6);
+		assertSameValuation("Restock json", "Restock json per row");
+	}
+
+	@Test
+	void csvAndNdjsonDeliveriesSpanSeveralChunksAndReportBadLines() throws Exception {
+		long filter = part("Csv filter", 3, "Restock csv");
+		long belt = part("Csv belt", 7.5, "Restock csv");
+		long oldFilter = part("Csv filter", 3, "Restock csv per row");
+		long oldBelt = part("Csv belt", 7.5, "Restock csv per row");
+
+		// The header is skipped and the blank line is not counted against a chunk, but both keep their line numbers
+		String csv = "partId,quantity\n"
+				+ filter + ",1\n"
+				+ belt + ",2\n"
+				+ UNKNOWN_PART + ",1\n"
+				+ "not-a-part,3\n"
+				+ "\n"
+				+ filter + ",4\n"
+				+ belt + ";1\n"
+				+ filter + ",\n"
+				+ filter + ",2\n";
+		List<JsonNode> csvResults = ndjson(post("/api/parts/bulk/restock").contentType("text/csv").content(csv));
+		assertEquals(List.of("RESTOCKED", "RESTOCKED", "UNKNOWN_PART", "INVALID_LINE",
+				"RESTOCKED", "RESTOCKED", "INVALID_LINE", "RESTOCKED"), statuses(csvResults));
+		assertEquals(List.of(2, 3, 4, 5, 7, 8, 9, 10), lineNumbers(csvResults));
+		// The filter's stock carries over from one chunk's transaction to the next
+		assertEquals(List.of("11", "12", "null", "null", "15", "13", "null", "17"), stocks(csvResults));
+
+		String ndjson = "{\"partId\":" + filter + ",\"quantity\":3}\n"
+				+ "{\"partId\":" + belt + ",\"quantity\"\n"
+				+ "{\"partId\":" + belt + ",\"quantity\":1}\n"
+				+ "{\"partId\":" + UNKNOWN_PART + ",\"quantity\":1}\n"
+				+ "{\"partId\":" + belt + ",\"quantity\":-1}\n"
+				+ "{\"partId\":" + filter + ",\"quantity\":1}\n"
+				+ "{\"quantity\":2}";
+		List<JsonNode> ndjsonResults = ndjson(post("/api/parts/bulk/restock").contentType(NDJSON).content(ndjson));
+		assertEquals(List.of("RESTOCKED", "INVALID_LINE", "RESTOCKED", "UNKNOWN_PART",
+				"INVALID_LINE", "RESTOCKED", "INVALID_LINE"), statuses(ndjsonResults));
+		assertEquals(List.of(1, 2, 3, 4, 5, 6, 7), lineNumbers(ndjsonResults));
+		assertEquals(List.of("20", "null", "14", "null", "null", "21", "null"), stocks(ndjsonResults));
+
+		restockPerRow(new long[][] {{oldFilter, 1}, {oldBelt, 2}, {oldFilter, 4}, {oldBelt, 1}, {oldFilter, 2},
+				{oldFilter, 3}, {oldBelt, 1}, {oldFilter, 1}});
+		assertEquals(stock(oldFilter), stock(filter));
+		assertEquals(stock(oldBelt), stock(belt));
+		assertSameValuation("Restock csv", "Restock csv per row");
+		assertFalse(json(post("/api/parts/inventory/value/reconcile")).get("drifted").asBoolean());
+	}
+
+	@Test
+	void resultsAreStreamedWhileTheDeliveryIsStillBeingSent() throws Exception {
+		long filter = part("Streamed filter", 1, "Restock streamed");
+
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress("localhost", port));
+			// A response held back until the whole body is read would never arrive
+			socket.setSoTimeout(10_000);
+			OutputStream out = socket.getOutputStream();
+			out.write(("POST /api/parts/bulk/restock HTTP/1.1\r\nHost: localhost\r\nContent-Type: " + NDJSON
+					+ "\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			StringBuilder lines = new StringBuilder();
+			for (int i = 0; i < STREAMED_LINES; i++) {
+				lines.append("{\"partId\":").append(filter).append(",\"quantity\":1}\n");
+			}
+			// Far more results than the container's response buffer holds
+			writeChunk(out, lines.toString());
+
+			BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			assertTrue(reader.readLine().startsWith("HTTP/1.1 200"));
+			String header;
+			while (!(header = reader.readLine()).isEmpty()) {
+				assertFalse(header.toLowerCase().startsWith("content-length"), header);
+			}
+			// The size of the first chunk of the response
+			reader.readLine();
+			JsonNode first = objectMapper.readTree(reader.readLine());
+			assertEquals(1, first.get("line").asInt());
+			assertEquals("RESTOCKED", first.get("status").asText());
+
+			writeChunk(out, "{\"partId\":" + filter + ",\"quantity\":1}\n");
+			out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			while (reader.readLine() != null) {
+				// The rest of the response, up to the close
+			}
+		}
+		assertEquals(10 + STREAMED_LINES + 1, stock(filter));
+	}
+
+	// The restock as it was before deliveries were chunked: one load and one save per line
+	private void restockPerRow(long[][] lines) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			for (long[] line : lines) {
+				repository.findById(line[0]).ifPresent(part -> {
+					part.increaseStock((int) line[1]);
+					repository.save(part);
+				});
+			}
+		});
+	}
+
+	private void assertSameValuation(String category, String perRowCategory) throws Exception {
+		JsonNode byCategory = json(get("/api/parts/inventory/value/categories"));
+		assertEquals(byCategory.get(perRowCategory).asDouble(), byCategory.get(category).asDouble(), 1e-6);
+	}
+
+	private static void writeChunk(OutputStream out, String data) throws Exception {
+		byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+		out.write((Integer.toHexString(bytes.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+		out.write(bytes);
+		out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+		out.flush();
+	}
+
+	private static List<String> statuses(List<JsonNode> results) {
+		return results.stream().map(result -> result.get("status").asText()).toList();
+	}
+
+	private static List<Integer> lineNumbers(List<JsonNode> results) {
+		return results.stream().map(result -> result.get("line").asInt()).toList();
+	}
+
+	private static List<String> stocks(List<JsonNode> results) {
+		return results.stream().map(result -> result.get("stock").asText()).toList();
+	}
+
+	private int stock(long part) throws Exception {
+		return json(get("/api/parts/{id}", part)).get("stock").asInt();
+	}
+
+	private double totalValue() throws Exception {
+		return json(get("/api/parts/inventory/value")).asDouble();
+	}
+
+	private long part(String name, double price, String category) throws Exception {
+		return json(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"" + name + " " + category + "\",\"price\":" + price
+						+ ",\"stock\":10,\"category\":\"" + category + "\"}"))
+				.get("id").asLong();
+	}
+
+	private List<JsonNode> ndjson(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		List<JsonNode> results = new ArrayList<>();
+		for (String line : body.split("\n")) {
+			results.add(objectMapper.readTree(line));
+		}
+		return results;
+	}
+
+	private JsonNode json(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+}
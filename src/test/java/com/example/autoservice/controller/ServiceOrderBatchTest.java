@@ -0,0 +1,218 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.service.ServiceOrderService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The change feed polls the outbox in the background; keep its statements out of the counts
+@SpringBootTest(properties = "autoservice.changes.poll-interval=PT1H")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ServiceOrderBatchTest {
+
+	private static final long UNKNOWN_PART = Long.MAX_VALUE;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void aPartialBatchKeepsTheOperationsThatApplyAndReportsEachOne() throws Exception {
+		long filter = part("Batch filter", 10);
+		long order = order();
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		JsonNode result = json(batch(order, false, "["
+				+ "{\"type\":\"ADD_PART\",\"partId\":" + filter + ",\"quantity\":2},"
+				+ "{\"type\":\"ADD_PART\",\"partId\":" + UNKNOWN_PART + "},"
+				+ "{\"type\":\"COMPLETE_TASK\",\"task\":\"Not required\"},"
+				+ "{\"type\":\"ADD_REQUIRED_TASK\",\"task\":\"Inspect\"},"
+				+ "{\"type\":\"ADD_REQUIRED_TASK\",\"task\":\"Inspect\"},"
+				+ "{\"type\":\"UPDATE_LABOR_COST\",\"laborCost\":40},"
+				+ "{\"type\":\"ADD_PART\",\"partId\":" + filter + ",\"quantity\":100}"
+				+ "]"));
+		// One load of the order and one flush at commit for all of the operations
+		assertEquals(1, statistics.getEntityStatistics(ServiceOrder.class.getName()).getLoadCount());
+		assertEquals(1, statistics.getEntityStatistics(ServiceOrder.class.getName()).getUpdateCount());
+		assertEquals(1, statistics.getFlushCount());
+
+		assertTrue(result.get("committed").asBoolean());
+		assertEquals(List.of("APPLIED", "NOT_FOUND", "REJECTED", "APPLIED", "UNCHANGED", "APPLIED", "REJECTED"),
+				statuses(result));
+		assertEquals(40.0, result.get("order").get("laborCost").asDouble());
+		assertEquals(2, reserved(filter));
+	}
+
+	@Test
+	void anAtomicBatchWithARejectedOperationKeepsNoneOfItsChanges() throws Exception {
+		long filter = part("Atomic filter", 10);
+		long belt = part("Atomic belt", 10);
+		long order = order();
+
+		JsonNode result = json(batch(order, true, "["
+				+ "{\"type\":\"ADD_PART\",\"partId\":" + filter + ",\"quantity\":3},"
+				+ "{\"type\":\"ADD_PART\",\"partId\":" + belt + ",\"quantity\":1},"
+				+ "{\"type\":\"UPDATE_LABOR_COST\",\"laborCost\":99},"
+				+ "{\"type\":\"COMPLETE_TASK\",\"task\":\"Not required\"}"
+				+ "]"));
+
+		assertFalse(result.get("committed").asBoolean());
+		assertTrue(result.get("order").isNull());
+		assertEquals(List.of("ROLLED_BACK", "ROLLED_BACK", "ROLLED_BACK", "REJECTED"), statuses(result));
+		assertEquals(0, reserved(filter));
+		assertEquals(0, reserved(belt));
+		JsonNode stored = json(get("/api/orders/{id}", order));
+		assertEquals(10.0, stored.get("laborCost").asDouble());
+		assertTrue(stored.get("lines").isEmpty());
+
+		// Across orders: the rejection on the second order discards the changes to the first
+		long other = order();
+		JsonNode results = json(post("/api/orders/batch").param("atomic", "true").contentType(MediaType.APPLICATION_JSON)
+				.content("[{\"orderId\":" + order + ",\"operations\":["
+						+ "{\"type\":\"ADD_PART\",\"partId\":" + filter + ",\"quantity\":2},"
+						+ "{\"type\":\"UPDATE_LABOR_COST\",\"laborCost\":50}]},"
+						+ "{\"orderId\":" + other + ",\"operations\":["
+						+ "{\"type\":\"ADD_PART\",\"partId\":" + UNKNOWN_PART + "}]}]"));
+		assertEquals(List.of("ROLLED_BACK", "ROLLED_BACK"), statuses(results.get(0)));
+		assertEquals(List.of("NOT_FOUND"), statuses(results.get(1)));
+		assertEquals(0, reserved(filter));
+		assertEquals(10.0, json(get("/api/orders/{id}", order)).get("laborCost").asDouble());
+	}
+
+	@Test
+	void operationsOnSeveralOrdersShareOneLoadAndOneFlush() throws Exception {
+		long filter = part("Shared filter", 10);
+		long first = order();
+		long second = order();
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		JsonNode results = json(post("/api/orders/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[{\"orderId\":" + first + ",\"operations\":["
+						+ "{\"type\":\"ADD_PART\",\"partId\":" + filter + ",\"quantity\":1},"
+						+ "{\"type\":\"ADD_REQUIRED_TASK\",\"task\":\"Inspect\"}]},"
+						+ "{\"orderId\":" + second + ",\"operations\":["
+						+ "{\"type\":\"ADD_REQUIRED_TASK\",\"task\":\"Inspect\"},"
+						+ "{\"type\":\"UPDATE_LABOR_COST\",\"laborCost\":25}]}]"));
+
+		assertEquals(1, statistics.getQueryExecutionCount());
+		assertEquals(2, statistics.getEntityStatistics(ServiceOrder.class.getName()).getLoadCount());
+		assertEquals(1, statistics.getFlushCount());
+		assertEquals(List.of("APPLIED", "APPLIED"), statuses(results.get(0)));
+		assertEquals(List.of("APPLIED", "APPLIED"), statuses(results.get(1)));
+		assertEquals(1, reserved(filter));
+	}
+
+	@Test
+	void batchesOverTheOperationLimitAreRejected() throws Exception {
+		long order = order();
+		String operation = "{\"type\":\"UPDATE_LABOR_COST\",\"laborCost\":20}";
+		String tooMany = "[" + String.join(",", Collections.nCopies(ServiceOrderService.MAX_OPERATIONS + 1, operation)) + "]";
+		String limit = "[" + String.join(",", Collections.nCopies(ServiceOrderService.MAX_OPERATIONS, operation)) + "]";
+
+		mvc.perform(batch(order, false, tooMany)).andExpect(status().isBadRequest());
+		mvc.perform(batch(order, false, "[]")).andExpect(status().isBadRequest());
+		mvc.perform(batch(order, false, limit)).andExpect(status().isOk());
+
+		// The limit counts the operations of all orders together
+		String half = "[" + String.join(",", Collections.nCopies(ServiceOrderService.MAX_OPERATIONS / 2 + 1, operation)) + "]";
+		mvc.perform(post("/api/orders/batch").contentType(MediaType.APPLICATION_JSON)
+						.content("[{\"orderId\":" + order + ",\"operations\":" + half + "},"
+								+ "{\"orderId\":" + order() + ",\"operations\":" + half + "}]"))
+				.andExpect(status().isBadRequest());
+		assertEquals(20.0, json(get("/api/orders/{id}", order)).get("laborCost").asDouble());
+	}
+
+	@Test
+	void aStaleVersionAppliesNothing() throws Exception {
+		long order = order();
+		String seen = mvc.perform(get("/api/orders/{id}", order)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		mvc.perform(batch(order, false, "[{\"type\":\"UPDATE_LABOR_COST\",\"laborCost\":30}]").header(HttpHeaders.IF_MATCH, seen))
+				.andExpect(status().isOk());
+
+		// The client still holds the version from before the change above
+		String body = mvc.perform(batch(order, false, "["
+								+ "{\"type\":\"UPDATE_LABOR_COST\",\"laborCost\":60},"
+								+ "{\"type\":\"ADD_REQUIRED_TASK\",\"task\":\"Inspect\"}]")
+						.header(HttpHeaders.IF_MATCH, seen))
+				.andExpect(status().isPreconditionFailed())
+				.andReturn().getResponse().getContentAsString();
+		assertEquals(List.of("STALE", "STALE"), statuses(objectMapper.readTree(body)));
+
+		// Per order in a multi-order batch: the stale order is left alone, the others apply
+		long other = order();
+		long version = json(get("/api/orders/{id}", order)).get("version").asLong();
+		JsonNode results = json(post("/api/orders/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[{\"orderId\":" + order + ",\"version\":" + (version - 1) + ",\"operations\":["
+						+ "{\"type\":\"UPDATE_LABOR_COST\",\"laborCost\":60}]},"
+						+ "{\"orderId\":" + other + ",\"operations\":["
+						+ "{\"type\":\"UPDATE_LABOR_COST\",\"laborCost\":60}]}]"));
+		assertEquals(List.of("STALE"), statuses(results.get(0)));
+		assertFalse(results.get(0).get("committed").asBoolean());
+		assertEquals(List.of("APPLIED"), statuses(results.get(1)));
+		assertEquals(30.0, json(get("/api/orders/{id}", order)).get("laborCost").asDouble());
+		assertEquals(60.0, json(get("/api/orders/{id}", other)).get("laborCost").asDouble());
+	}
+
+	private List<String> statuses(JsonNode result) {
+		List<String> statuses = new ArrayList<>();
+		result.get("operations").forEach(operation -> statuses.add(operation.get("status").asText()));
+		return statuses;
+	}
+
+	private MockHttpServletRequestBuilder batch(long order, boolean atomic, String operations) {
+		return post("/api/orders/{id}/batch", order).param("atomic", String.valueOf(atomic))
+				.contentType(MediaType.APPLICATION_JSON).content(operations);
+	}
+
+	private int reserved(long part) throws Exception {
+		return json(get("/api/parts/{id}/availability", part)).get("reserved").asInt();
+	}
+
+	private long part(String name, int stock) throws Exception {
+		return json(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"" + name + "\",\"price\":5,\"stock\":" + stock + ",\"category\":\"Batch\"}"))
+				.get("id").asLong();
+	}
+
+	private long order() throws Exception {
+		return json(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content("{\"laborCost\":10}"))
+				.get("id").asLong();
+	}
+
+	private JsonNode json(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+}
@@ -0,0 +1,190 @@
+package com.example.autoservice.controller;
+
+import com.example.autoservice.model.Customer;
+import com.example.autoservice.model.Mechanic;
+import com.example.autoservice.model.Part;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.model.Vehicle;
+import com.example.autoservice.repository.CustomerRepository;
+import com.example.autoservice.repository.MechanicRepository;
+import com.example.autoservice.repository.PartRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import com.example.autoservice.repository.VehicleRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The change feed polls the outbox in the background; keep its statements out of the counts
+@SpringBootTest(properties = "autoservice.changes.poll-interval=PT1H")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ServiceOrderQueryCountTest {
+
+	private static final int ORDERS = 120;
+	// Page query, page count query, then one batch each for lines and tasks
+	private static final long MAX_STATEMENTS = 4;
+	// Customer, vehicles, order totals of both tables, then the two order windows with their batches
+	private static final long MAX_OVERVIEW_STATEMENTS = 8;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private VehicleRepository vehicleRepository;
+
+	@Autowired
+	private MechanicRepository mechanicRepository;
+
+	@Autowired
+	private PartRepository partRepository;
+
+	@Autowired
+	private ServiceOrderRepository orderRepository;
+
+	private Long customerId;
+
+	@BeforeAll
+	void createOrders() {
+		Customer customer = customerRepository.save(new Customer("Query Count", "+100000001", "query-count@example.com"));
+		customerId = customer.getId();
+		List<Vehicle> vehicles = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			vehicles.add(vehicleRepository.save(new Vehicle("Skoda", "Octavia", 2015, String.format("QC%015d", i), customer)));
+		}
+		List<Mechanic> mechanics = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			Mechanic mechanic = new Mechanic();
+			mechanic.setName("Mechanic " + i);
+			mechanic.setSpecialization("Engine");
+			mechanics.add(mechanicRepository.save(mechanic));
+		}
+		List<Part> parts = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			parts.add(partRepository.save(new Part("Query count part " + i, 10.0 + i, 100, "Filters")));
+		}
+
+		for (int i = 0; i < ORDERS; i++) {
+			ServiceOrder order = new ServiceOrder();
+			order.setCustomer(customer);
+			order.setVehicle(vehicles.get(i % vehicles.size()));
+			order.setMechanic(mechanics.get(i % mechanics.size()));
+			order.addPart(parts.get(i % parts.size()), 1);
+			order.addPart(parts.get((i + 7) % parts.size()), 2);
+			order.setRequiredTasks(new ArrayList<>(List.of("Inspect", "Replace filter")));
+			order.setCompletedTasks(new ArrayList<>(List.of("Inspect")));
+			order.setDescription("Order " + i);
+			order.setLaborCost(50);
+			orderRepository.save(order);
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"/api/orders", "/api/orders/active", "/api/orders/customer/{customerId}"})
+	void listingCostsTheSameNumberOfStatementsForAnyPageSize(String endpoint) throws Exception {
+		long smallPage = statementsFor(endpoint, 10);
+		long largePage = statementsFor(endpoint, 100);
+
+		assertEquals(smallPage, largePage);
+		assertTrue(largePage <= MAX_STATEMENTS, "statements: " + largePage);
+	}
+
+	@Test
+	void statusBatchIsASingleStatement() throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		mvc.perform(get("/api/orders/status").param("active", "true"))
+				.andExpect(status().isOk());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void activeStatusesComeInBatchesThatContinueFromTheirCursor() throws Exception {
+		List<ServiceOrder> open = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			open.add(new ServiceOrder());
+		}
+		orderRepository.saveAll(open);
+		long openOrders = orderRepository.findAll().stream().filter(order -> !order.isCompleted()).count();
+
+		List<Long> listed = new ArrayList<>();
+		String cursor = null;
+		int batches = 0;
+		do {
+			String body = mvc.perform(cursor == null
+							? get("/api/orders/status").param("active", "true")
+							: get("/api/orders/status").param("active", "true").param("cursor", cursor))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+			JsonNode batch = objectMapper.readTree(body);
+			batch.get("orders").forEach(order -> listed.add(order.get("orderId").asLong()));
+			cursor = batch.get("nextCursor").isNull() ? null : batch.get("nextCursor").asText();
+			batches++;
+		} while (cursor != null);
+
+		assertEquals(2, batches);
+		assertEquals(openOrders, listed.size());
+		for (int i = 1; i < listed.size(); i++) {
+			assertTrue(listed.get(i - 1) < listed.get(i), "not in id order at " + i);
+		}
+		mvc.perform(get("/api/orders/status").param("active", "true").param("cursor", "not a cursor"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void customerOverviewCostsAFixedNumberOfStatements() throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long[] counts = new long[2];
+		int[] sizes = {10, 100};
+		for (int i = 0; i < sizes.length; i++) {
+			statistics.clear();
+			mvc.perform(get("/api/customers/{id}/overview", customerId).param("orders", String.valueOf(sizes[i])))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.vehicles.length()").value(10))
+					.andExpect(jsonPath("$.totals.orders").value(ORDERS))
+					.andExpect(jsonPath("$.recentOrders.orders.length()").value(sizes[i]));
+			counts[i] = statistics.getPrepareStatementCount();
+		}
+
+		assertEquals(counts[0], counts[1]);
+		assertTrue(counts[1] <= MAX_OVERVIEW_STATEMENTS, "statements: " + counts[1]);
+	}
+
+	private long statementsFor(String endpoint, int size) throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		mvc.perform(get(endpoint + "?size=" + size, customerId))
+				.andExpect(status().isOk());
+		return statistics.getPrepareStatementCount();
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.autoservice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The change feed polls the outbox in the background; keep its statements out of the counts
+@SpringBootTest(properties = "autoservice.changes.poll-interval=PT1H")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class VehicleHistoryTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void closedOrderSummaryIsCachedUntilAnOrderOfTheVehicleCloses() throws Exception {
+		long customer = json(post("/api/customers").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"History customer\",\"phone\":\"+100000777\",\"email\":\"history@example.com\"}")).get("id").asLong();
+		long vehicle = json(post("/api/vehicles").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"brand\":\"Lada\",\"model\":\"Vesta\",\"manufactureYear\":2020,\"vin\":\"HIST0000000000001\",\"owner\":{\"id\":" + customer + "}}")).get("id").asLong();
+		long part = json(post("/api/parts").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"History part\",\"price\":10.0,\"stock\":100,\"category\":\"History\"}")).get("id").asLong();
+		String order = "{\"vehicle\":{\"id\":" + vehicle + "},\"laborCost\":5,\"lines\":[{\"partId\":" + part + ",\"quantity\":2}]}";
+		List<Long> orders = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			orders.add(json(post("/api/orders").contentType(MediaType.APPLICATION_JSON).content(order)).get("id").asLong());
+		}
+		mvc.perform(put("/api/orders/{id}/close", orders.get(0))).andExpect(status().isOk());
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		JsonNode first = summary(vehicle);
+		long loading = statistics.getPrepareStatementCount();
+		statistics.clear();
+		JsonNode cached = summary(vehicle);
+		// The four closed-order aggregates (orders and parts, working set and archive) are not run again
+		assertEquals(loading - 4, statistics.getPrepareStatementCount());
+		assertEquals(first, cached);
+		assertEquals(3, cached.get("visits").asLong());
+		assertEquals(25.0, cached.get("lifetimeSpend").asDouble(), 1e-9);
+
+		// Changing an open order keeps the cached closed orders, closing one replaces them
+		mvc.perform(post("/api/orders/{id}/parts/{partId}", orders.get(1), part)).andExpect(status().isOk());
+		assertEquals(25.0, summary(vehicle).get("lifetimeSpend").asDouble(), 1e-9);
+		mvc.perform(put("/api/orders/{id}/close", orders.get(1))).andExpect(status().isOk());
+		JsonNode closed = summary(vehicle);
+		assertEquals(1, closed.get("openOrders").asLong());
+		assertEquals(60.0, closed.get("lifetimeSpend").asDouble(), 1e-9);
+		assertEquals(5, closed.at("/partsReplacedByCategory/History/units").asLong());
+	}
+
+	private JsonNode summary(long vehicle) throws Exception {
+		return json(get("/api/vehicles/{id}/history", vehicle).param("summary", "true")).get("summary");
+	}
+
+	private JsonNode json(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.autoservice.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class VehicleLookupTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private long first;
+	private long second;
+	private long third;
+
+	@BeforeAll
+	void createVehicles() throws Exception {
+		long owner = json(post("/api/customers").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Lookup owner\",\"email\":\"lookup@example.com\"}")).get("id").asLong();
+		// The first plate is spelled with Cyrillic letters
+		first = vehicle(owner, "LKP21170012345678", "А123ВС77");
+		second = vehicle(owner, "LKP21170099945678", "A124BC77");
+		third = vehicle(owner, "LKW9ZZZ1JZ3386752", "B555OP99");
+	}
+
+	@Test
+	void vinsAreFoundByPrefixAndSuffixInKeyOrder() throws Exception {
+		assertEquals(List.of(first, second), lookup("vin", "lkp-2117", "prefix"));
+		assertEquals(List.of(first, second), lookup("vin", "45678", "suffix"));
+		assertEquals(List.of(third), lookup("vin", "386752", "SUFFIX"));
+		assertEquals(List.of(third), lookup("vin", "lkw9zzz1jz3386752", "exact"));
+		assertEquals(List.of(), lookup("vin", "LKP2117009", "suffix"));
+	}
+
+	@Test
+	void platesAreFoundByPrefixAndSuffixWhateverTheAlphabet() throws Exception {
+		assertEquals(List.of(first, second), lookup("plate", "a12", "prefix"));
+		assertEquals(List.of(first, second), lookup("plate", "bc 77", "suffix"));
+		assertEquals(List.of(first), lookup("plate", "a123bc-77", "exact"));
+		assertEquals(List.of(third), lookup("plate", "В555", "prefix"));
+	}
+
+	@Test
+	void ambiguousOrTooShortLookupsAreRejected() throws Exception {
+		mvc.perform(get("/api/vehicles/lookup").param("vin", "LKP").param("plate", "A12"))
+				.andExpect(status().isBadRequest());
+		mvc.perform(get("/api/vehicles/lookup").param("plate", "a1").param("match", "prefix"))
+				.andExpect(status().isBadRequest());
+		mvc.perform(get("/api/vehicles/lookup").param("vin", "LKP2117").param("match", "contains"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private List<Long> lookup(String field, String value, String match) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		json(get("/api/vehicles/lookup").param(field, value).param("match", match))
+				.forEach(vehicle -> ids.add(vehicle.get("id").asLong()));
+		return ids;
+	}
+
+	private long vehicle(long owner, String vin, String plate) throws Exception {
+		return json(post("/api/vehicles").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"brand\":\"Lada\",\"model\":\"Granta\",\"manufactureYear\":2019,\"vin\":\"" + vin
+						+ "\",\"licensePlate\":\"" + plate + "\",\"owner\":{\"id\":" + owner + "}}")).get("id").asLong();
+	}
+
+	private JsonNode json(RequestBuilder request) throws Exception {
+		String body = mvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+}
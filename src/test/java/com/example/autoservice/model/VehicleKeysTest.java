@@ -0,0 +1,29 @@
+package com.example.autoservice.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class VehicleKeysTest {
+
+	@Test
+	void platesWithCyrillicLookalikesMatchTheirLatinSpelling() {
+		assertEquals("A123BC77", VehicleKeys.normalize("А 123 ВС 77"));
+		assertEquals("A123BC77", VehicleKeys.normalize("a123вс-77"));
+		assertEquals(VehicleKeys.normalize("Х777ОР 99"), VehicleKeys.normalize("x777op99"));
+	}
+
+	@Test
+	void vinsIgnoreCaseAndSeparators() {
+		assertEquals("XTA21170012345678", VehicleKeys.normalize(" xta-2117 0012345678 "));
+		assertEquals("87654321007112ATX", VehicleKeys.reverse(VehicleKeys.normalize("XTA21170012345678")));
+	}
+
+	@Test
+	void blankValuesHaveNoKey() {
+		assertNull(VehicleKeys.normalize(null));
+		assertNull(VehicleKeys.normalize(" - "));
+		assertNull(VehicleKeys.reverse(null));
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryValuationConcurrencyTest {
+
+	private static final int WRITERS = 8;
+	private static final int CHANGES_PER_WRITER = 100;
+
+	@Autowired
+	private InventoryValuation valuation;
+
+	@Autowired
+	private StockService stockService;
+
+	@Autowired
+	private PartRepository partRepository;
+
+	@Test
+	void reconcilingWhileStockChangesNeitherLosesNorDoubleCountsDeltas() throws Exception {
+		Long partId = partRepository.save(new Part("Valuation stress", 2.5, 1000, "Valuation")).getId();
+		// Other tests may have written parts behind the valuation's back
+		valuation.reconcile();
+
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		ExecutorService executor = Executors.newFixedThreadPool(WRITERS + 1);
+		List<Future<?>> writers = new ArrayList<>();
+		for (int t = 0; t < WRITERS; t++) {
+			boolean restocker = t % 2 == 0;
+			writers.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < CHANGES_PER_WRITER; i++) {
+					StockService.StockUpdate update = restocker
+							? stockService.increase(partId, 3)
+							: stockService.decrease(partId, 3);
+					assertEquals(StockService.StockUpdate.Status.UPDATED, update.status());
+				}
+				return null;
+			}));
+		}
+		Future<List<InventoryValuation.ReconciliationReport>> reconciler = executor.submit(() -> {
+			start.await();
+			List<InventoryValuation.ReconciliationReport> reports = new ArrayList<>();
+			while (writing.get()) {
+				reports.add(valuation.reconcile());
+			}
+			return reports;
+		});
+		start.countDown();
+		for (Future<?> writer : writers) {
+			writer.get();
+		}
+		writing.set(false);
+		List<InventoryValuation.ReconciliationReport> reports = reconciler.get();
+		executor.shutdown();
+
+		for (InventoryValuation.ReconciliationReport report : reports) {
+			assertFalse(report.drifted(), report.drift().toString());
+		}
+		InventoryValuation.ReconciliationReport last = valuation.reconcile();
+		assertFalse(last.drifted(), last.drift().toString());
+		assertEquals(1000, partRepository.findById(partId).orElseThrow().getStock());
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Mechanic;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.MechanicRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The change feed polls the outbox in the background; keep its statements out of the counts
+@SpringBootTest(properties = "autoservice.changes.poll-interval=PT1H")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MechanicAssignmentsTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private MechanicAssignments assignments;
+
+	@Autowired
+	private MechanicRepository mechanicRepository;
+
+	@Autowired
+	private ServiceOrderRepository orderRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void assigningRunsNoStatementsAndTheAssignedMechanicIsSerialized() throws Exception {
+		Mechanic mechanic = mechanic("Assign North", "Assigned by reference", "Brakes");
+		Long first = orderRepository.save(new ServiceOrder()).getId();
+		Long second = orderRepository.save(new ServiceOrder()).getId();
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long[] statements = new long[1];
+		Long assigned = new TransactionTemplate(transactionManager).execute(status -> {
+			ServiceOrder order = orderRepository.findById(first).orElseThrow();
+			statistics.clear();
+			Optional<Mechanic> picked = assignments.assign(order, "Assign North", "Brakes");
+			statements[0] = statistics.getPrepareStatementCount();
+			status.setRollbackOnly();
+			return picked.orElseThrow().getId();
+		});
+		assertEquals(mechanic.getId(), assigned);
+		assertEquals(0, statements[0]);
+
+		mvc.perform(put("/api/orders/{id}/assign", second).param("branch", "Assign North"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.mechanic.id").value(mechanic.getId()))
+				.andExpect(jsonPath("$.mechanic.name").value("Assigned by reference"));
+		assertEquals(1, assignments.openOrders(mechanic.getId()));
+	}
+
+	private Mechanic mechanic(String branch, String name, String specialization) {
+		Mechanic mechanic = new Mechanic();
+		mechanic.setBranch(branch);
+		mechanic.setName(name);
+		mechanic.setSpecialization(specialization);
+		Mechanic saved = mechanicRepository.save(mechanic);
+		assignments.mechanicSaved(saved);
+		return saved;
+	}
+}
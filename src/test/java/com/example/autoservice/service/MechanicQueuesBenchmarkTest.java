@@ -0,0 +1,98 @@
+package com.example.autoservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Simulates order intake across many branches: every thread opens orders with a random branch and
+// specialization and closes random open ones, the way the controllers drive MechanicAssignments.
+// Run with: mvn test -Dbenchmark=true -Dtest=MechanicQueuesBenchmarkTest [-Dbenchmark.branches=200]
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MechanicQueuesBenchmarkTest {
+
+	private static final String[] SPECIALIZATIONS = {"Engine", "Brakes", "Suspension", "Electrics",
+			"Transmission", "Bodywork", "Diagnostics", "Tyres"};
+	private static final int MECHANICS_PER_BRANCH = 40;
+	private static final int THREADS = 8;
+	private static final int ORDERS_PER_THREAD = 500_000;
+	private static final int OPEN_ORDERS_PER_THREAD = 2_000;
+
+	@Test
+	void keepsExactLoadsAtThousandsOfAssignmentsPerSecond() throws Exception {
+		int branches = Integer.getInteger("benchmark.branches", 200);
+		int mechanics = branches * MECHANICS_PER_BRANCH;
+		MechanicQueues queues = new MechanicQueues();
+		for (int id = 0; id < mechanics; id++) {
+			// Every specialization at every branch, plus a few mechanics without one
+			String specialization = id % 10 < SPECIALIZATIONS.length ? SPECIALIZATIONS[id % 10] : null;
+			queues.register((long) id, "Branch " + id / MECHANICS_PER_BRANCH, specialization);
+		}
+		AtomicIntegerArray expected = new AtomicIntegerArray(mechanics);
+
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			Random random = new Random(t);
+			futures.add(executor.submit(() -> {
+				start.await();
+				List<Long> open = new ArrayList<>();
+				int assigned = 0;
+				for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+					if (open.size() >= OPEN_ORDERS_PER_THREAD) {
+						// Close a random open order
+						int index = random.nextInt(open.size());
+						Long closed = open.get(index);
+						open.set(index, open.get(open.size() - 1));
+						open.remove(open.size() - 1);
+						queues.changeLoad(closed, -1);
+						expected.decrementAndGet(closed.intValue());
+					}
+					String branch = "Branch " + random.nextInt(branches);
+					// One order in ten asks for a specialization nobody has
+					String specialization = random.nextInt(10) == 0
+							? "Upholstery" : SPECIALIZATIONS[random.nextInt(SPECIALIZATIONS.length)];
+					Optional<Long> mechanic = queues.assign(branch, specialization);
+					if (mechanic.isPresent()) {
+						open.add(mechanic.get());
+						expected.incrementAndGet(mechanic.get().intValue());
+						assigned++;
+					}
+				}
+				return assigned;
+			}));
+		}
+
+		long begin = System.nanoTime();
+		start.countDown();
+		int assigned = 0;
+		for (Future<Integer> future : futures) {
+			assigned += future.get();
+		}
+		double seconds = (System.nanoTime() - begin) / 1e9;
+		executor.shutdown();
+
+		int maxLoad = 0;
+		for (int id = 0; id < mechanics; id++) {
+			assertEquals(expected.get(id), queues.load((long) id).getAsInt(), "load of mechanic " + id);
+			maxLoad = Math.max(maxLoad, expected.get(id));
+		}
+		double perSecond = assigned / seconds;
+		System.out.printf("%d branches, %d mechanics, %d threads: %d assignments in %.2f s (%.0f/s), max open orders per mechanic %d%n",
+				branches, mechanics, THREADS, assigned, seconds, perSecond, maxLoad);
+		assertEquals(THREADS * ORDERS_PER_THREAD, assigned);
+		assertTrue(perSecond > 10_000, perSecond + " assignments/s");
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.autoservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MechanicQueuesTest {
+
+	private MechanicQueues queues;
+
+	@BeforeEach
+	void setUp() {
+		queues = new MechanicQueues();
+		queues.register(1L, "North", "Engine");
+		queues.register(2L, "North", "Engine");
+		queues.register(3L, "North", "Brakes");
+		queues.register(4L, "South", "Engine");
+	}
+
+	@Test
+	void assignsLeastLoadedMechanicWithTheSpecialization() {
+		queues.changeLoad(1L, 2);
+
+		assertEquals(Optional.of(2L), queues.assign("North", "Engine"));
+		assertEquals(Optional.of(2L), queues.assign("north", " engine "));
+		assertEquals(Optional.of(1L), queues.assign("North", "Engine"));
+		assertEquals(3, queues.load(1L).getAsInt());
+		assertEquals(2, queues.load(2L).getAsInt());
+	}
+
+	@Test
+	void equallyLoadedMechanicsTakeTurns() {
+		assertEquals(Optional.of(1L), queues.assign("North", "Engine"));
+		assertEquals(Optional.of(2L), queues.assign("North", "Engine"));
+		assertEquals(Optional.of(1L), queues.assign("North", "Engine"));
+	}
+
+	@Test
+	void fallsBackToTheWholeBranchWithoutTheSpecialization() {
+		queues.changeLoad(1L, 1);
+		queues.changeLoad(2L, 1);
+
+		assertEquals(Optional.of(3L), queues.assign("North", "Electrics"));
+		assertEquals(Optional.of(4L), queues.assign("South", null));
+		assertTrue(queues.assign("East", "Engine").isEmpty());
+	}
+
+	@Test
+	void releasedOrdersMakeAMechanicAvailableAgain() {
+		queues.assign("North", "Engine");
+		queues.assign("North", "Engine");
+		queues.assign("North", "Engine");
+		queues.changeLoad(1L, -2);
+
+		assertEquals(Optional.of(1L), queues.assign("North", "Engine"));
+		queues.changeLoad(3L, -5);
+		assertEquals(0, queues.load(3L).getAsInt());
+	}
+
+	@Test
+	void movedMechanicKeepsItsLoad() {
+		queues.changeLoad(4L, 3);
+		queues.register(4L, "North", "Brakes");
+
+		assertEquals(3, queues.load(4L).getAsInt());
+		assertEquals(Optional.of(3L), queues.assign("North", "Brakes"));
+		assertTrue(queues.assign("South", "Engine").isEmpty());
+
+		queues.remove(3L);
+		assertEquals(Optional.of(4L), queues.assign("North", "Brakes"));
+		assertTrue(queues.load(3L).isEmpty());
+	}
+}
@@ -0,0 +1,114 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PartCacheTest {
+
+	private static final long WAIT_MILLIS = 10_000;
+
+	@Autowired
+	private PartCache cache;
+
+	@Autowired
+	private PartRepository repository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void anUpdateEvictsTheCachedPartOnlyOnceItCommits() throws Exception {
+		Long id = part("Cached filter", 10.0);
+		assertEquals(10.0, cache.find(id).orElseThrow().getPrice());
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Part part = repository.findById(id).orElseThrow();
+			part.setPrice(20.0);
+			repository.saveAndFlush(part);
+
+			// Written but not committed: other readers still get the committed price from the cache
+			PartCache.Statistics before = cache.statistics().get("parts");
+			assertEquals(10.0, CompletableFuture.supplyAsync(() -> cache.find(id).orElseThrow().getPrice()).join());
+			assertEquals(before.hits() + 1, cache.statistics().get("parts").hits());
+		});
+
+		PartCache.Statistics before = cache.statistics().get("parts");
+		assertEquals(20.0, cache.find(id).orElseThrow().getPrice());
+		assertEquals(before.misses() + 1, cache.statistics().get("parts").misses());
+	}
+
+	@Test
+	void aRolledBackUpdateLeavesTheCachedPartInPlace() {
+		Long id = part("Rolled back filter", 10.0);
+		cache.find(id);
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Part part = repository.findById(id).orElseThrow();
+			part.setPrice(30.0);
+			repository.saveAndFlush(part);
+			status.setRollbackOnly();
+		});
+
+		PartCache.Statistics before = cache.statistics().get("parts");
+		assertEquals(10.0, cache.find(id).orElseThrow().getPrice());
+		PartCache.Statistics after = cache.statistics().get("parts");
+		assertEquals(before.hits() + 1, after.hits());
+		assertEquals(before.misses(), after.misses());
+	}
+
+	@Test
+	void lookupsMoveTheHitMissAndEvictionCounters() throws Exception {
+		// A cache of its own, small enough to evict
+		PartCache small = new PartCache(repository, 2, Duration.ofMinutes(10));
+		Long first = part("Counted filter", 1.0);
+
+		small.find(first);
+		small.find(first);
+		small.find(Long.MAX_VALUE);
+		PartCache.Statistics counted = small.statistics().get("parts");
+		assertEquals(1, counted.hits());
+		assertEquals(2, counted.misses());
+		assertEquals(2, counted.loads());
+		assertEquals(1.0 / 3, counted.hitRate(), 1e-9);
+
+		for (int i = 0; i < 5; i++) {
+			small.find(part("Counted belt " + i, 1.0));
+		}
+		// Caffeine evicts in its maintenance cycle, which may run on another thread
+		long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+		while (small.statistics().get("parts").entries() > 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		// Six parts cached (the unknown id is not) in room for two
+		assertEquals(2, small.statistics().get("parts").entries());
+		assertEquals(4, small.statistics().get("parts").evictions());
+
+		small.categories();
+		small.categories();
+		PartCache.Statistics categories = small.statistics().get("categories");
+		assertEquals(1, categories.hits());
+		assertEquals(1, categories.misses());
+	}
+
+	private Long part(String name, double price) {
+		Part part = new Part();
+		part.setName(name);
+		part.setPrice(price);
+		part.setStock(1);
+		part.setCategory("Cache");
+		return repository.save(part).getId();
+	}
+}
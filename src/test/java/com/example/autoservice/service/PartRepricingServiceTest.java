@@ -0,0 +1,50 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PartRepricingServiceTest {
+
+	@Autowired
+	private PartRepricingService repricingService;
+
+	@Autowired
+	private PartRepository partRepository;
+
+	@Test
+	void roundingNeverTurnsAPositivePriceIntoZero() {
+		List<Long> whole = List.of(
+				partRepository.save(new Part("Washer", 0.3, 10, "Repricing whole")).getId(),
+				partRepository.save(new Part("Clip", 0.6, 10, "Repricing whole")).getId(),
+				partRepository.save(new Part("Hose", 12.4, 10, "Repricing whole")).getId(),
+				partRepository.save(new Part("Sample", 0.0, 10, "Repricing whole")).getId());
+
+		PartRepricingService.RepricingResult dryRun = repricingService.reprice("Repricing whole", 10,
+				PartRepricingService.PriceRounding.WHOLE, true);
+		PartRepricingService.RepricingResult applied = repricingService.reprice("Repricing whole", 10,
+				PartRepricingService.PriceRounding.WHOLE, false);
+
+		assertEquals(List.of(1.0, 1.0, 14.0, 0.0), prices(whole));
+		assertEquals(4, applied.updated());
+		assertEquals(160.0, applied.valueAfter(), 1e-9);
+		assertEquals(applied.valueAfter(), dryRun.valueAfter(), 1e-9);
+
+		Long tiny = partRepository.save(new Part("Shim", 0.004, 10, "Repricing cents")).getId();
+		repricingService.reprice("Repricing cents", 0, PartRepricingService.PriceRounding.CENTS, false);
+		assertEquals(List.of(0.01), prices(List.of(tiny)));
+	}
+
+	private List<Double> prices(List<Long> ids) {
+		return ids.stream().map(id -> partRepository.findById(id).orElseThrow().getPrice()).toList();
+	}
+}
@@ -0,0 +1,72 @@
+package com.example.autoservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Run with: mvn test -Dbenchmark=true -Dtest=PartSearchIndexBenchmarkTest [-Dbenchmark.parts=1000000]
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PartSearchIndexBenchmarkTest {
+
+	private static final String[] KINDS = {"oil filter", "air filter", "cabin filter", "fuel filter",
+			"brake pad", "brake disc", "brake drum", "brake caliper", "brake hose", "spark plug", "glow plug",
+			"ignition coil", "timing belt", "timing chain", "drive belt", "belt tensioner", "idler pulley",
+			"water pump", "fuel pump", "oil pump", "thermostat", "radiator", "radiator cap", "coolant hose",
+			"shock absorber", "coil spring", "strut mount", "control arm", "ball joint", "tie rod end",
+			"stabilizer link", "wheel bearing", "wheel hub", "cv joint", "drive shaft", "clutch kit",
+			"clutch cable", "flywheel", "gearbox mount", "engine mount", "alternator", "starter motor",
+			"battery", "wiper blade", "headlight bulb", "tail lamp", "fog lamp", "oxygen sensor",
+			"abs sensor", "crankshaft sensor", "camshaft sensor", "map sensor", "egr valve", "throttle body",
+			"injector", "exhaust muffler", "catalytic converter", "gasket set", "valve cover gasket",
+			"head gasket", "piston ring set", "mirror glass", "door handle", "window regulator"};
+	private static final String[] QUALIFIERS = {"front", "rear", "left", "right", "upper", "lower",
+			"heavy duty", "premium", "economy", "sport", "oem", "reinforced", "ceramic", "kit"};
+	private static final String[] MODELS = {"Lada Vesta", "Lada Granta", "Kia Rio", "Hyundai Solaris",
+			"Renault Logan", "VW Polo", "Skoda Octavia", "Toyota Camry", "Ford Focus", "Nissan Qashqai",
+			"Chevrolet Niva", "Mazda 6", "BMW X5", "Mercedes E", "Audi A4", "Haval Jolion", "Geely Coolray"};
+	private static final String[] MANUFACTURERS = {"Bosch", "Mahle", "Mann", "TRW", "NGK", "Denso",
+			"Valeo", "Brembo", "Gates", "SKF", "Sachs", "Febi", "Lemforder", "Hella", "Osram", "Continental",
+			"Delphi", "Ferodo", "Kayaba", "Monroe", "Dayco", "Lucas", "Pierburg", "Hengst", "Filtron"};
+	private static final String[] QUERIES = {"bra", "brake", "brkae pad", "spark", "sprak plug", "oil fil",
+			"timing", "timnig belt", "water pu", "shock abs", "bosch", "ngk spark", "wheel bear",
+			"radiatr", "front brake disc", "cabin filter", "oxygen sen", "alternator 12", "vesta", "kia rio brake"};
+
+	@Test
+	void p99StaysUnderTenMilliseconds() {
+		int parts = Integer.getInteger("benchmark.parts", 1_000_000);
+		Random random = new Random(42);
+		PartSearchIndex index = new PartSearchIndex();
+
+		long buildStart = System.nanoTime();
+		for (long id = 1; id <= parts; id++) {
+			String kind = KINDS[random.nextInt(KINDS.length)];
+			String qualifier = QUALIFIERS[random.nextInt(QUALIFIERS.length)];
+			String manufacturer = MANUFACTURERS[random.nextInt(MANUFACTURERS.length)];
+			String name = qualifier + " " + kind + " " + MODELS[random.nextInt(MODELS.length)];
+			String partNumber = manufacturer.substring(0, 2).toUpperCase() + "-" + (100000 + id);
+			index.index(PartSearchIndexTest.part(id, name, partNumber, manufacturer, null));
+		}
+		System.out.printf("Indexed %d parts in %d ms%n", parts, (System.nanoTime() - buildStart) / 1_000_000);
+
+		for (int i = 0; i < 2_000; i++) {
+			index.search(QUERIES[i % QUERIES.length], 0, 20);
+		}
+
+		int runs = 5_000;
+		long[] latencies = new long[runs];
+		for (int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			index.search(QUERIES[random.nextInt(QUERIES.length)], 0, 20);
+			latencies[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(latencies);
+		double p50 = latencies[runs / 2] / 1e6;
+		double p99 = latencies[(int) (runs * 0.99)] / 1e6;
+		System.out.printf("Search over %d parts: p50 %.2f ms, p99 %.2f ms%n", parts, p50, p99);
+		assertTrue(p99 < 10.0, "p99 was " + p99 + " ms");
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartSearchIndexTest {
+
+	private PartSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new PartSearchIndex();
+		index.index(part(1L, "Oil filter", "OC-90", "Mahle", "Spin-on oil filter"));
+		index.index(part(2L, "Air filter", "LX-1566", "Mahle", "Engine air filter"));
+		index.index(part(3L, "Brake pads front", "GDB1550", "TRW", "Ceramic brake pads"));
+		index.index(part(4L, "Spark plug", "BKR6E", "NGK", "Nickel spark plug"));
+	}
+
+	@Test
+	void matchesPrefixWhileTyping() {
+		assertEquals(3L, topHit("bra"));
+		assertEquals(3L, topHit("brake p"));
+	}
+
+	@Test
+	void toleratesTypos() {
+		assertEquals(3L, topHit("brkae pads"));
+		assertEquals(4L, topHit("sprak plug"));
+	}
+
+	@Test
+	void searchesPartNumberManufacturerAndDescription() {
+		assertEquals(1L, topHit("oc90"));
+		assertEquals(4L, topHit("ngk"));
+		assertEquals(3L, topHit("ceramic"));
+	}
+
+	@Test
+	void ranksNameMatchesAboveDescriptionMatches() {
+		PartSearchIndex.SearchResult result = index.search("filter", 0, 10);
+		assertEquals(2, result.total());
+		assertEquals(1L, result.hits().get(0).partId());
+	}
+
+	@Test
+	void paginatesRankedHits() {
+		PartSearchIndex.SearchResult result = index.search("filter", 1, 1);
+		assertEquals(2, result.total());
+		assertEquals(1, result.hits().size());
+		assertEquals(2L, result.hits().get(0).partId());
+	}
+
+	@Test
+	void reflectsUpdatesAndDeletes() {
+		index.index(part(4L, "Glow plug", "0250202", "Bosch", null));
+		assertTrue(index.search("spark", 0, 10).hits().stream().noneMatch(hit -> hit.partId() == 4L));
+		assertEquals(4L, topHit("glow"));
+
+		index.remove(1L);
+		assertEquals(1, index.search("oil filter", 0, 10).hits().stream()
+				.filter(hit -> hit.partId() == 2L).count());
+		assertTrue(index.search("oil filter", 0, 10).hits().stream().noneMatch(hit -> hit.partId() == 1L));
+	}
+
+	private long topHit(String query) {
+		PartSearchIndex.SearchResult result = index.search(query, 0, 1);
+		assertEquals(1, result.hits().size(), "no hit for " + query);
+		return result.hits().get(0).partId();
+	}
+
+	static Part part(Long id, String name, String partNumber, String manufacturer, String description) {
+		Part part = new Part(name, 10.0, 1, description, "Test", manufacturer, partNumber);
+		part.setId(id);
+		return part;
+	}
+}
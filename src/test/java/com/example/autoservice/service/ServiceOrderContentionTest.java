@@ -0,0 +1,164 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.model.ServiceOrder;
+import com.example.autoservice.repository.PartRepository;
+import com.example.autoservice.repository.ServiceOrderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Enough attempts that every contended operation eventually commits
+@SpringBootTest(properties = "autoservice.optimistic-retry.max-attempts=50")
+@ActiveProfiles("test")
+class ServiceOrderContentionTest {
+
+	private static final int THREADS = 16;
+	private static final int OPERATIONS_PER_THREAD = 10;
+
+	@Autowired
+	private ServiceOrderService orderService;
+
+	@Autowired
+	private ServiceOrderRepository orderRepository;
+
+	@Autowired
+	private PartRepository partRepository;
+
+	@Autowired
+	private StockReservations reservations;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void concurrentPartAdditionsAreAllKept() throws Exception {
+		Part part = partRepository.save(new Part("Brake pad contention", 12.5, 1000, "Brakes"));
+		Long orderId = orderRepository.save(new ServiceOrder()).getId();
+
+		runConcurrently(thread -> () -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				ServiceOrderService.OperationOutcome outcome =
+						orderService.apply(orderId, ServiceOrderService.Operation.addPart(part.getId(), 1), null);
+				assertEquals(ServiceOrderService.Status.APPLIED, outcome.result().status());
+			}
+			return null;
+		});
+
+		int units = THREADS * OPERATIONS_PER_THREAD;
+		ServiceOrder order = inTransaction(() -> {
+			ServiceOrder loaded = orderRepository.findById(orderId).orElseThrow();
+			loaded.getLines().size();
+			return loaded;
+		});
+		assertEquals(units, order.quantitiesByPart().get(part.getId()));
+		assertEquals(units * 12.5, order.getPartsTotal(), 1e-9);
+		assertEquals(units, reservations.held(orderId, part.getId()));
+	}
+
+	@Test
+	void concurrentTaskCompletionsKeepExactCounters() throws Exception {
+		ServiceOrder created = new ServiceOrder();
+		List<String> tasks = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				tasks.add("task-" + t + "-" + i);
+			}
+		}
+		created.setRequiredTasks(tasks);
+		Long orderId = orderRepository.save(created).getId();
+
+		runConcurrently(thread -> () -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				ServiceOrderService.OperationOutcome outcome = orderService.apply(orderId,
+						ServiceOrderService.Operation.completeTask("task-" + thread + "-" + i), null);
+				assertEquals(ServiceOrderService.Status.APPLIED, outcome.result().status());
+			}
+			return null;
+		});
+
+		ServiceOrder order = inTransaction(() -> {
+			ServiceOrder loaded = orderRepository.findById(orderId).orElseThrow();
+			loaded.getTasks().size();
+			return loaded;
+		});
+		assertEquals(tasks.size(), order.getCompletedTaskCount());
+		assertEquals(tasks.size(), order.getCompletedTasks().size());
+		assertEquals(tasks.size(), order.getRequiredTaskCount());
+	}
+
+	@Test
+	void outdatedExpectedVersionIsRejected() {
+		Long orderId = orderRepository.save(new ServiceOrder()).getId();
+		Long version = orderRepository.findById(orderId).orElseThrow().getVersion();
+		orderService.apply(orderId, ServiceOrderService.Operation.updateLaborCost(10.0), version);
+
+		ServiceOrderService.OperationOutcome outcome =
+				orderService.apply(orderId, ServiceOrderService.Operation.updateLaborCost(20.0), version);
+
+		assertEquals(ServiceOrderService.Status.STALE, outcome.result().status());
+		assertEquals(10.0, orderRepository.findById(orderId).orElseThrow().getLaborCost());
+	}
+
+	@Test
+	void writeBasedOnAnOutdatedReadFails() {
+		Long orderId = orderRepository.save(new ServiceOrder()).getId();
+		ServiceOrder first = orderRepository.findById(orderId).orElseThrow();
+		ServiceOrder second = orderRepository.findById(orderId).orElseThrow();
+
+		first.setDescription("first");
+		orderRepository.save(first);
+		second.setDescription("second");
+
+		assertThrows(OptimisticLockingFailureException.class, () -> orderRepository.save(second));
+		assertEquals("first", orderRepository.findById(orderId).orElseThrow().getDescription());
+	}
+
+	private <T> T inTransaction(Callable<T> work) {
+		return new TransactionTemplate(transactionManager).execute(status -> {
+			try {
+				return work.call();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	private void runConcurrently(Worker worker) throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			Callable<Void> work = worker.forThread(t);
+			futures.add(executor.submit(() -> {
+				start.await();
+				return work.call();
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+	}
+
+	@FunctionalInterface
+	private interface Worker {
+		Callable<Void> forThread(int thread);
+	}
+}
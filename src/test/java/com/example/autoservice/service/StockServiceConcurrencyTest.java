@@ -0,0 +1,126 @@
+package com.example.autoservice.service;
+
+import com.example.autoservice.model.Part;
+import com.example.autoservice.repository.PartRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StockServiceConcurrencyTest {
+
+	private static final int THREADS = 32;
+	private static final int ATTEMPTS_PER_THREAD = 50;
+	private static final int INITIAL_STOCK = 500;
+
+	@Autowired
+	private StockService stockService;
+
+	@Autowired
+	private PartRepository partRepository;
+
+	@Autowired
+	private StockReservations reservations;
+
+	@Test
+	void concurrentDecrementsNeverOversellOrLoseUpdates() throws Exception {
+		Part part = partRepository.save(new Part("Oil filter stress", 7.5, INITIAL_STOCK, "Filters"));
+		Long partId = part.getId();
+
+		AtomicInteger sold = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+					StockService.StockUpdate update = stockService.decrease(partId, 1);
+					if (update.isUpdated()) {
+						sold.incrementAndGet();
+					} else {
+						assertEquals(StockService.StockUpdate.Status.INSUFFICIENT_STOCK, update.status());
+						rejected.incrementAndGet();
+					}
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		Part reloaded = partRepository.findById(partId).orElseThrow();
+		assertEquals(INITIAL_STOCK, sold.get());
+		assertEquals(THREADS * ATTEMPTS_PER_THREAD - INITIAL_STOCK, rejected.get());
+		assertEquals(0, reloaded.getStock());
+		assertFalse(reloaded.getIsAvailable());
+	}
+
+	@Test
+	void interleavedIncreasesAndDecreasesKeepExactCount() throws Exception {
+		// Enough that the decrementing half can never run dry, whatever the interleaving
+		int initialStock = THREADS / 2 * ATTEMPTS_PER_THREAD * 2;
+		Part part = partRepository.save(new Part("Spark plug stress", 3.0, initialStock, "Ignition"));
+		Long partId = part.getId();
+
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			boolean restocker = t % 2 == 0;
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+					StockService.StockUpdate update = restocker
+							? stockService.increase(partId, 2)
+							: stockService.decrease(partId, 2);
+					assertEquals(StockService.StockUpdate.Status.UPDATED, update.status());
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertEquals(initialStock, partRepository.findById(partId).orElseThrow().getStock());
+	}
+
+	@Test
+	void directDecrementsLeaveHeldUnitsForTheOrderHoldingThem() {
+		Part part = partRepository.save(new Part("Brake disc held", 40.0, 10, "Brakes"));
+		Long partId = part.getId();
+		// No such order exists; the hold only lives in memory
+		Long orderId = -partId;
+		assertTrue(reservations.reserve(orderId, partId, 8, 10));
+		try {
+			assertEquals(StockService.StockUpdate.Status.INSUFFICIENT_STOCK, stockService.decrease(partId, 3).status());
+			assertEquals(StockService.StockUpdate.Status.UPDATED, stockService.decrease(partId, 2).status());
+			assertEquals(StockService.StockUpdate.Status.INSUFFICIENT_STOCK, stockService.decrease(partId, 1).status());
+			assertEquals(StockService.StockUpdate.Status.UPDATED, stockService.consumeHeld(partId, 8).status());
+		} finally {
+			reservations.releaseAll(orderId);
+		}
+		assertEquals(0, partRepository.findById(partId).orElseThrow().getStock());
+	}
+}